@@ -14,4 +14,11 @@ public @interface DDBTable {
      * @return table name. If not populated, the class name is used as the table name. This can be constant string or a property name defined in config file.
      */
     String name() default "";
+
+    /**
+     * Read-through cache of the items fetched by primary key. Items are invalidated when they are written through the
+     * repository; writes made by other processes are only seen once the cached item expires.
+     * @return cache configuration. Disabled by default.
+     */
+    EntityCache cache() default @EntityCache;
 }
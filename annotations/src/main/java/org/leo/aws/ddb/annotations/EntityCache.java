@@ -0,0 +1,27 @@
+package org.leo.aws.ddb.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Read-through cache of the items fetched by primary key. Used as the {@link DDBTable#cache()} attribute. Requires Caffeine
+ * on the classpath.
+ */
+@Target({})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface EntityCache {
+    /**
+     * @return true to cache the items of the table
+     */
+    boolean enabled() default false;
+
+    /**
+     * @return Maximum number of items cached
+     */
+    long maximumSize() default 10_000;
+
+    /**
+     * @return Seconds an item stays cached after it is fetched
+     */
+    long expireAfterWriteSeconds() default 300;
+}
@@ -0,0 +1,90 @@
+package org.leo.aws.ddb.config;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs the mapping of DynamoDB responses to entities. Either inline, on the SDK thread that completes the response, or on a
+ * bounded pool of named threads. When the pool queue is full the mapping runs on the completing thread, so a slow consumer
+ * never makes a request fail.
+ * <p>
+ * Deliberately not a {@link java.util.concurrent.Executor}, so registering it as a bean does not replace the application's
+ * default task executor.
+ */
+@SuppressWarnings({"unused"})
+public final class MappingExecutor implements AutoCloseable {
+    private static final MappingExecutor INLINE = new MappingExecutor(null);
+
+    private final ThreadPoolExecutor threadPoolExecutor;
+
+    private MappingExecutor(final ThreadPoolExecutor threadPoolExecutor) {
+        this.threadPoolExecutor = threadPoolExecutor;
+    }
+
+    /**
+     * @return Executor mapping the responses on the thread that completes them
+     */
+    public static MappingExecutor inline() {
+        return INLINE;
+    }
+
+    /**
+     * @param name          Thread name prefix
+     * @param poolSize      Maximum number of threads
+     * @param queueCapacity Maximum number of mappings waiting for a thread
+     * @return Executor mapping the responses on a dedicated pool
+     */
+    public static MappingExecutor pool(final String name, final int poolSize, final int queueCapacity) {
+        if (poolSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("poolSize and queueCapacity should be greater than 0");
+        }
+
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(name + "-");
+        final ThreadPoolExecutor threadPoolExecutor;
+
+        threadFactory.setDaemon(true);
+        threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+
+        return new MappingExecutor(threadPoolExecutor);
+    }
+
+    /**
+     * @param future Response future
+     * @param mapper Mapping of the response
+     * @return Future completed with the mapped response
+     */
+    public <T, R> CompletableFuture<R> map(final CompletableFuture<T> future, final Function<? super T, ? extends R> mapper) {
+        return isInline() ? future.thenApply(mapper) : future.thenApplyAsync(mapper, threadPoolExecutor);
+    }
+
+    public boolean isInline() {
+        return threadPoolExecutor == null;
+    }
+
+    /**
+     * @return Underlying pool (to bind metrics), null when inline
+     */
+    public ThreadPoolExecutor getThreadPoolExecutor() {
+        return threadPoolExecutor;
+    }
+
+    @Override
+    public void close() {
+        if (threadPoolExecutor != null) {
+            threadPoolExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isInline() ? "MappingExecutor{inline}" : "MappingExecutor{poolSize=" + threadPoolExecutor.getMaximumPoolSize() +
+                ", queueCapacity=" + (threadPoolExecutor.getQueue().size() + threadPoolExecutor.getQueue().remainingCapacity()) + '}';
+    }
+}
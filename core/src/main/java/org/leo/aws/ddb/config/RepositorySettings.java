@@ -0,0 +1,370 @@
+package org.leo.aws.ddb.config;
+
+import org.leo.aws.ddb.data.RetryPolicy;
+import org.leo.aws.ddb.metrics.ConsumedCapacityTracker;
+import org.leo.aws.ddb.metrics.RepositoryMetrics;
+import org.leo.aws.ddb.throttling.ThroughputLimiter;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Tuning settings shared by all the repositories. Register a bean of this type to override the defaults.
+ */
+@SuppressWarnings({"unused"})
+public final class RepositorySettings {
+    public static final int DEFAULT_BATCH_WRITE_CONCURRENCY = 4;
+    public static final int DEFAULT_BATCH_GET_CONCURRENCY = 4;
+    public static final int DEFAULT_UPDATE_CONCURRENCY = 4;
+
+    private static final RepositorySettings DEFAULTS = builder().build();
+
+    private final int batchWriteConcurrency;
+    private final int batchGetConcurrency;
+    private final int updateConcurrency;
+    private final boolean coalesceGets;
+    private final Duration getBatchWindow;
+    private final Duration putBatchWindow;
+    private final RetryPolicy retryPolicy;
+    private final MappingExecutor mappingExecutor;
+    private final RepositoryMetrics metrics;
+    private final ConsumedCapacityTracker consumedCapacityTracker;
+    private final ThroughputLimiter throughputLimiter;
+
+    private RepositorySettings(final int batchWriteConcurrency,
+                               final int batchGetConcurrency,
+                               final int updateConcurrency,
+                               final boolean coalesceGets,
+                               final Duration getBatchWindow,
+                               final Duration putBatchWindow,
+                               final RetryPolicy retryPolicy,
+                               final MappingExecutor mappingExecutor,
+                               final RepositoryMetrics metrics,
+                               final ConsumedCapacityTracker consumedCapacityTracker,
+                               final ThroughputLimiter throughputLimiter) {
+
+        this.batchWriteConcurrency = batchWriteConcurrency;
+        this.batchGetConcurrency = batchGetConcurrency;
+        this.updateConcurrency = updateConcurrency;
+        this.coalesceGets = coalesceGets;
+        this.getBatchWindow = getBatchWindow;
+        this.putBatchWindow = putBatchWindow;
+        this.retryPolicy = retryPolicy;
+        this.mappingExecutor = mappingExecutor;
+        this.metrics = metrics;
+        this.consumedCapacityTracker = consumedCapacityTracker;
+        this.throughputLimiter = throughputLimiter;
+    }
+
+    public static Builder builder() {
+        return new BuilderImpl();
+    }
+
+    /**
+     * @return Settings with all the default values
+     */
+    public static RepositorySettings defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @return Maximum number of BatchWriteItem requests in flight for a single batch write
+     */
+    public int getBatchWriteConcurrency() {
+        return batchWriteConcurrency;
+    }
+
+    /**
+     * @return Maximum number of BatchGetItem requests in flight for a single batch get
+     */
+    public int getBatchGetConcurrency() {
+        return batchGetConcurrency;
+    }
+
+    /**
+     * @return Maximum number of records updated at the same time by a bulk update
+     */
+    public int getUpdateConcurrency() {
+        return updateConcurrency;
+    }
+
+    /**
+     * @return true if concurrent lookups of the same primary key share a single GetItem call
+     */
+    public boolean isCoalesceGets() {
+        return coalesceGets;
+    }
+
+    /**
+     * @return Time single key lookups wait to be fetched together with a BatchGetItem call, zero when they are not batched
+     */
+    public Duration getGetBatchWindow() {
+        return getBatchWindow;
+    }
+
+    /**
+     * @return Time unconditional puts wait to be written together with a BatchWriteItem call, zero when they are not batched
+     */
+    public Duration getPutBatchWindow() {
+        return putBatchWindow;
+    }
+
+    /**
+     * @return Policy used to retry the unprocessed items of batch operations
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @return Executor mapping the single item responses (get, update) to entities
+     */
+    public MappingExecutor getMappingExecutor() {
+        return mappingExecutor;
+    }
+
+    /**
+     * @return Receiver of the measurements of the repository operations
+     */
+    public RepositoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return Tracker of the consumed capacity, null when the consumed capacity is not requested
+     */
+    @Nullable
+    public ConsumedCapacityTracker getConsumedCapacityTracker() {
+        return consumedCapacityTracker;
+    }
+
+    /**
+     * @return Client side rate limiter, null when the calls are not rate limited
+     */
+    @Nullable
+    public ThroughputLimiter getThroughputLimiter() {
+        return throughputLimiter;
+    }
+
+    public Builder toBuilder() {
+        return builder()
+                .batchWriteConcurrency(batchWriteConcurrency)
+                .batchGetConcurrency(batchGetConcurrency)
+                .updateConcurrency(updateConcurrency)
+                .coalesceGets(coalesceGets)
+                .getBatchWindow(getBatchWindow)
+                .putBatchWindow(putBatchWindow)
+                .retryPolicy(retryPolicy)
+                .mappingExecutor(mappingExecutor)
+                .metrics(metrics)
+                .consumedCapacityTracker(consumedCapacityTracker)
+                .throughputLimiter(throughputLimiter);
+    }
+
+    @Override
+    public String toString() {
+        return "RepositorySettings{" +
+                "batchWriteConcurrency=" + batchWriteConcurrency +
+                ", batchGetConcurrency=" + batchGetConcurrency +
+                ", updateConcurrency=" + updateConcurrency +
+                ", coalesceGets=" + coalesceGets +
+                ", getBatchWindow=" + getBatchWindow +
+                ", putBatchWindow=" + putBatchWindow +
+                ", retryPolicy=" + retryPolicy +
+                ", mappingExecutor=" + mappingExecutor +
+                ", metrics=" + metrics +
+                ", consumedCapacityTracker=" + consumedCapacityTracker +
+                ", throughputLimiter=" + throughputLimiter +
+                '}';
+    }
+
+    public interface Builder {
+
+        Builder batchWriteConcurrency(int batchWriteConcurrency);
+
+        Builder batchGetConcurrency(int batchGetConcurrency);
+
+        Builder updateConcurrency(int updateConcurrency);
+
+        Builder coalesceGets(boolean coalesceGets);
+
+        Builder getBatchWindow(Duration getBatchWindow);
+
+        Builder putBatchWindow(Duration putBatchWindow);
+
+        Builder retryPolicy(RetryPolicy retryPolicy);
+
+        Builder mappingExecutor(MappingExecutor mappingExecutor);
+
+        Builder metrics(RepositoryMetrics metrics);
+
+        Builder consumedCapacityTracker(ConsumedCapacityTracker consumedCapacityTracker);
+
+        Builder throughputLimiter(ThroughputLimiter throughputLimiter);
+
+        RepositorySettings build();
+    }
+
+    private static class BuilderImpl implements Builder {
+        private int batchWriteConcurrency = DEFAULT_BATCH_WRITE_CONCURRENCY;
+        private int batchGetConcurrency = DEFAULT_BATCH_GET_CONCURRENCY;
+        private int updateConcurrency = DEFAULT_UPDATE_CONCURRENCY;
+        private boolean coalesceGets;
+        private Duration getBatchWindow = Duration.ZERO;
+        private Duration putBatchWindow = Duration.ZERO;
+        private RetryPolicy retryPolicy = RetryPolicy.defaults();
+        private MappingExecutor mappingExecutor = MappingExecutor.inline();
+        private RepositoryMetrics metrics = RepositoryMetrics.NOOP;
+        private ConsumedCapacityTracker consumedCapacityTracker;
+        private ThroughputLimiter throughputLimiter;
+
+        BuilderImpl() {
+        }
+
+        /**
+         * @param batchWriteConcurrency Maximum number of BatchWriteItem requests in flight for a single batch write
+         * @return Builder
+         */
+        @Override
+        public Builder batchWriteConcurrency(final int batchWriteConcurrency) {
+            if (batchWriteConcurrency < 1) {
+                throw new IllegalArgumentException("batchWriteConcurrency should be greater than 0");
+            }
+
+            this.batchWriteConcurrency = batchWriteConcurrency;
+            return this;
+        }
+
+        /**
+         * @param batchGetConcurrency Maximum number of BatchGetItem requests in flight for a single batch get
+         * @return Builder
+         */
+        @Override
+        public Builder batchGetConcurrency(final int batchGetConcurrency) {
+            if (batchGetConcurrency < 1) {
+                throw new IllegalArgumentException("batchGetConcurrency should be greater than 0");
+            }
+
+            this.batchGetConcurrency = batchGetConcurrency;
+            return this;
+        }
+
+        /**
+         * @param updateConcurrency Maximum number of records updated at the same time by a bulk update. Updates of the same
+         *                          record are always applied one after the other, in the order they were given
+         * @return Builder
+         */
+        @Override
+        public Builder updateConcurrency(final int updateConcurrency) {
+            if (updateConcurrency < 1) {
+                throw new IllegalArgumentException("updateConcurrency should be greater than 0");
+            }
+
+            this.updateConcurrency = updateConcurrency;
+            return this;
+        }
+
+        /**
+         * @param coalesceGets Share a single GetItem call between the concurrent lookups of the same primary key. Writes
+         *                     made through the repository detach the key so later lookups see them (off by default)
+         * @return Builder
+         */
+        @Override
+        public Builder coalesceGets(final boolean coalesceGets) {
+            this.coalesceGets = coalesceGets;
+            return this;
+        }
+
+        /**
+         * @param getBatchWindow Time single key lookups wait for other lookups of the same table before being fetched with
+         *                       one BatchGetItem call (sent earlier once 100 keys are collected). Trades a small delay for
+         *                       fewer calls under high concurrency (zero, no batching, by default)
+         * @return Builder
+         */
+        @Override
+        public Builder getBatchWindow(final Duration getBatchWindow) {
+            if (getBatchWindow == null || getBatchWindow.isNegative()) {
+                throw new IllegalArgumentException("getBatchWindow should not be negative");
+            }
+
+            this.getBatchWindow = getBatchWindow;
+            return this;
+        }
+
+        /**
+         * @param putBatchWindow Time unconditional puts (upserts of entities without version attribute) wait for other
+         *                       puts of the same table before being written with one BatchWriteItem call (sent earlier once
+         *                       25 items are collected). Each put completes once its batch is written (zero, no batching,
+         *                       by default)
+         * @return Builder
+         */
+        @Override
+        public Builder putBatchWindow(final Duration putBatchWindow) {
+            if (putBatchWindow == null || putBatchWindow.isNegative()) {
+                throw new IllegalArgumentException("putBatchWindow should not be negative");
+            }
+
+            this.putBatchWindow = putBatchWindow;
+            return this;
+        }
+
+        /**
+         * @param retryPolicy Policy used to retry the unprocessed items of batch operations
+         * @return Builder
+         */
+        @Override
+        public Builder retryPolicy(final RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * @param mappingExecutor Executor mapping the single item responses (get, update) to entities (inline by default)
+         * @return Builder
+         */
+        @Override
+        public Builder mappingExecutor(final MappingExecutor mappingExecutor) {
+            this.mappingExecutor = mappingExecutor;
+            return this;
+        }
+
+        /**
+         * @param metrics Receiver of the measurements of the repository operations (none by default)
+         * @return Builder
+         */
+        @Override
+        public Builder metrics(final RepositoryMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param consumedCapacityTracker Tracker of the consumed capacity. When set, every request asks for the consumed
+         *                                capacity of the table and its indexes (off by default)
+         * @return Builder
+         */
+        @Override
+        public Builder consumedCapacityTracker(@Nullable final ConsumedCapacityTracker consumedCapacityTracker) {
+            this.consumedCapacityTracker = consumedCapacityTracker;
+            return this;
+        }
+
+        /**
+         * @param throughputLimiter Client side rate limiter. When set, every request asks for the consumed capacity, which
+         *                          is charged to the limiter (off by default)
+         * @return Builder
+         */
+        @Override
+        public Builder throughputLimiter(@Nullable final ThroughputLimiter throughputLimiter) {
+            this.throughputLimiter = throughputLimiter;
+            return this;
+        }
+
+        @Override
+        public RepositorySettings build() {
+            return new RepositorySettings(batchWriteConcurrency, batchGetConcurrency, updateConcurrency, coalesceGets,
+                    getBatchWindow, putBatchWindow, retryPolicy, mappingExecutor, metrics, consumedCapacityTracker,
+                    throughputLimiter);
+        }
+    }
+}
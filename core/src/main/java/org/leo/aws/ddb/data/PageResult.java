@@ -0,0 +1,60 @@
+package org.leo.aws.ddb.data;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of records with the token to fetch the next page. The token is opaque and URL safe, it can be handed to clients
+ * and passed back as is.
+ *
+ * @param <T> Record type
+ */
+@SuppressWarnings({"unused"})
+public final class PageResult<T> {
+    private final List<T> items;
+    private final String nextPageToken;
+
+    private PageResult(final List<T> items, final String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    /**
+     * @param items         Records of the page
+     * @param nextPageToken Token of the next page, null for the last page
+     * @return Page
+     */
+    public static <T> PageResult<T> of(final List<T> items, @Nullable final String nextPageToken) {
+        return new PageResult<>(Collections.unmodifiableList(items), nextPageToken);
+    }
+
+    /**
+     * @return Records of the page. A page can hold fewer records than the page size (even none) when a filter expression is
+     * used, since DynamoDB applies the filter after reading the page.
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return Token of the next page, null when there are no more records
+     */
+    @Nullable
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextPageToken != null;
+    }
+
+    @Override
+    public String toString() {
+        return "PageResult{" +
+                "items=" + items +
+                ", nextPageToken='" + nextPageToken + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,75 @@
+package org.leo.aws.ddb.data;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Attributes to fetch instead of the whole item (ProjectionExpression). The key attributes of the table are always fetched
+ * as well. Attributes that are not projected are left null in the returned entities.
+ */
+@SuppressWarnings({"unused"})
+public final class Projection {
+    private final List<String> attributeNames;
+
+    private Projection(final List<String> attributeNames) {
+        this.attributeNames = attributeNames;
+    }
+
+    /**
+     * @param attributeNames Names of the attributes in the table (as mapped with {@link org.leo.aws.ddb.annotations.DbAttribute})
+     * @return Projection of the attributes
+     */
+    public static Projection of(final String... attributeNames) {
+        return of(Arrays.asList(attributeNames));
+    }
+
+    /**
+     * @param attributeNames Names of the attributes in the table (as mapped with {@link org.leo.aws.ddb.annotations.DbAttribute})
+     * @return Projection of the attributes
+     */
+    public static Projection of(final Collection<String> attributeNames) {
+        final Set<String> names = new LinkedHashSet<>(attributeNames);
+
+        if (names.isEmpty() || names.contains(null)) {
+            throw new IllegalArgumentException("attributeNames should not be empty or contain null");
+        }
+
+        return new Projection(Collections.unmodifiableList(new ArrayList<>(names)));
+    }
+
+    /**
+     * @param projectionType Class whose fields (including the inherited ones) are named after the attributes to fetch
+     * @return Projection of the fields of the class
+     */
+    public static Projection of(final Class<?> projectionType) {
+        final List<String> names = new ArrayList<>();
+
+        for (Class<?> type = projectionType; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (final Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()) && !field.isSynthetic()) {
+                    names.add(field.getName());
+                }
+            }
+        }
+
+        return of(names);
+    }
+
+    public List<String> getAttributeNames() {
+        return attributeNames;
+    }
+
+    @Override
+    public String toString() {
+        return "Projection{" +
+                "attributeNames=" + attributeNames +
+                '}';
+    }
+}
@@ -0,0 +1,163 @@
+package org.leo.aws.ddb.data;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff policy. The delay before retry {@code n} is a random value between 0 and
+ * {@code min(maxDelay, baseDelay * 2^(n - 1))} ("full jitter"), or exactly that value when jitter is disabled.
+ */
+@SuppressWarnings({"unused"})
+public final class RetryPolicy {
+    public static final int DEFAULT_MAX_ATTEMPTS = 8;
+    public static final Duration DEFAULT_BASE_DELAY = Duration.ofMillis(50);
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(5);
+
+    private static final RetryPolicy DEFAULTS = builder().build();
+
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final boolean jitter;
+
+    private RetryPolicy(final int maxAttempts, final Duration baseDelay, final Duration maxDelay, final boolean jitter) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.jitter = jitter;
+    }
+
+    public static Builder builder() {
+        return new BuilderImpl();
+    }
+
+    /**
+     * @return Policy with all the default values
+     */
+    public static RetryPolicy defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @return Maximum number of attempts, including the first one
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getBaseDelay() {
+        return baseDelay;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public boolean isJitter() {
+        return jitter;
+    }
+
+    /**
+     * @param attempt Number of attempts made so far
+     * @return true if another attempt can be made
+     */
+    public boolean canRetry(final int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * @param attempt Number of attempts made so far (1 after the first attempt failed)
+     * @return Delay before the next attempt
+     */
+    public Duration getDelay(final int attempt) {
+        final long delay = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(Math.max(attempt - 1, 0), 30));
+
+        return Duration.ofMillis(jitter ? ThreadLocalRandom.current().nextLong(delay + 1) : delay);
+    }
+
+    public Builder toBuilder() {
+        return builder().maxAttempts(maxAttempts).baseDelay(baseDelay).maxDelay(maxDelay).jitter(jitter);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+                "maxAttempts=" + maxAttempts +
+                ", baseDelay=" + baseDelay +
+                ", maxDelay=" + maxDelay +
+                ", jitter=" + jitter +
+                '}';
+    }
+
+    public interface Builder {
+
+        Builder maxAttempts(int maxAttempts);
+
+        Builder baseDelay(Duration baseDelay);
+
+        Builder maxDelay(Duration maxDelay);
+
+        Builder jitter(boolean jitter);
+
+        RetryPolicy build();
+    }
+
+    private static class BuilderImpl implements Builder {
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private Duration baseDelay = DEFAULT_BASE_DELAY;
+        private Duration maxDelay = DEFAULT_MAX_DELAY;
+        private boolean jitter = true;
+
+        BuilderImpl() {
+        }
+
+        /**
+         * @param maxAttempts Maximum number of attempts, including the first one
+         * @return Builder
+         */
+        @Override
+        public Builder maxAttempts(final int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts should be greater than 0");
+            }
+
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param baseDelay Delay before the first retry (before jitter)
+         * @return Builder
+         */
+        @Override
+        public Builder baseDelay(final Duration baseDelay) {
+            this.baseDelay = baseDelay;
+            return this;
+        }
+
+        /**
+         * @param maxDelay Upper bound of the delay between two attempts
+         * @return Builder
+         */
+        @Override
+        public Builder maxDelay(final Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * @param jitter Randomize the delays (recommended when many clients retry at the same time)
+         * @return Builder
+         */
+        @Override
+        public Builder jitter(final boolean jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        @Override
+        public RetryPolicy build() {
+            return new RetryPolicy(maxAttempts, baseDelay, maxDelay, jitter);
+        }
+    }
+}
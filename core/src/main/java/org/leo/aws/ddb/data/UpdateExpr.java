@@ -0,0 +1,244 @@
+package org.leo.aws.ddb.data;
+
+import org.leo.aws.ddb.utils.Expr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Update applied by DynamoDB in a single UpdateItem call (UpdateExpression), without reading the item first. Attribute
+ * names are the names in the table (as mapped with {@link org.leo.aws.ddb.annotations.DbAttribute}). The version attribute
+ * of versioned entities is incremented by DynamoDB as part of the update.
+ */
+@SuppressWarnings({"unused"})
+public final class UpdateExpr {
+    private final List<Action> actions;
+    private final Number expectedVersion;
+    private final Expr condition;
+
+    private UpdateExpr(final List<Action> actions, final Number expectedVersion, final Expr condition) {
+        this.actions = actions;
+        this.expectedVersion = expectedVersion;
+        this.condition = condition;
+    }
+
+    public static Builder builder() {
+        return new BuilderImpl();
+    }
+
+    public List<Action> getActions() {
+        return actions;
+    }
+
+    /**
+     * @return Version the item should have for the update to be applied, null to update whatever the version
+     */
+    public Number getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    /**
+     * @return Additional condition the item should satisfy for the update to be applied, null for none
+     */
+    public Expr getCondition() {
+        return condition;
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateExpr{" +
+                "actions=" + actions +
+                ", expectedVersion=" + expectedVersion +
+                ", condition=" + (condition != null ? condition.expression() : null) +
+                '}';
+    }
+
+    public enum ActionType {
+        /**
+         * SET name = value
+         */
+        SET,
+        /**
+         * SET name = if_not_exists(name, value)
+         */
+        SET_IF_NOT_EXISTS,
+        /**
+         * SET name = list_append(if_not_exists(name, []), value), or ADD name value for the collections of strings or numbers
+         * (stored as string/number sets, duplicates are ignored)
+         */
+        APPEND_TO_LIST,
+        /**
+         * ADD name value (atomic counter)
+         */
+        ADD,
+        /**
+         * REMOVE name
+         */
+        REMOVE
+    }
+
+    public static final class Action {
+        private final ActionType type;
+        private final String attributeName;
+        private final Object value;
+
+        private Action(final ActionType type, final String attributeName, final Object value) {
+            this.type = type;
+            this.attributeName = attributeName;
+            this.value = value;
+        }
+
+        public ActionType getType() {
+            return type;
+        }
+
+        public String getAttributeName() {
+            return attributeName;
+        }
+
+        /**
+         * @return Value of the action, null for {@link ActionType#REMOVE}
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + attributeName + (value != null ? " " + value : "");
+        }
+    }
+
+    public interface Builder {
+
+        Builder set(String attributeName, Object value);
+
+        Builder setIfNotExists(String attributeName, Object value);
+
+        Builder appendToList(String attributeName, List<?> values);
+
+        Builder add(String attributeName, Number increment);
+
+        Builder remove(String attributeName);
+
+        Builder expectedVersion(Number expectedVersion);
+
+        Builder condition(Expr condition);
+
+        UpdateExpr build();
+    }
+
+    private static class BuilderImpl implements Builder {
+        private final List<Action> actions = new ArrayList<>();
+        private final Set<String> attributeNames = new HashSet<>();
+        private Number expectedVersion;
+        private Expr condition;
+
+        BuilderImpl() {
+        }
+
+        /**
+         * @param attributeName Attribute to set
+         * @param value         New value (use {@link #remove(String)} to clear an attribute)
+         * @return Builder
+         */
+        @Override
+        public Builder set(final String attributeName, final Object value) {
+            return action(ActionType.SET, attributeName, value);
+        }
+
+        /**
+         * @param attributeName Attribute to set if the item does not have it yet
+         * @param value         Value
+         * @return Builder
+         */
+        @Override
+        public Builder setIfNotExists(final String attributeName, final Object value) {
+            return action(ActionType.SET_IF_NOT_EXISTS, attributeName, value);
+        }
+
+        /**
+         * @param attributeName List attribute, created when missing. Collections of strings or numbers are stored as sets: the
+         *                      values are added to the set
+         * @param values        Values appended to the list (at least one)
+         * @return Builder
+         */
+        @Override
+        public Builder appendToList(final String attributeName, final List<?> values) {
+            if (values != null && values.isEmpty()) {
+                throw new IllegalArgumentException("values of " + attributeName + " should not be empty");
+            }
+
+            return action(ActionType.APPEND_TO_LIST, attributeName, values);
+        }
+
+        /**
+         * @param attributeName Number attribute, starting from 0 when missing
+         * @param increment     Value added (negative to decrement)
+         * @return Builder
+         */
+        @Override
+        public Builder add(final String attributeName, final Number increment) {
+            return action(ActionType.ADD, attributeName, increment);
+        }
+
+        /**
+         * @param attributeName Attribute removed from the item
+         * @return Builder
+         */
+        @Override
+        public Builder remove(final String attributeName) {
+            if (attributeName == null || !attributeNames.add(attributeName)) {
+                throw new IllegalArgumentException("attributeName should not be null or updated twice: " + attributeName);
+            }
+
+            actions.add(new Action(ActionType.REMOVE, attributeName, null));
+            return this;
+        }
+
+        /**
+         * @param expectedVersion Version the item should have, the update fails with an
+         *                        {@link org.leo.aws.ddb.exceptions.OptimisticLockFailureException} otherwise
+         * @return Builder
+         */
+        @Override
+        public Builder expectedVersion(final Number expectedVersion) {
+            this.expectedVersion = expectedVersion;
+            return this;
+        }
+
+        /**
+         * @param condition Condition the item should satisfy (built with {@link Expr#builder()}), the update fails with an
+         *                  {@link org.leo.aws.ddb.exceptions.OptimisticLockFailureException} otherwise
+         * @return Builder
+         */
+        @Override
+        public Builder condition(final Expr condition) {
+            this.condition = condition;
+            return this;
+        }
+
+        @Override
+        public UpdateExpr build() {
+            if (actions.isEmpty()) {
+                throw new IllegalArgumentException("An update should have at least one action");
+            }
+
+            return new UpdateExpr(Collections.unmodifiableList(new ArrayList<>(actions)), expectedVersion, condition);
+        }
+
+        private Builder action(final ActionType type, final String attributeName, final Object value) {
+            if (attributeName == null || !attributeNames.add(attributeName)) {
+                throw new IllegalArgumentException("attributeName should not be null or updated twice: " + attributeName);
+            } else if (value == null) {
+                throw new IllegalArgumentException("value of " + attributeName + " should not be null");
+            }
+
+            actions.add(new Action(type, attributeName, value));
+            return this;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.leo.aws.ddb.data;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Outcome of the update of one record in a bulk update.
+ *
+ * @param <T> Entity type
+ */
+@SuppressWarnings({"unused"})
+public final class UpdateResult<T> {
+    private final PrimaryKey primaryKey;
+    private final Outcome outcome;
+    private final T item;
+    private final Throwable error;
+
+    private UpdateResult(final PrimaryKey primaryKey, final Outcome outcome, final T item, final Throwable error) {
+        this.primaryKey = primaryKey;
+        this.outcome = outcome;
+        this.item = item;
+        this.error = error;
+    }
+
+    /**
+     * @param primaryKey Key of the record
+     * @param item       Record after the update
+     * @return Result of a successful update
+     */
+    public static <T> UpdateResult<T> updated(final PrimaryKey primaryKey, final T item) {
+        return new UpdateResult<>(primaryKey, Outcome.UPDATED, item, null);
+    }
+
+    /**
+     * @param primaryKey Key of the record
+     * @param outcome    Reason the record was not updated
+     * @param error      Error returned by DynamoDB, null when there is none
+     * @return Result of an update that was not applied
+     */
+    public static <T> UpdateResult<T> failed(final PrimaryKey primaryKey, final Outcome outcome, @Nullable final Throwable error) {
+        return new UpdateResult<>(primaryKey, outcome, null, error);
+    }
+
+    public PrimaryKey getPrimaryKey() {
+        return primaryKey;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return Record after the update, null when it was not updated
+     */
+    @Nullable
+    public T getItem() {
+        return item;
+    }
+
+    /**
+     * @return Error returned by DynamoDB, null when the record was updated or not found
+     */
+    @Nullable
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isUpdated() {
+        return outcome == Outcome.UPDATED;
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateResult{" +
+                "primaryKey=" + primaryKey +
+                ", outcome=" + outcome +
+                ", item=" + item +
+                ", error=" + error +
+                '}';
+    }
+
+    public enum Outcome {
+        UPDATED,
+        /**
+         * The record does not exist
+         */
+        NOT_FOUND,
+        /**
+         * The record was changed by another writer (version attribute mismatch)
+         */
+        CONDITIONAL_CHECK_FAILED,
+        /**
+         * DynamoDB rejected the update because the table or partition throughput was exceeded (after the SDK retries)
+         */
+        THROTTLED,
+        FAILED
+    }
+}
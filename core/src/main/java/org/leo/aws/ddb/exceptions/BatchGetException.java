@@ -0,0 +1,25 @@
+package org.leo.aws.ddb.exceptions;
+
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+import java.util.Map;
+
+/**
+ * Thrown when a batch get still has unprocessed keys after all the retries.
+ */
+@SuppressWarnings({"unused", "RedundantSuppression"})
+public class BatchGetException extends DbException {
+    private final Map<String, KeysAndAttributes> unprocessedKeys;
+
+    public BatchGetException(final String message, final Map<String, KeysAndAttributes> unprocessedKeys) {
+        super(message);
+        this.unprocessedKeys = unprocessedKeys;
+    }
+
+    /**
+     * @return Keys that were not processed, by table name
+     */
+    public Map<String, KeysAndAttributes> getUnprocessedKeys() {
+        return unprocessedKeys;
+    }
+}
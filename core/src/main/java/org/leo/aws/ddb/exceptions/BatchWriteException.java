@@ -0,0 +1,26 @@
+package org.leo.aws.ddb.exceptions;
+
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thrown when a batch write still has unprocessed items after all the retries.
+ */
+@SuppressWarnings({"unused", "RedundantSuppression"})
+public class BatchWriteException extends DbException {
+    private final Map<String, List<WriteRequest>> unprocessedItems;
+
+    public BatchWriteException(final String message, final Map<String, List<WriteRequest>> unprocessedItems) {
+        super(message);
+        this.unprocessedItems = unprocessedItems;
+    }
+
+    /**
+     * @return Write requests that were not processed, by table name
+     */
+    public Map<String, List<WriteRequest>> getUnprocessedItems() {
+        return unprocessedItems;
+    }
+}
@@ -0,0 +1,84 @@
+package org.leo.aws.ddb.exceptions;
+
+import java.util.List;
+
+/**
+ * Thrown when DynamoDB cancels a transaction. None of its actions was applied.
+ */
+@SuppressWarnings({"unused", "RedundantSuppression"})
+public class TransactionFailedException extends DbException {
+    private final List<Failure> failures;
+
+    public TransactionFailedException(final String message, final List<Failure> failures, final Throwable cause) {
+        super(message, cause);
+        this.failures = failures;
+    }
+
+    /**
+     * @return Actions that caused the cancellation, empty when DynamoDB did not report the reasons
+     */
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    public static final class Failure {
+        private final int index;
+        private final String tableName;
+        private final Object target;
+        private final String code;
+        private final String message;
+
+        public Failure(final int index, final String tableName, final Object target, final String code, final String message) {
+            this.index = index;
+            this.tableName = tableName;
+            this.target = target;
+            this.code = code;
+            this.message = message;
+        }
+
+        /**
+         * @return Position of the action in the transaction
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        /**
+         * @return Entity of a put, primary key of the record for the other actions
+         */
+        public Object getTarget() {
+            return target;
+        }
+
+        /**
+         * @return Cancellation reason code (ConditionalCheckFailed, TransactionConflict, ItemCollectionSizeLimitExceeded,
+         * ProvisionedThroughputExceeded, ThrottlingError, ValidationError)
+         */
+        public String getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public boolean isConditionalCheckFailed() {
+            return "ConditionalCheckFailed".equals(code);
+        }
+
+        @Override
+        public String toString() {
+            return "Failure{" +
+                    "index=" + index +
+                    ", tableName='" + tableName + '\'' +
+                    ", target=" + target +
+                    ", code='" + code + '\'' +
+                    ", message='" + message + '\'' +
+                    '}';
+        }
+    }
+}
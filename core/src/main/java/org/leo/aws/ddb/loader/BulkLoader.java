@@ -0,0 +1,487 @@
+package org.leo.aws.ddb.loader;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.leo.aws.ddb.config.RepositorySettings;
+import org.leo.aws.ddb.exceptions.DbException;
+import org.leo.aws.ddb.repositories.DynamoDbRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the records of a NDJSON or CSV file into the table of a repository. The file is read through a fixed size buffer
+ * as the writes progress, so memory use does not depend on the size of the file. Records are written in chunks of 25
+ * (BatchWriteItem), with the retries and the rate limiting of the repository settings, plus an optional cap on the items
+ * written per second.
+ * <p>
+ * CSV files start with a header naming the entity properties of the columns; quoted fields may span several lines. A UTF-8
+ * byte order mark at the start of the file is ignored.
+ * <p>
+ * With a checkpoint file, the offset before which every record has been written is saved periodically; running the load
+ * again resumes from there, unless the size or the modification time of the file changed since. Records written after the
+ * last checkpoint are written again, which is harmless since the records are put (last writer wins).
+ *
+ * @param <T> Entity type
+ */
+@SuppressWarnings({"unused"})
+public final class BulkLoader<T> {
+    public static final int CHUNK_SIZE = 25;
+    public static final Duration DEFAULT_PROGRESS_INTERVAL = Duration.ofSeconds(1);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkLoader.class);
+
+    private final DynamoDbRepository<T> repository;
+    private final Class<T> entityType;
+    private final Path file;
+    private final RecordFormat format;
+    private final Path checkpointFile;
+    private final double maxItemsPerSecond;
+    private final int concurrency;
+    private final Duration progressInterval;
+    private final ObjectMapper objectMapper;
+
+    private BulkLoader(final DynamoDbRepository<T> repository,
+                       final Class<T> entityType,
+                       final Path file,
+                       final RecordFormat format,
+                       final Path checkpointFile,
+                       final double maxItemsPerSecond,
+                       final int concurrency,
+                       final Duration progressInterval,
+                       final ObjectMapper objectMapper) {
+
+        this.repository = repository;
+        this.entityType = entityType;
+        this.file = file;
+        this.format = format;
+        this.checkpointFile = checkpointFile;
+        this.maxItemsPerSecond = maxItemsPerSecond;
+        this.concurrency = concurrency;
+        this.progressInterval = progressInterval;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param repository Repository of the table loaded
+     * @param entityType Entity type of the repository, records are converted to it before being mapped to items
+     * @return Builder
+     */
+    public static <T> Builder<T> builder(final DynamoDbRepository<T> repository, final Class<T> entityType) {
+        return new BuilderImpl<>(repository, entityType);
+    }
+
+    /**
+     * Starts the load when subscribed. Cancelling the subscription stops the load, the checkpoint is kept.
+     *
+     * @return Progress, emitted at most once per progress interval and once the file has been written (complete)
+     */
+    public Flux<LoadProgress> load() {
+        return Flux.defer(() -> {
+            final Checkpoint checkpoint = Checkpoint.read(checkpointFile);
+            final long fileSize = getFileSize();
+            final long fileLastModified = getFileLastModified();
+            final List<String> header;
+            final long startOffset;
+
+            if (checkpoint.getOffset() > fileSize) {
+                return Flux.error(new DbException(MessageFormat.format("Checkpoint [{0}] is beyond the end of [{1}], was the file replaced?",
+                        checkpointFile, file)));
+            } else if (!checkpoint.matches(fileSize, fileLastModified)) {
+                return Flux.error(new DbException(MessageFormat.format("Checkpoint [{0}] was saved for another version of [{1}] (size or modification time changed)",
+                        checkpointFile, file)));
+            }
+
+            if (format == RecordFormat.CSV) {
+                try (LineReader headerReader = new LineReader(file, 0)) {
+                    final String headerLine = RecordParser.readRecord(format, headerReader);
+
+                    header = headerLine != null ? RecordParser.parseCsvLine(headerLine) : Collections.emptyList();
+                    startOffset = Math.max(checkpoint.getOffset(), headerReader.getPosition());
+                } catch (final IOException e) {
+                    return Flux.error(new DbException(MessageFormat.format("Cannot read the header of [{0}]", file), e));
+                }
+            } else {
+                header = null;
+                startOffset = checkpoint.getOffset();
+            }
+
+            final RecordParser<T> parser = new RecordParser<>(format, entityType, objectMapper, header);
+            final ProgressTracker tracker = new ProgressTracker(startOffset, checkpoint.getRecords(), fileSize, fileLastModified);
+            final Pacer pacer = new Pacer(maxItemsPerSecond);
+
+            if (checkpoint.getOffset() > 0) {
+                LOGGER.info(MessageFormat.format("Resuming the load of [{0}] at offset [{1}] ([{2}] records already written)",
+                        file, startOffset, checkpoint.getRecords()));
+            }
+
+            return Flux.using(() -> new LineReader(file, startOffset),
+                            reader -> Flux.<Chunk<T>>generate(sink -> readChunk(reader, parser, tracker, sink)),
+                            BulkLoader::close)
+                    .delayUntil(pacer::pace)
+                    .flatMap(chunk -> write(chunk).then(Mono.fromCallable(() -> tracker.written(chunk))), concurrency)
+                    .concatWith(Mono.fromCallable(tracker::complete))
+                    .doOnError(e -> tracker.interrupted())
+                    .doOnCancel(tracker::interrupted)
+                    .doOnNext(progress -> LOGGER.debug(MessageFormat.format("Load of [{0}]: {1}", file, progress)));
+        });
+    }
+
+    private long getFileSize() {
+        try {
+            return Files.size(file);
+        } catch (final IOException e) {
+            throw new DbException(MessageFormat.format("Cannot read [{0}]", file), e);
+        }
+    }
+
+    private long getFileLastModified() {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (final IOException e) {
+            throw new DbException(MessageFormat.format("Cannot read [{0}]", file), e);
+        }
+    }
+
+    private void readChunk(final LineReader reader,
+                           final RecordParser<T> parser,
+                           final ProgressTracker tracker,
+                           final SynchronousSink<Chunk<T>> sink) {
+
+        final List<T> items = new ArrayList<>(CHUNK_SIZE);
+        final long startOffset = reader.getPosition();
+
+        try {
+            while (items.size() < CHUNK_SIZE) {
+                final long lineOffset = reader.getPosition();
+                final String line = RecordParser.readRecord(format, reader);
+
+                if (line == null) {
+                    break;
+                }
+
+                final T item = parser.parse(line, lineOffset);
+
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+        } catch (final IOException e) {
+            sink.error(new DbException(MessageFormat.format("Cannot read [{0}]", file), e));
+            return;
+        } catch (final RuntimeException e) {
+            sink.error(e);
+            return;
+        }
+
+        if (reader.getPosition() == startOffset) {
+            sink.complete();
+        } else {
+            sink.next(new Chunk<>(tracker.nextSequence(), items, reader.getPosition()));
+        }
+    }
+
+    private Mono<Void> write(final Chunk<T> chunk) {
+        return chunk.items.isEmpty() ? Mono.empty() : repository.putItem(chunk.items).then();
+    }
+
+    private static void close(final LineReader reader) {
+        try {
+            reader.close();
+        } catch (final IOException e) {
+            LOGGER.warn("Cannot close the file", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BulkLoader{" +
+                "entityType=" + entityType +
+                ", file=" + file +
+                ", format=" + format +
+                ", checkpointFile=" + checkpointFile +
+                ", maxItemsPerSecond=" + maxItemsPerSecond +
+                ", concurrency=" + concurrency +
+                ", progressInterval=" + progressInterval +
+                '}';
+    }
+
+    private static final class Chunk<T> {
+        private final long sequence;
+        private final List<T> items;
+        private final long endOffset;
+
+        private Chunk(final long sequence, final List<T> items, final long endOffset) {
+            this.sequence = sequence;
+            this.items = items;
+            this.endOffset = endOffset;
+        }
+    }
+
+    /**
+     * Chunks complete out of order; the offset only moves past a chunk once all the chunks before it are written.
+     */
+    private final class ProgressTracker {
+        private final Map<Long, long[]> written = new HashMap<>();
+        private final long recordsResumed;
+        private final long fileSize;
+        private final long fileLastModified;
+        private final long start = System.nanoTime();
+        private long sequence;
+        private long nextSequence;
+        private long offset;
+        private long recordsWritten;
+        private long lastReport = start;
+
+        private ProgressTracker(final long offset, final long recordsResumed, final long fileSize, final long fileLastModified) {
+            this.offset = offset;
+            this.recordsResumed = recordsResumed;
+            this.fileSize = fileSize;
+            this.fileLastModified = fileLastModified;
+        }
+
+        private synchronized long nextSequence() {
+            return sequence++;
+        }
+
+        /**
+         * @return Progress when it is time to report it, null otherwise
+         */
+        private synchronized LoadProgress written(final Chunk<T> chunk) {
+            final long now = System.nanoTime();
+            long[] next;
+
+            written.put(chunk.sequence, new long[]{chunk.endOffset, chunk.items.size()});
+
+            while ((next = written.remove(nextSequence)) != null) {
+                offset = next[0];
+                recordsWritten += next[1];
+                nextSequence++;
+            }
+
+            if (now - lastReport < progressInterval.toNanos()) {
+                return null;
+            }
+
+            lastReport = now;
+            saveCheckpoint();
+
+            return progress(now, false);
+        }
+
+        private synchronized LoadProgress complete() {
+            final LoadProgress progress;
+
+            saveCheckpoint();
+            progress = progress(System.nanoTime(), true);
+            LOGGER.info(MessageFormat.format("Loaded [{0}] records from [{1}] in [{2}] ({3} items/s)", recordsWritten, file,
+                    progress.getElapsed(), String.format("%.1f", progress.getItemsPerSecond())));
+
+            return progress;
+        }
+
+        /**
+         * Saves the progress made so far when the load fails or is cancelled.
+         */
+        private synchronized void interrupted() {
+            try {
+                saveCheckpoint();
+            } catch (final DbException e) {
+                LOGGER.warn(MessageFormat.format("Cannot save the progress of the load of [{0}]", file), e);
+            }
+        }
+
+        private void saveCheckpoint() {
+            if (checkpointFile != null) {
+                new Checkpoint(offset, recordsResumed + recordsWritten, fileSize, fileLastModified).write(checkpointFile);
+            }
+        }
+
+        private LoadProgress progress(final long now, final boolean complete) {
+            return new LoadProgress(recordsWritten, recordsResumed, offset, fileSize, Duration.ofNanos(now - start), complete);
+        }
+    }
+
+    /**
+     * Delays the chunks so that at most {@code maxItemsPerSecond} items are sent per second on average.
+     */
+    private static final class Pacer {
+        private final double maxItemsPerSecond;
+        private long start;
+        private long items;
+
+        private Pacer(final double maxItemsPerSecond) {
+            this.maxItemsPerSecond = maxItemsPerSecond;
+        }
+
+        private Mono<Void> pace(final Chunk<?> chunk) {
+            if (maxItemsPerSecond <= 0) {
+                return Mono.empty();
+            }
+
+            final long now = System.nanoTime();
+
+            if (items == 0) {
+                start = now;
+            }
+
+            final long due = start + (long) (items * TimeUnit.SECONDS.toNanos(1) / maxItemsPerSecond);
+
+            items += chunk.items.size();
+
+            return due > now ? Mono.delay(Duration.ofNanos(due - now)).then() : Mono.empty();
+        }
+    }
+
+    public interface Builder<T> {
+
+        Builder<T> file(Path file);
+
+        Builder<T> format(RecordFormat format);
+
+        Builder<T> checkpointFile(Path checkpointFile);
+
+        Builder<T> maxItemsPerSecond(double maxItemsPerSecond);
+
+        Builder<T> concurrency(int concurrency);
+
+        Builder<T> progressInterval(Duration progressInterval);
+
+        Builder<T> objectMapper(ObjectMapper objectMapper);
+
+        BulkLoader<T> build();
+    }
+
+    private static class BuilderImpl<T> implements Builder<T> {
+        private final DynamoDbRepository<T> repository;
+        private final Class<T> entityType;
+        private Path file;
+        private RecordFormat format;
+        private Path checkpointFile;
+        private double maxItemsPerSecond;
+        private int concurrency = RepositorySettings.DEFAULT_BATCH_WRITE_CONCURRENCY;
+        private Duration progressInterval = DEFAULT_PROGRESS_INTERVAL;
+        private ObjectMapper objectMapper;
+
+        BuilderImpl(final DynamoDbRepository<T> repository, final Class<T> entityType) {
+            if (repository == null || entityType == null) {
+                throw new IllegalArgumentException("repository and entityType should not be null");
+            }
+
+            this.repository = repository;
+            this.entityType = entityType;
+        }
+
+        /**
+         * @param file File loaded
+         * @return Builder
+         */
+        @Override
+        public Builder<T> file(final Path file) {
+            this.file = file;
+            return this;
+        }
+
+        /**
+         * @param format Format of the file (CSV for a .csv file, NDJSON otherwise by default)
+         * @return Builder
+         */
+        @Override
+        public Builder<T> format(final RecordFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        /**
+         * @param checkpointFile File where the progress is saved, read to resume an interrupted load (none by default)
+         * @return Builder
+         */
+        @Override
+        public Builder<T> checkpointFile(final Path checkpointFile) {
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
+        /**
+         * @param maxItemsPerSecond Maximum number of items written per second, 0 for no limit besides the throughput limiter
+         *                          of the settings (default)
+         * @return Builder
+         */
+        @Override
+        public Builder<T> maxItemsPerSecond(final double maxItemsPerSecond) {
+            if (maxItemsPerSecond < 0) {
+                throw new IllegalArgumentException("maxItemsPerSecond should not be negative");
+            }
+
+            this.maxItemsPerSecond = maxItemsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param concurrency Maximum number of BatchWriteItem calls in flight
+         * @return Builder
+         */
+        @Override
+        public Builder<T> concurrency(final int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("concurrency should be greater than 0");
+            }
+
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * @param progressInterval Minimum time between two progress reports (and checkpoints)
+         * @return Builder
+         */
+        @Override
+        public Builder<T> progressInterval(final Duration progressInterval) {
+            if (progressInterval == null || progressInterval.isNegative()) {
+                throw new IllegalArgumentException("progressInterval should not be negative");
+            }
+
+            this.progressInterval = progressInterval;
+            return this;
+        }
+
+        /**
+         * @param objectMapper Mapper converting the records to entities (by default a mapper ignoring unknown properties)
+         * @return Builder
+         */
+        @Override
+        public Builder<T> objectMapper(final ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            return this;
+        }
+
+        @Override
+        public BulkLoader<T> build() {
+            if (file == null) {
+                throw new IllegalArgumentException("file should not be null");
+            }
+
+            final RecordFormat recordFormat = format != null ? format :
+                    file.getFileName().toString().toLowerCase().endsWith(".csv") ? RecordFormat.CSV : RecordFormat.NDJSON;
+            final ObjectMapper mapper = objectMapper != null ? objectMapper :
+                    new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+            return new BulkLoader<>(repository, entityType, file, recordFormat, checkpointFile, maxItemsPerSecond, concurrency,
+                    progressInterval, mapper);
+        }
+    }
+}
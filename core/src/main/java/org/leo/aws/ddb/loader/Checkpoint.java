@@ -0,0 +1,95 @@
+package org.leo.aws.ddb.loader;
+
+import org.leo.aws.ddb.exceptions.DbException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.Properties;
+
+/**
+ * Position of a load: every record before the offset has been written. Saved to a properties file, replaced atomically so
+ * an interrupted load never leaves a partial checkpoint, along with the size and modification time of the file loaded so
+ * that a checkpoint is not applied to another file.
+ */
+final class Checkpoint {
+    private static final String OFFSET = "offset";
+    private static final String RECORDS = "records";
+    private static final String FILE_SIZE = "fileSize";
+    private static final String FILE_LAST_MODIFIED = "fileLastModified";
+
+    private final long offset;
+    private final long records;
+    private final long fileSize;
+    private final long fileLastModified;
+
+    /**
+     * @param fileSize         Size of the file loaded
+     * @param fileLastModified Modification time of the file loaded, in milliseconds
+     */
+    Checkpoint(final long offset, final long records, final long fileSize, final long fileLastModified) {
+        this.offset = offset;
+        this.records = records;
+        this.fileSize = fileSize;
+        this.fileLastModified = fileLastModified;
+    }
+
+    /**
+     * @return Checkpoint saved in the file, the start of the file when there is none
+     */
+    static Checkpoint read(final Path checkpointFile) {
+        if (checkpointFile == null || !Files.exists(checkpointFile)) {
+            return new Checkpoint(0, 0, -1, -1);
+        }
+
+        final Properties properties = new Properties();
+
+        try (InputStream in = Files.newInputStream(checkpointFile)) {
+            properties.load(in);
+
+            return new Checkpoint(Long.parseLong(properties.getProperty(OFFSET, "0")), Long.parseLong(properties.getProperty(RECORDS, "0")),
+                    Long.parseLong(properties.getProperty(FILE_SIZE, "-1")), Long.parseLong(properties.getProperty(FILE_LAST_MODIFIED, "-1")));
+        } catch (final IOException | NumberFormatException e) {
+            throw new DbException(MessageFormat.format("Cannot read the checkpoint [{0}]", checkpointFile), e);
+        }
+    }
+
+    void write(final Path checkpointFile) {
+        final Properties properties = new Properties();
+        final Path tmpFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+
+        properties.setProperty(OFFSET, String.valueOf(offset));
+        properties.setProperty(RECORDS, String.valueOf(records));
+        properties.setProperty(FILE_SIZE, String.valueOf(fileSize));
+        properties.setProperty(FILE_LAST_MODIFIED, String.valueOf(fileLastModified));
+
+        try {
+            try (OutputStream out = Files.newOutputStream(tmpFile)) {
+                properties.store(out, null);
+            }
+
+            Files.move(tmpFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw new DbException(MessageFormat.format("Cannot write the checkpoint [{0}]", checkpointFile), e);
+        }
+    }
+
+    /**
+     * @return true if the checkpoint is at the start of the file or was saved for a file of this size and modification time
+     */
+    boolean matches(final long fileSize, final long fileLastModified) {
+        return offset == 0 || (this.fileSize == fileSize && this.fileLastModified == fileLastModified);
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    long getRecords() {
+        return records;
+    }
+}
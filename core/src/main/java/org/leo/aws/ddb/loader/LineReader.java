@@ -0,0 +1,115 @@
+package org.leo.aws.ddb.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines from a file channel through a fixed size buffer, keeping track of the byte offset of the end of every
+ * line so that a load can resume right after the last line written. A UTF-8 byte order mark at the start of the file is
+ * skipped.
+ */
+final class LineReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private byte[] line = new byte[1024];
+    private int lineLength;
+    private long position;
+    private boolean endOfFile;
+    private boolean startOfFile;
+
+    /**
+     * @param file   File
+     * @param offset Byte offset of the first line to read
+     */
+    LineReader(final Path file, final long offset) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.channel.position(offset);
+        this.position = offset;
+        this.startOfFile = offset == 0;
+        this.buffer.flip();
+    }
+
+    /**
+     * @return Next line without its terminator (\n or \r\n), null at the end of the file
+     */
+    String readLine() throws IOException {
+        lineLength = 0;
+
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                if (endOfFile || !fill()) {
+                    return lineLength > 0 ? decode() : null;
+                }
+            }
+
+            final byte[] bytes = buffer.array();
+            final int start = buffer.position();
+            final int end = buffer.limit();
+            int i = start;
+
+            while (i < end && bytes[i] != '\n') {
+                i++;
+            }
+
+            append(bytes, start, i - start);
+
+            if (i < end) {
+                buffer.position(i + 1);
+                position += i + 1 - start;
+                return decode();
+            } else {
+                buffer.position(end);
+                position += end - start;
+            }
+        }
+    }
+
+    /**
+     * @return Byte offset right after the last line read
+     */
+    long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean fill() throws IOException {
+        buffer.clear();
+
+        final int read = channel.read(buffer);
+
+        buffer.flip();
+        endOfFile = read < 0;
+
+        return read > 0;
+    }
+
+    private void append(final byte[] bytes, final int offset, final int length) {
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+
+        System.arraycopy(bytes, offset, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private String decode() {
+        final int start = startOfFile && lineLength >= 3 && line[0] == (byte) 0xEF && line[1] == (byte) 0xBB && line[2] == (byte) 0xBF ? 3 : 0;
+        final int length = lineLength > start && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+
+        startOfFile = false;
+
+        return new String(line, start, length - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,90 @@
+package org.leo.aws.ddb.loader;
+
+import java.time.Duration;
+
+/**
+ * Progress of a {@link BulkLoader} load.
+ */
+@SuppressWarnings({"unused"})
+public final class LoadProgress {
+    private final long recordsWritten;
+    private final long recordsResumed;
+    private final long offset;
+    private final long fileSize;
+    private final Duration elapsed;
+    private final boolean complete;
+
+    LoadProgress(final long recordsWritten,
+                 final long recordsResumed,
+                 final long offset,
+                 final long fileSize,
+                 final Duration elapsed,
+                 final boolean complete) {
+
+        this.recordsWritten = recordsWritten;
+        this.recordsResumed = recordsResumed;
+        this.offset = offset;
+        this.fileSize = fileSize;
+        this.elapsed = elapsed;
+        this.complete = complete;
+    }
+
+    /**
+     * @return Records written by this load
+     */
+    public long getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    /**
+     * @return Records written by the previous loads, read from the checkpoint
+     */
+    public long getRecordsResumed() {
+        return recordsResumed;
+    }
+
+    /**
+     * @return Byte offset in the file before which every record has been written
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * @return Duration of this load
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return Records written per second by this load
+     */
+    public double getItemsPerSecond() {
+        return elapsed.isZero() ? 0 : recordsWritten * 1_000_000_000d / elapsed.toNanos();
+    }
+
+    /**
+     * @return true once the whole file has been written
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadProgress{" +
+                "recordsWritten=" + recordsWritten +
+                ", recordsResumed=" + recordsResumed +
+                ", offset=" + offset +
+                ", fileSize=" + fileSize +
+                ", elapsed=" + elapsed +
+                ", itemsPerSecond=" + String.format("%.1f", getItemsPerSecond()) +
+                ", complete=" + complete +
+                '}';
+    }
+}
@@ -0,0 +1,17 @@
+package org.leo.aws.ddb.loader;
+
+/**
+ * Format of the files read by the {@link BulkLoader}. Property names (JSON fields, CSV header) are the field names of the
+ * entity, values are converted with Jackson.
+ */
+public enum RecordFormat {
+    /**
+     * One JSON object per line, blank lines are skipped
+     */
+    NDJSON,
+    /**
+     * Comma separated values with a header line. Fields can be quoted ("" for a quote inside a quoted field) but cannot
+     * span several lines. Empty fields are left unset
+     */
+    CSV
+}
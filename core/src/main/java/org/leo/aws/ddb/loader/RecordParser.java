@@ -0,0 +1,149 @@
+package org.leo.aws.ddb.loader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.leo.aws.ddb.exceptions.DbException;
+import org.leo.aws.ddb.utils.exceptions.Issue;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts the lines of a file to entities.
+ *
+ * @param <T> Entity type
+ */
+final class RecordParser<T> {
+    private final RecordFormat format;
+    private final Class<T> entityType;
+    private final ObjectMapper objectMapper;
+    private final List<String> header;
+
+    /**
+     * @param header Column names, null for {@link RecordFormat#NDJSON}
+     */
+    RecordParser(final RecordFormat format, final Class<T> entityType, final ObjectMapper objectMapper, final List<String> header) {
+        this.format = format;
+        this.entityType = entityType;
+        this.objectMapper = objectMapper;
+        this.header = header;
+    }
+
+    /**
+     * @param line   Line of the file
+     * @param offset Byte offset of the line, reported in the errors
+     * @return Entity, null for a blank line
+     */
+    T parse(final String line, final long offset) {
+        if (line.trim().isEmpty()) {
+            return null;
+        }
+
+        try {
+            if (format == RecordFormat.NDJSON) {
+                return objectMapper.readValue(line, entityType);
+            } else {
+                final List<String> values = parseCsvLine(line);
+                final Map<String, String> properties = new HashMap<>();
+
+                if (values.size() > header.size()) {
+                    throw new DbException(MessageFormat.format("Line at offset [{0}] has [{1}] fields, the header has [{2}]",
+                            offset, values.size(), header.size()));
+                }
+
+                for (int i = 0; i < values.size(); i++) {
+                    if (!values.get(i).isEmpty()) {
+                        properties.put(header.get(i), values.get(i));
+                    }
+                }
+
+                return objectMapper.convertValue(properties, entityType);
+            }
+        } catch (final DbException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new DbException(MessageFormat.format("{0} - line at offset [{1}]", Issue.INVALID_JSON.name(), offset), e);
+        }
+    }
+
+    /**
+     * Reads the next record: a line for {@link RecordFormat#NDJSON}, and for {@link RecordFormat#CSV} as many lines as a quoted
+     * field spans (the line breaks inside the field are read as \n).
+     *
+     * @return Record, null at the end of the file
+     */
+    static String readRecord(final RecordFormat format, final LineReader reader) throws IOException {
+        final String line = reader.readLine();
+
+        if (format != RecordFormat.CSV || line == null || !hasUnterminatedQuote(line)) {
+            return line;
+        }
+
+        final StringBuilder record = new StringBuilder(line);
+        String nextLine;
+
+        while ((nextLine = reader.readLine()) != null) {
+            record.append('\n').append(nextLine);
+
+            if (!hasUnterminatedQuote(record)) {
+                break;
+            }
+        }
+
+        return record.toString();
+    }
+
+    /**
+     * @return true if the text ends inside a quoted field (escaped quotes come in pairs and keep the parity)
+     */
+    private static boolean hasUnterminatedQuote(final CharSequence text) {
+        boolean quoted = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quoted = !quoted;
+            }
+        }
+
+        return quoted;
+    }
+
+    static List<String> parseCsvLine(final String line) {
+        final List<String> values = new ArrayList<>();
+        final StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new DbException("Unterminated quoted field: " + line);
+        }
+
+        values.add(value.toString());
+
+        return values;
+    }
+}
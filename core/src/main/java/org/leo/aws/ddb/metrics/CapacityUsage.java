@@ -0,0 +1,59 @@
+package org.leo.aws.ddb.metrics;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Capacity units consumed on a table or one of its indexes, by operation.
+ */
+@SuppressWarnings({"unused"})
+public final class CapacityUsage {
+    private final String tableName;
+    private final String indexName;
+    private final Map<RepositoryOperation, Double> capacityUnits;
+
+    CapacityUsage(final String tableName, @Nullable final String indexName, final Map<RepositoryOperation, Double> capacityUnits) {
+        this.tableName = tableName;
+        this.indexName = indexName;
+        this.capacityUnits = Collections.unmodifiableMap(new EnumMap<>(capacityUnits));
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return Index name, null for the table itself
+     */
+    @Nullable
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * @return Capacity units consumed, by operation
+     */
+    public Map<RepositoryOperation, Double> getCapacityUnits() {
+        return capacityUnits;
+    }
+
+    public double getReadCapacityUnits() {
+        return capacityUnits.entrySet().stream().filter(a -> a.getKey().isRead()).mapToDouble(Map.Entry::getValue).sum();
+    }
+
+    public double getWriteCapacityUnits() {
+        return capacityUnits.entrySet().stream().filter(a -> !a.getKey().isRead()).mapToDouble(Map.Entry::getValue).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CapacityUsage{" +
+                "tableName='" + tableName + '\'' +
+                ", indexName='" + indexName + '\'' +
+                ", capacityUnits=" + capacityUnits +
+                '}';
+    }
+}
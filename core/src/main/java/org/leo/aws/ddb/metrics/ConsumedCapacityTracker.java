@@ -0,0 +1,82 @@
+package org.leo.aws.ddb.metrics;
+
+import org.leo.aws.ddb.utils.Tuple;
+import org.leo.aws.ddb.utils.Tuples;
+import org.springframework.lang.Nullable;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Accumulates the capacity units consumed by the repositories, per table and index. Setting a tracker in the
+ * {@link org.leo.aws.ddb.config.RepositorySettings} makes every request ask DynamoDB for the consumed capacity
+ * ({@code ReturnConsumedCapacity.INDEXES}).
+ */
+@SuppressWarnings({"unused"})
+public final class ConsumedCapacityTracker {
+    private final Map<Tuple<String, String>, DoubleAdder[]> usage = new ConcurrentHashMap<>();
+
+    /**
+     * @param operation     Operation that consumed the capacity
+     * @param tableName     Table name
+     * @param indexName     Index name, null for the table
+     * @param capacityUnits Capacity units consumed
+     */
+    public void record(final RepositoryOperation operation, final String tableName, @Nullable final String indexName, final double capacityUnits) {
+        usage.computeIfAbsent(Tuples.of(tableName, indexName), key -> newAdders())[operation.ordinal()].add(capacityUnits);
+    }
+
+    /**
+     * @return Capacity consumed since the start (or the last reset), one entry per table and index used
+     */
+    public List<CapacityUsage> getSnapshot() {
+        return usage.entrySet().stream()
+                .map(a -> toCapacityUsage(a.getKey(), a.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param tableName Table name
+     * @param indexName Index name, null for the table
+     * @return Capacity consumed on the table/index, null if none was recorded
+     */
+    @Nullable
+    public CapacityUsage getUsage(final String tableName, @Nullable final String indexName) {
+        final Tuple<String, String> key = Tuples.of(tableName, indexName);
+        final DoubleAdder[] adders = usage.get(key);
+
+        return adders != null ? toCapacityUsage(key, adders) : null;
+    }
+
+    public void reset() {
+        usage.clear();
+    }
+
+    private static DoubleAdder[] newAdders() {
+        final DoubleAdder[] adders = new DoubleAdder[RepositoryOperation.values().length];
+
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new DoubleAdder();
+        }
+
+        return adders;
+    }
+
+    private static CapacityUsage toCapacityUsage(final Tuple<String, String> key, final DoubleAdder[] adders) {
+        final Map<RepositoryOperation, Double> capacityUnits = new EnumMap<>(RepositoryOperation.class);
+
+        for (final RepositoryOperation operation : RepositoryOperation.values()) {
+            final double units = adders[operation.ordinal()].sum();
+
+            if (units > 0) {
+                capacityUnits.put(operation, units);
+            }
+        }
+
+        return new CapacityUsage(key._1(), key._2(), capacityUnits);
+    }
+}
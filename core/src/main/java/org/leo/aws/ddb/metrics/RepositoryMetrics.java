@@ -0,0 +1,89 @@
+package org.leo.aws.ddb.metrics;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Receives the measurements of the repository operations. All the methods do nothing by default, implement the ones needed.
+ * Implementations are called on the SDK and mapping threads, so they should be thread safe and cheap.
+ */
+@SuppressWarnings({"unused"})
+public interface RepositoryMetrics {
+    RepositoryMetrics NOOP = new RepositoryMetrics() {
+    };
+
+    /**
+     * @return false to skip the measurements that are only useful to a metrics implementation (e.g. mapping time)
+     */
+    default boolean isEnabled() {
+        return this != NOOP;
+    }
+
+    /**
+     * Called once per DynamoDB call, or once per stream for paginated calls (query, scan).
+     *
+     * @param operation      Operation
+     * @param tableName      Table name
+     * @param indexName      Index name, null for the table
+     * @param durationNanos  Time from the subscription to the response (or the end of the stream)
+     * @param error          Error, null when the operation succeeded
+     */
+    default void recordOperation(final RepositoryOperation operation,
+                                 final String tableName,
+                                 @Nullable final String indexName,
+                                 final long durationNanos,
+                                 @Nullable final Throwable error) {
+    }
+
+    /**
+     * @param operation Operation (query or scan)
+     * @param tableName Table name
+     * @param indexName Index name, null for the table
+     * @param itemCount Number of items in the page
+     */
+    default void recordPage(final RepositoryOperation operation,
+                            final String tableName,
+                            @Nullable final String indexName,
+                            final int itemCount) {
+    }
+
+    /**
+     * @param tableName     Table name
+     * @param durationNanos Time spent mapping one item to an entity
+     */
+    default void recordMapping(final String tableName, final long durationNanos) {
+    }
+
+    /**
+     * Called before each retry of unprocessed keys or items.
+     *
+     * @param operation Operation (batch get or batch write)
+     * @param tableName Table name
+     * @param attempt   Number of attempts made so far
+     */
+    default void recordRetry(final RepositoryOperation operation, final String tableName, final int attempt) {
+    }
+
+    /**
+     * Called before each retry of an update that failed because the record was changed by another writer (optimistic lock
+     * conflict).
+     *
+     * @param tableName Table name
+     * @param attempt   Number of attempts made so far
+     */
+    default void recordConflict(final String tableName, final int attempt) {
+    }
+
+    /**
+     * Called for every response when a {@link ConsumedCapacityTracker} is configured.
+     *
+     * @param operation     Operation (read or write capacity, see {@link RepositoryOperation#isRead()})
+     * @param tableName     Table name
+     * @param indexName     Index name, null for the table
+     * @param capacityUnits Capacity units consumed
+     */
+    default void recordConsumedCapacity(final RepositoryOperation operation,
+                                        final String tableName,
+                                        @Nullable final String indexName,
+                                        final double capacityUnits) {
+    }
+}
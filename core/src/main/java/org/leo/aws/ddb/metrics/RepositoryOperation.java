@@ -0,0 +1,39 @@
+package org.leo.aws.ddb.metrics;
+
+/**
+ * DynamoDB operations issued by the repositories, as reported to {@link RepositoryMetrics}.
+ */
+public enum RepositoryOperation {
+    GET_ITEM("getItem", true),
+    QUERY("query", true),
+    SCAN("scan", true),
+    BATCH_GET("batchGet", true),
+    BATCH_WRITE("batchWrite", false),
+    UPDATE("update", false),
+    PUT("put", false),
+    DELETE("delete", false),
+    TRANSACT_GET("transactGet", true),
+    TRANSACT_WRITE("transactWrite", false);
+
+    private final String tagValue;
+    private final boolean read;
+
+    RepositoryOperation(final String tagValue, final boolean read) {
+        this.tagValue = tagValue;
+        this.read = read;
+    }
+
+    /**
+     * @return Name used to tag the metrics
+     */
+    public String getTagValue() {
+        return tagValue;
+    }
+
+    /**
+     * @return true if the operation consumes read capacity, false for write capacity
+     */
+    public boolean isRead() {
+        return read;
+    }
+}
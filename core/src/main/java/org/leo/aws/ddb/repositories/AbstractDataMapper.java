@@ -10,12 +10,31 @@ import java.util.Map;
 
 @SuppressWarnings({"unused", "WeakerAccess"})
 abstract class AbstractDataMapper<T> implements DataMapper<T> {
+    private volatile AttributeMapper<T> attributeMapper;
+
     @SuppressWarnings("unchecked")
     @Override
     public Class<T> getParameterType() {
         return (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
     }
 
+    /**
+     * The attribute mapping does not change once the entity is registered, so it is looked up only once per mapper.
+     *
+     * @return Attribute mapping registered for the entity class
+     */
+    @Override
+    public AttributeMapper<T> getAttributeMapper() {
+        AttributeMapper<T> mapper = attributeMapper;
+
+        if (mapper == null) {
+            mapper = DataMapper.super.getAttributeMapper();
+            attributeMapper = mapper;
+        }
+
+        return mapper;
+    }
+
     /**
      *
      * @return Hash key of the DDB table
@@ -33,9 +52,8 @@ abstract class AbstractDataMapper<T> implements DataMapper<T> {
         return getPKKey(keyType);
     }
 
-    @SuppressWarnings("unchecked")
     private String getPKKey(final KeyType keyType) {
-        final AttributeMapper<T> fieldMapping = (AttributeMapper<T>) MapperUtils.INSTANCE.getAttributeMappingMap().get(getParameterType().getName());
+        final AttributeMapper<T> fieldMapping = getAttributeMapper();
         final Map<KeyType, Tuple<String, Field>> pkMapping = fieldMapping.getPrimaryKeyMapping();
 
         return pkMapping.get(keyType)._2().getName();
@@ -22,6 +22,7 @@ final class AttributeMapper<T> {
     private final Tuple<String, Field> dateUpdatedField;
     private final Tuple<String, Field> dateCreatedField;
     private final Tuple<Field, DbAttribute> versionAttributeField;
+    private final EntityCodec<T> entityCodec;
 
     private AttributeMapper(final Class<T> mappedClass,
                             final Map<String, Tuple<Field, DbAttribute>> mappedFields,
@@ -31,7 +32,8 @@ final class AttributeMapper<T> {
                             final Tuple<String, Field> dateUpdatedField,
                             final Tuple<String, Field> dateCreatedField,
                             final Map<String, GSI> globalSecondaryIndexMap,
-                            final Tuple<Field, DbAttribute> versionAttributeField) {
+                            final Tuple<Field, DbAttribute> versionAttributeField,
+                            final EntityCodec<T> entityCodec) {
 
         this.mappedClass = mappedClass;
         this.mappedFields = mappedFields;
@@ -42,6 +44,7 @@ final class AttributeMapper<T> {
         this.dateCreatedField = dateCreatedField;
         this.globalSecondaryIndexMap = globalSecondaryIndexMap;
         this.versionAttributeField = versionAttributeField;
+        this.entityCodec = entityCodec;
     }
 
     public Class<T> getMappedClass() {
@@ -81,6 +84,10 @@ final class AttributeMapper<T> {
         return versionAttributeField;
     }
 
+    public EntityCodec<T> getEntityCodec() {
+        return entityCodec;
+    }
+
     public static<T> Builder<T> builder() {
         return new AttributeMapperBuilder<>();
     }
@@ -98,6 +105,7 @@ final class AttributeMapper<T> {
         Builder<T> dateCreatedField(Tuple<String, Field> dateCreatedField);
         Builder<T> globalSecondaryIndexMap(Map<String, GSI> globalSecondaryIndexMap);
         Builder<T> versionAttributeField(Tuple<Field, DbAttribute> versionAttributeField);
+        Builder<T> entityCodec(EntityCodec<T> entityCodec);
 
         AttributeMapper<T> build();
     }
@@ -112,6 +120,7 @@ final class AttributeMapper<T> {
         private Tuple<String, Field> dateCreatedField;
         private Map<String, GSI> globalSecondaryIndexMap;
         private Tuple<Field, DbAttribute> versionAttributeField;
+        private EntityCodec<T> entityCodec;
 
         @Override
         public Builder<T> mappedClass(final Class<T> mappedClass) {
@@ -169,6 +178,13 @@ final class AttributeMapper<T> {
             return this;
         }
 
+        @Override
+        public Builder<T> entityCodec(final EntityCodec<T> entityCodec) {
+            this.entityCodec = entityCodec;
+
+            return this;
+        }
+
         @Override
         public AttributeMapper<T> build() {
             return new AttributeMapper<>(mappedClass,
@@ -178,7 +194,8 @@ final class AttributeMapper<T> {
                     tableName,
                     dateUpdatedField,
                     dateCreatedField,
-                    globalSecondaryIndexMap, versionAttributeField);
+                    globalSecondaryIndexMap, versionAttributeField,
+                    entityCodec);
         }
     }
 }
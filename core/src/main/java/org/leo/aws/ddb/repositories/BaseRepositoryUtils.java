@@ -1,14 +1,24 @@
 package org.leo.aws.ddb.repositories;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import org.leo.aws.ddb.annotations.DbAttribute;
 import org.leo.aws.ddb.annotations.DdbRepository;
 import org.leo.aws.ddb.annotations.ProjectionType;
 import org.leo.aws.ddb.data.Page;
+import org.leo.aws.ddb.data.PageResult;
 import org.leo.aws.ddb.data.PrimaryKey;
+import org.leo.aws.ddb.data.Projection;
+import org.leo.aws.ddb.data.RetryPolicy;
+import org.leo.aws.ddb.data.UpdateExpr;
+import org.leo.aws.ddb.data.UpdateResult;
 import org.leo.aws.ddb.data.UpdateItem;
+import org.leo.aws.ddb.exceptions.BatchGetException;
+import org.leo.aws.ddb.exceptions.BatchWriteException;
 import org.leo.aws.ddb.exceptions.DbException;
 import org.leo.aws.ddb.exceptions.OptimisticLockFailureException;
+import org.leo.aws.ddb.exceptions.TransactionFailedException;
+import org.leo.aws.ddb.metrics.RepositoryOperation;
 import org.leo.aws.ddb.utils.*;
 import org.leo.aws.ddb.utils.exceptions.Issue;
 import org.slf4j.Logger;
@@ -19,9 +29,8 @@ import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.services.dynamodb.model.*;
-import software.amazon.awssdk.services.dynamodb.paginators.QueryPublisher;
-import software.amazon.awssdk.services.dynamodb.paginators.ScanPublisher;
 
 import java.lang.reflect.Field;
 import java.math.BigInteger;
@@ -30,6 +39,7 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -40,7 +50,11 @@ enum BaseRepositoryUtils {
     INSTANCE;
 
     private final ConcurrentHashMap<String, Class<?>> repoParameterTypeMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, RepositoryContext<?>> repositoryContextMap = new ConcurrentHashMap<>();
     private static final Logger LOGGER = LoggerFactory.getLogger(BaseRepositoryUtils.class);
+    static final int MAX_BATCH_GET_KEYS = 100;
+    private static final int MAX_TOTAL_SEGMENTS = 1_000_000;
+    static final int NO_MAX_RESULTS = Integer.MAX_VALUE;
 
     static BaseRepositoryUtils getInstance() {
         return INSTANCE;
@@ -92,42 +106,51 @@ enum BaseRepositoryUtils {
 
 
     /**
-     * @param dbRequestFunc  Function to perform DB write actions
-     * @param returnItemFunc Function that return items
-     * @return Future
+     * Writes the requests in chunks of at most 25 requests (and 16 MB), with up to
+     * {@link org.leo.aws.ddb.config.RepositorySettings#getBatchWriteConcurrency()} chunks in flight. The entities paired with
+     * the requests of a chunk are emitted as soon as that chunk is written. Cached items of the chunk are invalidated once it
+     * has been processed.
+     *
+     * @param dbRequestFunc Function returning the write requests paired with the entity to emit (null to emit nothing)
+     * @param context       Repository context
+     * @return Entities of the written requests
      */
-    <ENTITY_TYPE> Flux<ENTITY_TYPE> batchWriteRequest(final Func1<DataMapper<ENTITY_TYPE>, Stream<WriteRequest>> dbRequestFunc,
-                                                      final Func0<List<ENTITY_TYPE>> returnItemFunc,
-                                                      final DataMapper<ENTITY_TYPE> dataMapper) {
+    <ENTITY_TYPE> Flux<ENTITY_TYPE> batchWriteRequest(final Func1<DataMapper<ENTITY_TYPE>, Stream<Tuple<WriteRequest, ENTITY_TYPE>>> dbRequestFunc,
+                                                      final RepositoryContext<ENTITY_TYPE> context) {
 
-
-        return Flux.defer(() -> Mono.fromFuture(processBatchWriteRequest(returnItemFunc, ImmutableMap.of(dataMapper.tableName(), dbRequestFunc.call(dataMapper)
-                        .collect(Collectors.toList()))))
-                .flatMapMany(Flux::fromIterable));
+        return Flux.defer(() -> {
+            final Iterator<Tuple<WriteRequest, ENTITY_TYPE>> writeRequests = dbRequestFunc.call(context.getDataMapper()).iterator();
+
+            return Flux.fromIterable(() -> new WriteRequestChunker<>(writeRequests))
+                    .flatMap(chunk -> processBatchWriteRequest(chunk::getItems,
+                                    ImmutableMap.of(context.getTableName(), chunk.getWriteRequests()), context)
+                                    .doFinally(signalType -> invalidate(chunk.getWriteRequests(), context))
+                                    .flatMapIterable(items -> items),
+                            context.getSettings().getBatchWriteConcurrency());
+        });
     }
 
     <ENTITY_TYPE> Mono<ENTITY_TYPE> updateItem(final PrimaryKey primaryKey,
                                                final Map<String, Object> updatedValues,
-                                               final Class<ENTITY_TYPE> parameterType,
-                                               final DataMapper<ENTITY_TYPE> dataMapper,
+                                               final RepositoryContext<ENTITY_TYPE> context,
                                                final ENTITY_TYPE item) {
 
         return Mono.defer(() -> {
-            final Tuple<Field, DbAttribute> versionedAttribute = dataMapper.getVersionedAttribute();
+            final DataMapper<ENTITY_TYPE> dataMapper = context.getDataMapper();
+            final Tuple<Field, DbAttribute> versionedAttribute = context.getAttributeMapper().getVersionAttributeField();
             final UpdateItemRequest.Builder updateItemRequestBuilder = UpdateItemRequest.builder();
-            final Map<String, Tuple3<String, Field, DbAttribute>> mappedFields = MapperUtils.getInstance().getMappedValues(parameterType.getName())
-                    .collect(Collectors.toMap(Tuple3::_1, b -> b));
+            final Map<String, Tuple<Field, DbAttribute>> mappedFields = context.getAttributeMapper().getMappedFields();
             final Stream<Tuple<String, AttributeValueUpdate>> mappedValues = updatedValues.entrySet().stream()
                     .filter(entry -> !entry.getKey().equals(primaryKey.getHashKeyName()))
                     .filter(entry -> !entry.getKey().equals(primaryKey.getRangeKeyName()))
                     .peek(a -> {
                         if (mappedFields.get(a.getKey()) != null) {
-                            DbUtils.checkForNullFields(mappedFields.get(a.getKey())._3(), a.getValue(), mappedFields.get(a.getKey())._1());
+                            DbUtils.checkForNullFields(mappedFields.get(a.getKey())._2(), a.getValue(), a.getKey());
                         }
                     })
                     .map(a -> {
                         if (mappedFields.get(a.getKey()) != null) {
-                            return Tuples.of(a.getKey(), DbUtils.modelToAttributeUpdateValue(mappedFields.get(a.getKey())._2(), a.getValue())
+                            return Tuples.of(a.getKey(), DbUtils.modelToAttributeUpdateValue(mappedFields.get(a.getKey())._1(), a.getValue())
                                     .call(AttributeValueUpdate.builder()).build());
                         } else {
                             return Tuples.of(a.getKey(), AttributeValueUpdate.builder().value(AttributeValue.builder()
@@ -148,31 +171,40 @@ enum BaseRepositoryUtils {
                 mappedUpdateValues = mappedUpdateValuesTmp;
             }
 
-            return Mono.fromFuture(DataMapperUtils.getDynamoDbAsyncClient().updateItem(updateItemRequestBuilder
-                            .tableName(dataMapper.tableName())
-                            .key(dataMapper.getPrimaryKey(primaryKey))
-                            .attributeUpdates(mappedUpdateValues)
-                            .returnValues(ReturnValue.ALL_NEW)
-                            .build())
-                    .thenApplyAsync(updateItemResponse -> dataMapper.mapFromAttributeValueToEntity(updateItemResponse.attributes())));
+            final UpdateItemRequest updateItemRequest = updateItemRequestBuilder
+                    .tableName(context.getTableName())
+                    .key(dataMapper.getPrimaryKey(primaryKey))
+                    .attributeUpdates(mappedUpdateValues)
+                    .returnValues(ReturnValue.ALL_NEW)
+                    .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
+                    .build();
+            final Function<Map<String, AttributeValue>, ENTITY_TYPE> entityMapper = RepositoryInstrumentation.entityMapper(context);
+
+            return Mono.fromFuture(context.getSettings().getMappingExecutor().map(
+                    RepositoryInstrumentation.callFuture(() -> context.getDynamoDbAsyncClient().updateItem(updateItemRequest),
+                                    UpdateItemResponse::consumedCapacity, RepositoryOperation.UPDATE, null, context)
+                            .whenComplete((response, e) -> invalidate(updateItemRequest.key(), context)),
+                    updateItemResponse -> entityMapper.apply(updateItemResponse.attributes())));
         });
     }
 
+    /**
+     * Queries the index and, unless the index projects all the attributes, fetches the records from the table. Keys are read
+     * from the index items as the pages arrive and fetched in chunks of up to 100 keys of the same page, so BatchGetItem calls
+     * run while the index is still being read.
+     */
     <ENTITY_TYPE> Flux<ENTITY_TYPE> findByGlobalSecondaryIndex(final String indexName,
                                                                final Object hashKeyValueObj,
                                                                final Object rangeKeyValue,
-                                                               final Function<ENTITY_TYPE, PrimaryKey> primaryKeyFunc,
-                                                               final Supplier<Class<ENTITY_TYPE>> dataClassFunc,
-                                                               final Function<List<PrimaryKey>, Flux<ENTITY_TYPE>> findByPrimaryKeyFunc,
+                                                               final RepositoryContext<ENTITY_TYPE> context,
                                                                final Expr filterExpression) {
 
         return Flux.defer(() -> {
             if (hashKeyValueObj instanceof String) {
                 final String hashKeyValue;
-                final Tuple<ProjectionType, QueryPublisher> queryResponseTuple;
-                final Flux<ENTITY_TYPE> returnedDataFromDb;
-                final Flux<ENTITY_TYPE> returnData;
-                final Class<ENTITY_TYPE> dataClass = dataClassFunc.get();
+                final Tuple<ProjectionType, QueryRequest> queryRequestTuple;
+                final Flux<QueryResponse> indexPages;
+                final DataMapper<ENTITY_TYPE> dataMapper = context.getDataMapper();
 
                 if (rangeKeyValue != null && !(rangeKeyValue instanceof String)) {
                     throw new DbException("Currently only String types are supported for sortKey Values");
@@ -180,23 +212,24 @@ enum BaseRepositoryUtils {
 
                 hashKeyValue = (String) hashKeyValueObj;
 
-                queryResponseTuple = getDataFromIndex(indexName, hashKeyValue, rangeKeyValue, dataClass, filterExpression);
+                queryRequestTuple = getDataFromIndex(indexName, hashKeyValue, rangeKeyValue, context, filterExpression);
 
-                returnedDataFromDb = Flux
-                        .from(queryResponseTuple._2())
-                        .flatMapIterable(QueryResponse::items)
-                        .map(a -> DataMapperUtils.getDataMapper(dataClass).mapFromAttributeValueToEntity(a));
+                indexPages = queryPages(queryRequestTuple._2(), indexName, null, context);
 
-                if (queryResponseTuple._1() == ProjectionType.ALL) {
-                    returnData = returnedDataFromDb;
+                if (queryRequestTuple._1() == ProjectionType.ALL) {
+                    return indexPages.flatMapIterable(QueryResponse::items).map(RepositoryInstrumentation.entityMapper(context));
                 } else {
-                    returnData = returnedDataFromDb
-                            .map(primaryKeyFunc)
-                            .collectList()
-                            .flatMapMany(primaryKeys -> !CollectionUtils.isEmpty(primaryKeys) ? findByPrimaryKeyFunc.apply(primaryKeys) : Flux.empty());
+                    final Collection<String> keyNames = getKeyNames(dataMapper);
+
+                    //Keys are chunked page by page (no timer), a full flatMap only delays the next index page
+                    return indexPages
+                            .concatMapIterable(page -> Lists.partition(page.items().stream()
+                                    .map(item -> getKey(item, keyNames))
+                                    .collect(Collectors.toList()), MAX_BATCH_GET_KEYS))
+                            .flatMap(keys -> batchGetItem(KeysAndAttributes.builder().keys(keys).build(), 1, context),
+                                    context.getSettings().getBatchGetConcurrency())
+                            .map(RepositoryInstrumentation.entityMapper(context));
                 }
-
-                return returnData;
             } else {
                 throw new DbException("Currently only String types are supported for hashKey Values");
             }
@@ -204,21 +237,141 @@ enum BaseRepositoryUtils {
     }
 
     <ENTITY_TYPE> Flux<ENTITY_TYPE> findAll(final int pageSize,
-                                            final Supplier<Class<ENTITY_TYPE>> dataClassFunc) {
+                                            final RepositoryContext<ENTITY_TYPE> context) {
 
-        return findAll(null, pageSize, dataClassFunc);
+        return findAll(null, pageSize, context);
     }
 
     <ENTITY_TYPE> Flux<ENTITY_TYPE> findAll(final Expr expr,
                                             final int pageSize,
-                                            final Supplier<Class<ENTITY_TYPE>> dataClassFunc) {
+                                            final RepositoryContext<ENTITY_TYPE> context) {
+
+        return findAll(expr, pageSize, NO_MAX_RESULTS, null, RepositoryInstrumentation.entityMapper(context), context);
+    }
+
+    /**
+     * @param maxResults Number of records after which the scan stops, {@link #NO_MAX_RESULTS} to read the whole table
+     * @param projection Attributes to fetch, null to fetch the whole items
+     * @param mapper     Mapping of the (projected) items
+     */
+    <R> Flux<R> findAll(final Expr expr,
+                        final int pageSize,
+                        final int maxResults,
+                        @Nullable final Projection projection,
+                        final Function<Map<String, AttributeValue>, R> mapper,
+                        final RepositoryContext<?> context) {
+
+        final ScanRequest scanRequest = getScanRequestBuilder(expr, pageSize, projection, context).build();
+
+        return limitResults(resultLimit -> scanPages(scanRequest, resultLimit, context), ScanResponse::items, pageSize, maxResults)
+                .map(mapper);
+    }
+
+    /**
+     * Pages stop once {@code maxResults} records have been returned, so no page is read past the last record needed, and the
+     * Limit of every page is sized by the {@link ResultLimit} from the records still wanted.
+     *
+     * @param pages    Pages of the query/scan, following the result limit (null when the records are not limited)
+     * @param pageSize Largest page Limit
+     */
+    private static <P> Flux<Map<String, AttributeValue>> limitResults(final Function<ResultLimit, Flux<P>> pages,
+                                                                      final Function<P, List<Map<String, AttributeValue>>> items,
+                                                                      final int pageSize,
+                                                                      final int maxResults) {
+
+        if (maxResults == NO_MAX_RESULTS) {
+            return pages.apply(null).flatMapIterable(items);
+        } else if (maxResults < 1) {
+            return Flux.error(new DbException("maxResults should be greater than 0"));
+        } else {
+            return Flux.defer(() -> pages.apply(new ResultLimit(pageSize, maxResults)).flatMapIterable(items).take(maxResults, true));
+        }
+    }
+
+    /**
+     * Scans the table with {@code totalSegments} parallel segments. Every segment reads one page at a time and at most one page
+     * ahead of the subscriber, so at most {@code totalSegments} calls are in flight and the segments only move forward as fast
+     * as the subscriber consumes. Records of the different segments are interleaved.
+     */
+    <ENTITY_TYPE> Flux<ENTITY_TYPE> findAllParallel(final int totalSegments,
+                                                    final Expr expr,
+                                                    final int pageSize,
+                                                    final RepositoryContext<ENTITY_TYPE> context) {
+
+        if (totalSegments < 1 || totalSegments > MAX_TOTAL_SEGMENTS) {
+            return Flux.error(new DbException(MessageFormat.format("totalSegments should be between 1 and {0}", MAX_TOTAL_SEGMENTS)));
+        }
+
+        final ScanRequest scanRequest = getScanRequestBuilder(expr, pageSize, null, context).totalSegments(totalSegments).build();
+
+        return Flux.range(0, totalSegments)
+                .flatMap(segment -> scanPages(scanRequest.toBuilder().segment(segment).build(), null, context), totalSegments, 1)
+                .flatMapIterable(ScanResponse::items)
+                .map(RepositoryInstrumentation.entityMapper(context));
+    }
+
+    /**
+     * @param resultLimit Limit of the pages and end of the scan, null to read every page with the Limit of the request
+     * @return Pages of the scan, read one Scan call at a time from the exclusive start key of the request
+     */
+    private static Flux<ScanResponse> scanPages(final ScanRequest scanRequest,
+                                                @Nullable final ResultLimit resultLimit,
+                                                final RepositoryContext<?> context) {
+
+        return RepositoryInstrumentation.pages(startKey -> {
+                    final ScanRequest.Builder builder = scanRequest.toBuilder();
+
+                    if (startKey != null) {
+                        builder.exclusiveStartKey(startKey);
+                    }
 
-        final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(dataClassFunc.get());
+                    if (resultLimit != null) {
+                        builder.limit(resultLimit.nextLimit());
+                    }
+
+                    return context.getDynamoDbAsyncClient().scan(builder.build());
+                },
+                response -> resultLimit == null || resultLimit.record(response.scannedCount(), response.count()) ? response.lastEvaluatedKey() : null,
+                ScanResponse::count, ScanResponse::consumedCapacity, RepositoryOperation.SCAN, null, context);
+    }
+
+    /**
+     * @param resultLimit Limit of the pages and end of the query, null to read every page with the Limit of the request
+     * @return Pages of the query, read one Query call at a time from the exclusive start key of the request
+     */
+    private static Flux<QueryResponse> queryPages(final QueryRequest queryRequest,
+                                                  @Nullable final String indexName,
+                                                  @Nullable final ResultLimit resultLimit,
+                                                  final RepositoryContext<?> context) {
+
+        return RepositoryInstrumentation.pages(startKey -> {
+                    final QueryRequest.Builder builder = queryRequest.toBuilder();
+
+                    if (startKey != null) {
+                        builder.exclusiveStartKey(startKey);
+                    }
+
+                    if (resultLimit != null) {
+                        builder.limit(resultLimit.nextLimit());
+                    }
+
+                    return context.getDynamoDbAsyncClient().query(builder.build());
+                },
+                response -> resultLimit == null || resultLimit.record(response.scannedCount(), response.count()) ? response.lastEvaluatedKey() : null,
+                QueryResponse::count, QueryResponse::consumedCapacity, RepositoryOperation.QUERY, indexName, context);
+    }
+
+    private static ScanRequest.Builder getScanRequestBuilder(final Expr expr,
+                                                             final int pageSize,
+                                                             @Nullable final Projection projection,
+                                                             final RepositoryContext<?> context) {
+
+        final Map<String, String> nameMap = new HashMap<>();
         final ScanRequest.Builder scanRequestBuilder = ScanRequest
                 .builder()
-                .tableName(dataMapper.tableName())
-                .limit(pageSize);
-        final ScanPublisher scanPublisher;
+                .tableName(context.getTableName())
+                .limit(pageSize)
+                .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context));
 
         if (Objects.nonNull(expr)) {
             final Map<String, String> attNameMap = expr.attributeNameMap();
@@ -227,7 +380,7 @@ enum BaseRepositoryUtils {
             scanRequestBuilder.filterExpression(expr.expression());
 
             if (!CollectionUtils.isEmpty(attNameMap)) {
-                scanRequestBuilder.expressionAttributeNames(attNameMap);
+                nameMap.putAll(attNameMap);
             }
 
             if (!CollectionUtils.isEmpty(attValueMap)) {
@@ -235,64 +388,319 @@ enum BaseRepositoryUtils {
             }
         }
 
-        scanPublisher = DataMapperUtils.getDynamoDbAsyncClient().scanPaginator(scanRequestBuilder.build());
+        if (projection != null) {
+            scanRequestBuilder.projectionExpression(getProjectionExpression(projection, nameMap, context));
+        }
 
-        return Flux.from(scanPublisher)
-                .flatMapIterable(ScanResponse::items)
-                .map(dataMapper::mapFromAttributeValueToEntity);
+        if (!nameMap.isEmpty()) {
+            scanRequestBuilder.expressionAttributeNames(nameMap);
+        }
+
+        return scanRequestBuilder;
+    }
+
+    /**
+     * The key attributes are always projected: they identify the items (ordering of batch gets, pagination).
+     *
+     * @param projection Projected attributes
+     * @param nameMap    Expression attribute names, the placeholders of the projected attributes are added to it
+     * @param context    Repository context
+     * @return Projection expression
+     */
+    private static String getProjectionExpression(final Projection projection,
+                                                  final Map<String, String> nameMap,
+                                                  final RepositoryContext<?> context) {
+
+        final Set<String> attributeNames = new LinkedHashSet<>(getKeyNames(context.getDataMapper()));
+        final StringJoiner projectionExpression = new StringJoiner(", ");
+        int index = 0;
+
+        attributeNames.addAll(projection.getAttributeNames());
+
+        for (final String attributeName : attributeNames) {
+            final String placeholder = "#prj" + index++;
+
+            nameMap.put(placeholder, attributeName);
+            projectionExpression.add(placeholder);
+        }
+
+        return projectionExpression.toString();
     }
 
     <ENTITY_TYPE> Mono<ENTITY_TYPE> findByPrimaryKey(final PrimaryKey primaryKey,
-                                                     final Supplier<Class<ENTITY_TYPE>> dataClassFunc) {
+                                                     final RepositoryContext<ENTITY_TYPE> context) {
+
+        return Mono.defer(() -> {
+            final DataMapper<ENTITY_TYPE> dataMapper = context.getDataMapper();
+            final Map<String, AttributeValue> key = dataMapper.getPrimaryKey(primaryKey);
+            final ItemCache itemCache = context.getItemCache();
+            final InFlightRequests<Map<String, AttributeValue>, GetItemResponse> inFlightGets = context.getInFlightGets();
+            final long generation = itemCache != null ? itemCache.getGeneration(key) : 0;
+            final Map<String, AttributeValue> cachedItem = itemCache != null ? itemCache.get(key) : null;
+            final Function<Map<String, AttributeValue>, ENTITY_TYPE> entityMapper = RepositoryInstrumentation.entityMapper(context);
+            final CompletableFuture<Map<String, AttributeValue>> itemFuture;
+
+            if (cachedItem != null) {
+                return Mono.fromSupplier(() -> entityMapper.apply(cachedItem));
+            }
+
+            if (context.getGetBatcher() != null) {
+                itemFuture = context.getGetBatcher().get(key);
+            } else {
+                final GetItemRequest getItemRequest = GetItemRequest.builder()
+                        .key(key)
+                        .tableName(context.getTableName())
+                        .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
+                        .build();
+                final Supplier<CompletableFuture<GetItemResponse>> getItemCall = () -> RepositoryInstrumentation.callFuture(
+                        () -> context.getDynamoDbAsyncClient().getItem(getItemRequest),
+                        GetItemResponse::consumedCapacity, RepositoryOperation.GET_ITEM, null, context);
+
+                itemFuture = (inFlightGets != null ? inFlightGets.execute(key, getItemCall) : getItemCall.get())
+                        .thenApply(GetItemResponse::item);
+            }
+
+            return Mono
+                    .fromCompletionStage(context.getSettings().getMappingExecutor().map(itemFuture, item -> {
+                        if (CollectionUtils.isEmpty(item)) {
+                            return null;
+                        } else if (itemCache != null) {
+                            itemCache.put(key, item, generation);
+                        }
+
+                        return entityMapper.apply(item);
+                    }));
+        });
+    }
+
+    /**
+     * Projected lookups always call DynamoDB: the item cache, batching and coalescing only handle whole items.
+     *
+     * @param projection Attributes to fetch
+     * @param mapper     Mapping of the projected item
+     */
+    <R> Mono<R> findByPrimaryKey(final PrimaryKey primaryKey,
+                                 final Projection projection,
+                                 final Function<Map<String, AttributeValue>, R> mapper,
+                                 final RepositoryContext<?> context) {
 
         return Mono.defer(() -> {
-            final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(dataClassFunc.get());
+            final Map<String, String> nameMap = new HashMap<>();
+            final String projectionExpression = getProjectionExpression(projection, nameMap, context);
             final GetItemRequest getItemRequest = GetItemRequest.builder()
-                    .key(dataMapper.getPrimaryKey(primaryKey))
-                    .tableName(dataMapper.tableName()).build();
+                    .key(context.getDataMapper().getPrimaryKey(primaryKey))
+                    .tableName(context.getTableName())
+                    .projectionExpression(projectionExpression)
+                    .expressionAttributeNames(nameMap)
+                    .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
+                    .build();
 
             return Mono
-                    .fromCompletionStage(DataMapperUtils.getDynamoDbAsyncClient().getItem(getItemRequest))
-                    .flatMap(resp -> resp.item().isEmpty() ? Mono.empty() : Mono.just(dataMapper.mapFromAttributeValueToEntity(resp.item())));
+                    .fromCompletionStage(context.getSettings().getMappingExecutor().map(
+                            RepositoryInstrumentation.callFuture(() -> context.getDynamoDbAsyncClient().getItem(getItemRequest),
+                                    GetItemResponse::consumedCapacity, RepositoryOperation.GET_ITEM, null, context),
+                            resp -> resp.item().isEmpty() ? null : mapper.apply(resp.item())));
         });
     }
 
     <ENTITY_TYPE> Flux<ENTITY_TYPE> findByPrimaryKeys(final List<PrimaryKey> primaryKeys,
-                                                      final Supplier<Class<ENTITY_TYPE>> dataClassFunc) {
+                                                      final RepositoryContext<ENTITY_TYPE> context) {
+
+        return findByPrimaryKeys(primaryKeys, false, context);
+    }
+
+    /**
+     * Fetches the keys in chunks of at most 100 keys (BatchGetItem limit), with up to
+     * {@link org.leo.aws.ddb.config.RepositorySettings#getBatchGetConcurrency()} chunks in flight. Keys found in the item
+     * cache are not fetched, unless the items are projected.
+     *
+     * @param primaryKeys   Primary keys, duplicates are fetched once
+     * @param preserveOrder Emit the records in the order of the keys passed (waits for all the chunks) instead of as they arrive
+     * @param context       Repository context
+     * @return Records found
+     */
+    <ENTITY_TYPE> Flux<ENTITY_TYPE> findByPrimaryKeys(final List<PrimaryKey> primaryKeys,
+                                                      final boolean preserveOrder,
+                                                      final RepositoryContext<ENTITY_TYPE> context) {
+
+        return findByPrimaryKeys(primaryKeys, preserveOrder, null, RepositoryInstrumentation.entityMapper(context), context);
+    }
+
+    /**
+     * @param projection Attributes to fetch, null to fetch the whole items
+     * @param mapper     Mapping of the (projected) items
+     */
+    <R> Flux<R> findByPrimaryKeys(final List<PrimaryKey> primaryKeys,
+                                  final boolean preserveOrder,
+                                  @Nullable final Projection projection,
+                                  final Function<Map<String, AttributeValue>, R> mapper,
+                                  final RepositoryContext<?> context) {
 
         return Flux.defer(() -> {
-            final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(dataClassFunc.get());
-            final List<PrimaryKey> primaryKeysForQuery = new ArrayList<>(new HashSet<>(primaryKeys)); //Adding list of primary keys to a set before querying to remove duplicates.
-            final KeysAndAttributes attributes = KeysAndAttributes.builder().keys(primaryKeysForQuery.stream()
+            final DataMapper<?> dataMapper = context.getDataMapper();
+            final ItemCache itemCache = projection == null ? context.getItemCache() : null;
+            final Map<String, String> nameMap = new HashMap<>();
+            final String projectionExpression = projection != null ? getProjectionExpression(projection, nameMap, context) : null;
+            final Collection<String> keyNames = getKeyNames(dataMapper);
+            final List<Map<String, AttributeValue>> keys = new LinkedHashSet<>(primaryKeys).stream() //Removing duplicates before querying.
                     .map(dataMapper::getPrimaryKey)
-                    .collect(Collectors.toList())).build();
-            final Map<String, KeysAndAttributes> andAttributesMap = new HashMap<>();
-            final BatchGetItemRequest request;
+                    .collect(Collectors.toList());
+            final List<Map<String, AttributeValue>> cachedItems = new ArrayList<>();
+            final List<Map<String, AttributeValue>> keysToFetch = new ArrayList<>();
+            final Map<Map<String, AttributeValue>, Long> generations = new HashMap<>();
+            final Flux<Map<String, AttributeValue>> fetchedItems;
+            final Flux<Map<String, AttributeValue>> items;
+
+            for (final Map<String, AttributeValue> key : keys) {
+                final Map<String, AttributeValue> cachedItem = itemCache != null ? itemCache.get(key) : null;
+
+                if (cachedItem != null) {
+                    cachedItems.add(cachedItem);
+                } else {
+                    keysToFetch.add(key);
 
-            andAttributesMap.put(dataMapper.tableName(), attributes);
-            request = BatchGetItemRequest.builder().requestItems(andAttributesMap).build();
+                    if (itemCache != null) {
+                        generations.put(key, itemCache.getGeneration(key));
+                    }
+                }
+            }
+
+            fetchedItems = Flux.fromIterable(Lists.partition(keysToFetch, MAX_BATCH_GET_KEYS))
+                    .flatMap(chunk -> batchGetItem(KeysAndAttributes.builder()
+                                    .keys(chunk)
+                                    .projectionExpression(projectionExpression)
+                                    .expressionAttributeNames(nameMap.isEmpty() ? null : nameMap)
+                                    .build(), 1, context),
+                            context.getSettings().getBatchGetConcurrency());
+            items = Flux.concat(Flux.fromIterable(cachedItems), itemCache != null ?
+                    fetchedItems.doOnNext(item -> {
+                        final Map<String, AttributeValue> key = getKey(item, keyNames);
+                        final Long generation = generations.get(key);
+
+                        if (generation != null) {
+                            itemCache.put(key, item, generation);
+                        }
+                    }) : fetchedItems);
+
+            if (!preserveOrder) {
+                return items.map(mapper);
+            }
 
-            return Flux
-                    .from(DataMapperUtils.getDynamoDbAsyncClient().batchGetItemPaginator(request))
-                    .flatMapIterable(resp -> resp.responses().get(dataMapper.tableName()))
-                    .map(dataMapper::mapFromAttributeValueToEntity);
+            return items.collectMap(item -> getKey(item, keyNames))
+                    .flatMapIterable(itemsByKey -> keys.stream()
+                            .map(itemsByKey::get)
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toList()))
+                    .map(mapper);
         });
     }
 
+    private static void invalidate(final Map<String, AttributeValue> key, final RepositoryContext<?> context) {
+        if (context.getItemCache() != null) {
+            context.getItemCache().invalidate(key);
+        }
+
+        if (context.getInFlightGets() != null) {
+            context.getInFlightGets().forget(key);
+        }
+    }
+
+    private static void invalidate(final List<WriteRequest> writeRequests, final RepositoryContext<?> context) {
+        if (context.getItemCache() != null || context.getInFlightGets() != null) {
+            final Collection<String> keyNames = getKeyNames(context.getDataMapper());
+
+            for (final WriteRequest writeRequest : writeRequests) {
+                if (writeRequest.putRequest() != null) {
+                    invalidate(getKey(writeRequest.putRequest().item(), keyNames), context);
+                } else if (writeRequest.deleteRequest() != null) {
+                    invalidate(writeRequest.deleteRequest().key(), context);
+                }
+            }
+        }
+    }
+
+    private static Collection<String> getKeyNames(final DataMapper<?> dataMapper) {
+        return dataMapper.getPKMapping().values().stream().map(Tuple::_1).collect(Collectors.toList());
+    }
+
+    private static Map<String, AttributeValue> getKey(final Map<String, AttributeValue> item, final Collection<String> keyNames) {
+        final Map<String, AttributeValue> key = new HashMap<>();
+
+        for (final String keyName : keyNames) {
+            key.put(keyName, item.get(keyName));
+        }
+
+        return key;
+    }
+
+    /**
+     * @param keys    At most 100 primary keys
+     * @param context Repository context
+     * @return Items found, in no particular order
+     */
+    Flux<Map<String, AttributeValue>> batchGetItems(final List<Map<String, AttributeValue>> keys,
+                                                    final RepositoryContext<?> context) {
+
+        return batchGetItem(KeysAndAttributes.builder().keys(keys).build(), 1, context);
+    }
+
+    /**
+     * Unprocessed keys are fetched right away when the response returned items (response size limit reached) and after the
+     * backoff delay of the retry policy otherwise (throttled).
+     */
+    private Flux<Map<String, AttributeValue>> batchGetItem(final KeysAndAttributes keysAndAttributes,
+                                                           final int attempt,
+                                                           final RepositoryContext<?> context) {
+
+        final String tableName = context.getTableName();
+        final BatchGetItemRequest request = BatchGetItemRequest.builder()
+                .requestItems(Collections.singletonMap(tableName, keysAndAttributes))
+                .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
+                .build();
+
+        return RepositoryInstrumentation.call(Mono.defer(() -> Mono.fromFuture(context.getDynamoDbAsyncClient().batchGetItem(request))),
+                        RepositoryOperation.BATCH_GET, null, context)
+                .flatMapMany(response -> {
+                    RepositoryInstrumentation.consumedCapacity(RepositoryOperation.BATCH_GET, response.consumedCapacity(), context);
+
+                    final List<Map<String, AttributeValue>> items = response.hasResponses() && response.responses().get(tableName) != null ?
+                            response.responses().get(tableName) : Collections.emptyList();
+                    final KeysAndAttributes unprocessedKeys = response.hasUnprocessedKeys() ? response.unprocessedKeys().get(tableName) : null;
+                    final RetryPolicy retryPolicy = context.getSettings().getRetryPolicy();
+
+                    if (unprocessedKeys == null || !unprocessedKeys.hasKeys() || unprocessedKeys.keys().isEmpty()) {
+                        return Flux.fromIterable(items);
+                    } else if (!items.isEmpty()) {
+                        return Flux.concat(Flux.fromIterable(items), Flux.defer(() -> batchGetItem(unprocessedKeys, 1, context)));
+                    } else if (!retryPolicy.canRetry(attempt)) {
+                        return Flux.error(new BatchGetException(MessageFormat.format("Batch get has [{0}] unprocessed keys after [{1}] attempts",
+                                unprocessedKeys.keys().size(), attempt), response.unprocessedKeys()));
+                    } else {
+                        RepositoryInstrumentation.retry(RepositoryOperation.BATCH_GET, attempt, context);
+
+                        return Mono.delay(retryPolicy.getDelay(attempt))
+                                .thenMany(Flux.defer(() -> batchGetItem(unprocessedKeys, attempt + 1, context)));
+                    }
+                });
+    }
+
     <ENTITY_TYPE> CompletableFuture<ENTITY_TYPE> saveItem(final ENTITY_TYPE item, final boolean upsert,
                                                           final Action2<ENTITY_TYPE, Map<String, AttributeValue>> ttlAction,
-                                                          final DataMapper<ENTITY_TYPE> dataMapper) {
+                                                          final RepositoryContext<ENTITY_TYPE> context) {
 
+        final DataMapper<ENTITY_TYPE> dataMapper = context.getDataMapper();
         final PrimaryKey primaryKey = dataMapper.createPKFromItem(item);
-        final String tableName = dataMapper.tableName();
+        final String tableName = context.getTableName();
         final Map<String, AttributeValue> attributeValues;
         final PutItemRequest putItemRequest;
         final PutItemRequest.Builder builder;
-        final Tuple<Field, DbAttribute> versionedAttribute = dataMapper.getVersionedAttribute();
+        final Tuple<Field, DbAttribute> versionedAttribute = context.getAttributeMapper().getVersionAttributeField();
         final String rangeKeyName = primaryKey.getRangeKeyName();
+        final CompletableFuture<?> putFuture;
 
         builder = PutItemRequest.builder()
-                .tableName(dataMapper.tableName());
+                .tableName(tableName)
+                .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context));
 
         if (!upsert) {
             if (versionedAttribute != null) {
@@ -331,11 +739,20 @@ enum BaseRepositoryUtils {
 
         ttlAction.call(item, attributeValues);
 
-        builder.item(attributeValues);
+        if (upsert && versionedAttribute == null && context.getPutBatcher() != null) {
+            //Unconditional put, it can be written with other puts in a BatchWriteItem call.
+            putFuture = context.getPutBatcher().put(dataMapper.getPrimaryKey(primaryKey), attributeValues);
+        } else {
+            builder.item(attributeValues);
 
-        putItemRequest = builder.build();
+            putItemRequest = builder.build();
+            putFuture = RepositoryInstrumentation.callFuture(() -> context.getDynamoDbAsyncClient().putItem(putItemRequest),
+                    PutItemResponse::consumedCapacity, RepositoryOperation.PUT, null, context);
+        }
 
-        return DataMapperUtils.getDynamoDbAsyncClient().putItem(putItemRequest).thenApplyAsync(putItemResponse -> item)
+        return putFuture
+                .whenComplete((response, e) -> invalidate(dataMapper.getPrimaryKey(primaryKey), context))
+                .thenApply(putItemResponse -> item)
                 .exceptionally(e -> handleCreateItemException(primaryKey, tableName, e));
     }
 
@@ -355,34 +772,37 @@ enum BaseRepositoryUtils {
     }
 
     <ENTITY_TYPE> Mono<ENTITY_TYPE> updateItem(final ENTITY_TYPE item,
-                                               final Function<ENTITY_TYPE, PrimaryKey> primaryKeyFunc,
-                                               final Supplier<Class<ENTITY_TYPE>> dataClassFunc) {
+                                               final RepositoryContext<ENTITY_TYPE> context) {
 
         return Mono.defer(() -> {
-            final PrimaryKey primaryKey = primaryKeyFunc.apply(item);
-            final Class<ENTITY_TYPE> dataClass = dataClassFunc.get();
-            final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(dataClass);
+            final DataMapper<ENTITY_TYPE> dataMapper = context.getDataMapper();
+            final PrimaryKey primaryKey = dataMapper.createPKFromItem(item);
             final Stream<Tuple<String, AttributeValueUpdate>> mappedValues;
-            final Tuple<Field, DbAttribute> versionedAttribute = dataMapper.getVersionedAttribute();
+            final Tuple<Field, DbAttribute> versionedAttribute = context.getAttributeMapper().getVersionAttributeField();
             final UpdateItemRequest.Builder updateItemRequestBuilder = UpdateItemRequest.builder();
 
             setVersion(item, versionedAttribute, updateItemRequestBuilder);
 
-            mappedValues = MapperUtils.getInstance().getMappedValues(item, dataClass)
+            mappedValues = dataMapper.getMappedValues(item)
                     .peek(a -> DbUtils.checkForNullFields(a._4(), a._2(), a._1()))
                     .filter(a -> a._1() != null)
                     .map(a -> Tuples.of(a._1(), DbUtils.modelToAttributeUpdateValue(a._3(), a._2()).call(AttributeValueUpdate.builder()).build()));
 
-            return Mono.fromFuture(DataMapperUtils
-                            .getDynamoDbAsyncClient()
-                            .updateItem(updateItemRequestBuilder
-                                    .tableName(dataMapper.tableName())
-                                    .key(dataMapper.getPrimaryKey(primaryKey))
-                                    .attributeUpdates(mappedValues.collect(Collectors.toMap(Tuple::_1, Tuple::_2)))
-                                    .returnValues(ReturnValue.ALL_NEW)
-                                    .build())
-                            .exceptionally(e -> handleUpdateItemException(primaryKey, dataMapper.tableName(), e))
-                            .thenApplyAsync(updateItemResponse -> dataMapper.mapFromAttributeValueToEntity(updateItemResponse.attributes())))
+            final UpdateItemRequest updateItemRequest = updateItemRequestBuilder
+                    .tableName(context.getTableName())
+                    .key(dataMapper.getPrimaryKey(primaryKey))
+                    .attributeUpdates(mappedValues.collect(Collectors.toMap(Tuple::_1, Tuple::_2)))
+                    .returnValues(ReturnValue.ALL_NEW)
+                    .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
+                    .build();
+            final Function<Map<String, AttributeValue>, ENTITY_TYPE> entityMapper = RepositoryInstrumentation.entityMapper(context);
+
+            return Mono.fromFuture(context.getSettings().getMappingExecutor().map(
+                            RepositoryInstrumentation.callFuture(() -> context.getDynamoDbAsyncClient().updateItem(updateItemRequest),
+                                            UpdateItemResponse::consumedCapacity, RepositoryOperation.UPDATE, null, context)
+                                    .whenComplete((response, e) -> invalidate(updateItemRequest.key(), context))
+                                    .exceptionally(e -> handleUpdateItemException(primaryKey, context.getTableName(), e)),
+                            updateItemResponse -> entityMapper.apply(updateItemResponse.attributes())))
                     .onErrorResume(throwable -> throwable instanceof CompletionException, throwable -> Mono.error(throwable.getCause()));
         });
     }
@@ -390,100 +810,388 @@ enum BaseRepositoryUtils {
     <ENTITY_TYPE> Mono<ENTITY_TYPE> updateItem(final PrimaryKey primaryKey,
                                                final Map<String, Object> updatedValues,
                                                final Function<PrimaryKey, Mono<ENTITY_TYPE>> findByPrimaryFunc,
-                                               final Supplier<Class<ENTITY_TYPE>> dataClassFunc) {
+                                               final RepositoryContext<ENTITY_TYPE> context) {
 
         final Mono<ENTITY_TYPE> itemMono = findByPrimaryFunc.apply(primaryKey);
-        final Class<ENTITY_TYPE> parameterType = dataClassFunc.get();
-        final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(parameterType);
 
-        return itemMono.flatMap(item -> updateItem(primaryKey, updatedValues, parameterType, dataMapper, item));
+        return itemMono.flatMap(item -> updateItem(primaryKey, updatedValues, context, item));
+    }
+
+    /**
+     * Applies the update with a single UpdateItem call, without reading the item first. The version attribute is incremented
+     * by DynamoDB. A failed condition is reported as an {@link OptimisticLockFailureException} when the update has an
+     * expected version or a condition, otherwise it means that the item does not exist and nothing is emitted.
+     */
+    <ENTITY_TYPE> Mono<ENTITY_TYPE> updateItem(final PrimaryKey primaryKey,
+                                               final UpdateExpr updateExpr,
+                                               final RepositoryContext<ENTITY_TYPE> context) {
+
+        return Mono.defer(() -> {
+            final CompiledUpdate compiledUpdate = CompiledUpdate.of(primaryKey, updateExpr, context);
+            final UpdateItemRequest updateItemRequest = compiledUpdate.toUpdateItemRequest(context.getTableName())
+                    .returnValues(ReturnValue.ALL_NEW)
+                    .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
+                    .build();
+            final Function<Map<String, AttributeValue>, ENTITY_TYPE> entityMapper = RepositoryInstrumentation.entityMapper(context);
+
+            return Mono.fromFuture(context.getSettings().getMappingExecutor().map(
+                            RepositoryInstrumentation.callFuture(() -> context.getDynamoDbAsyncClient().updateItem(updateItemRequest),
+                                            UpdateItemResponse::consumedCapacity, RepositoryOperation.UPDATE, null, context)
+                                    .whenComplete((response, e) -> invalidate(updateItemRequest.key(), context)),
+                            updateItemResponse -> entityMapper.apply(updateItemResponse.attributes())))
+                    .onErrorResume(throwable -> throwable instanceof CompletionException, throwable -> Mono.error(throwable.getCause()))
+                    .onErrorResume(throwable -> throwable instanceof ConditionalCheckFailedException, throwable -> {
+                        if (compiledUpdate.isConditional()) {
+                            return Mono.error(new OptimisticLockFailureException(throwable));
+                        } else {
+                            LOGGER.debug(MessageFormat.format("Record with the following primary key [{0}] does not exist in table [{1}]",
+                                    primaryKey, context.getTableName()));
+                            return Mono.empty();
+                        }
+                    });
+        });
     }
 
-    <ENTITY_TYPE> Flux<ENTITY_TYPE> updateItem(final List<UpdateItem> updateItems, final Supplier<Class<ENTITY_TYPE>> paramTypeFunc,
+    <ENTITY_TYPE> Flux<ENTITY_TYPE> updateItem(final List<UpdateItem> updateItems, final RepositoryContext<ENTITY_TYPE> context,
                                                final Function<List<PrimaryKey>, Flux<ENTITY_TYPE>> findByPrimaryKeysFunc) {
 
-        final Class<ENTITY_TYPE> parameterType = paramTypeFunc.get();
-        final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(parameterType);
+        final DataMapper<ENTITY_TYPE> dataMapper = context.getDataMapper();
         final Flux<ENTITY_TYPE> items = findByPrimaryKeysFunc.apply(updateItems.stream().map(UpdateItem::getPrimaryKey).collect(Collectors.toList()));
         final Map<PrimaryKey, UpdateItem> updateItemMap = updateItems.stream().collect(Collectors.toMap(UpdateItem::getPrimaryKey, b -> b));
         final Flux<Mono<ENTITY_TYPE>> test = items.map(item -> updateItem(dataMapper.createPKFromItem(item),
-                updateItemMap.get(dataMapper.createPKFromItem(item)).getUpdatedValues(), parameterType, dataMapper, item));
+                updateItemMap.get(dataMapper.createPKFromItem(item)).getUpdatedValues(), context, item));
 
         //Combine list of mono to flux
         return Flux.concat(test);
     }
 
-    <ENTITY_TYPE> Flux<ENTITY_TYPE> batchWrite(final List<ENTITY_TYPE> putItems,
-                                               final List<ENTITY_TYPE> deleteItems,
-                                               final Supplier<Class<ENTITY_TYPE>> paramTypeFunc) {
+    /**
+     * Reads all the records with BatchGetItem calls, then updates up to
+     * {@link org.leo.aws.ddb.config.RepositorySettings#getUpdateConcurrency()} records at the same time. Updates of the same
+     * record are applied one after the other in the given order, each one starting from the record returned by the previous
+     * one. Results are emitted as the updates complete; a failed update does not stop the others.
+     *
+     * @param updateItems           Updates, several updates can target the same record
+     * @param concurrency           Maximum number of records updated at the same time
+     * @param context               Repository context
+     * @param findByPrimaryKeysFunc Function reading the records
+     * @return Outcome of every update
+     */
+    <ENTITY_TYPE> Flux<UpdateResult<ENTITY_TYPE>> bulkUpdate(final List<UpdateItem> updateItems,
+                                                             final int concurrency,
+                                                             final RepositoryContext<ENTITY_TYPE> context,
+                                                             final Function<List<PrimaryKey>, Flux<ENTITY_TYPE>> findByPrimaryKeysFunc) {
+
+        if (concurrency < 1) {
+            return Flux.error(new IllegalArgumentException("concurrency should be greater than 0"));
+        }
 
         return Flux.defer(() -> {
-            final Func1<DataMapper<ENTITY_TYPE>, Stream<WriteRequest>> putFunc = dataMapper -> putItems.stream().map(item -> WriteRequest.builder()
-                    .putRequest(PutRequest.builder()
-                            .item(dataMapper.mapFromEntityToAttributeValue(item))
-                            .build())
-                    .build());
-            final Func1<DataMapper<ENTITY_TYPE>, Stream<WriteRequest>> deleteFunc = dataMapper ->
-                    (deleteItems != null ? deleteItems : Collections.<ENTITY_TYPE>emptyList()).stream().map(item -> WriteRequest.builder()
-                            .deleteRequest(DeleteRequest.builder()
-                                    .key(dataMapper.getPrimaryKey(dataMapper.createPKFromItem(item)))
-                                    .build())
-                            .build());
-            final Func1<DataMapper<ENTITY_TYPE>, Stream<WriteRequest>> dbRequestFunc = dataMapper -> Stream.concat(putFunc.call(dataMapper),
-                    deleteFunc.call(dataMapper));
-            final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(paramTypeFunc.get());
-
-            return Mono.fromFuture(processBatchWriteRequest(() -> putItems, ImmutableMap.of(dataMapper.tableName(), dbRequestFunc.call(dataMapper)
-                            .collect(Collectors.toList()))))
-                    .flatMapMany(Flux::fromIterable);
+            final DataMapper<ENTITY_TYPE> dataMapper = context.getDataMapper();
+            final Map<PrimaryKey, List<Map<String, Object>>> updatesByKey = new LinkedHashMap<>();
+
+            for (final UpdateItem updateItem : updateItems) {
+                updatesByKey.computeIfAbsent(updateItem.getPrimaryKey(), pk -> new ArrayList<>()).add(updateItem.getUpdatedValues());
+            }
+
+            return findByPrimaryKeysFunc.apply(new ArrayList<>(updatesByKey.keySet()))
+                    .collectMap(dataMapper::createPKFromItem)
+                    .flatMapMany(items -> Flux.fromIterable(updatesByKey.entrySet())
+                            .flatMap(entry -> updateSequentially(entry.getKey(), entry.getValue(), items.get(entry.getKey()), context),
+                                    concurrency));
+        });
+    }
+
+    private <ENTITY_TYPE> Flux<UpdateResult<ENTITY_TYPE>> updateSequentially(final PrimaryKey primaryKey,
+                                                                             final List<Map<String, Object>> updatedValues,
+                                                                             @Nullable final ENTITY_TYPE item,
+                                                                             final RepositoryContext<ENTITY_TYPE> context) {
+
+        if (item == null) {
+            return Flux.fromIterable(updatedValues).map(values -> UpdateResult.failed(primaryKey, UpdateResult.Outcome.NOT_FOUND, null));
+        }
+
+        final AtomicReference<ENTITY_TYPE> current = new AtomicReference<>(item);
+        final Tuple<Field, DbAttribute> versionedAttribute = context.getAttributeMapper().getVersionAttributeField();
+
+        return Flux.fromIterable(updatedValues)
+                .concatMap(values -> {
+                    //updateItem bumps the version of the entity before sending, restore it when the update fails so the
+                    //next updates of the record are not conditioned on a version that was never written
+                    final Object version = versionedAttribute != null ? ReflectionUtils.getField(versionedAttribute._1(), current.get()) : null;
+
+                    return updateItem(primaryKey, values, context, current.get())
+                            .map(updated -> {
+                                current.set(updated);
+                                return UpdateResult.updated(primaryKey, updated);
+                            })
+                            .onErrorResume(e -> {
+                                if (versionedAttribute != null) {
+                                    ReflectionUtils.setField(versionedAttribute._1(), current.get(), version);
+                                }
+
+                                return Mono.just(UpdateResult.failed(primaryKey, getUpdateOutcome(e), e));
+                            });
+                });
+    }
+
+    /**
+     * Reads the record with a consistent read, applies the mutator and updates the record. When the version attribute changed
+     * in the meantime ({@link OptimisticLockFailureException}), the record is read again and the mutator applied again,
+     * after the delay of the retry policy. Conflicts are reported to
+     * {@link org.leo.aws.ddb.metrics.RepositoryMetrics#recordConflict(String, int)}.
+     *
+     * @param primaryKey  Hash Key and Sort Keys
+     * @param mutator     Function changing the record, it can be called several times. Returning null leaves the record as is
+     * @param retryPolicy Number of attempts and delays between them
+     * @param context     Repository context
+     * @return Updated record, empty if the record does not exist. Fails with the {@link OptimisticLockFailureException} of the
+     * last attempt once the attempts are exhausted, with a {@link DbException} if the entity has no version attribute
+     */
+    <ENTITY_TYPE> Mono<ENTITY_TYPE> updateWithRetry(final PrimaryKey primaryKey,
+                                                    final Function<ENTITY_TYPE, ENTITY_TYPE> mutator,
+                                                    final RetryPolicy retryPolicy,
+                                                    final RepositoryContext<ENTITY_TYPE> context) {
+
+        if (context.getAttributeMapper().getVersionAttributeField() == null) {
+            //without a version attribute the update is not conditional, a conflicting write would be silently overwritten
+            return Mono.error(new DbException(MessageFormat.format("Entity of table [{0}] has no version attribute, updateWithRetry cannot detect conflicts",
+                    context.getTableName())));
+        }
+
+        return updateWithRetry(primaryKey, mutator, retryPolicy, 1, context);
+    }
+
+    private <ENTITY_TYPE> Mono<ENTITY_TYPE> updateWithRetry(final PrimaryKey primaryKey,
+                                                            final Function<ENTITY_TYPE, ENTITY_TYPE> mutator,
+                                                            final RetryPolicy retryPolicy,
+                                                            final int attempt,
+                                                            final RepositoryContext<ENTITY_TYPE> context) {
+
+        return findByPrimaryKeyConsistent(primaryKey, context)
+                .flatMap(item -> {
+                    final ENTITY_TYPE mutated = mutator.apply(item);
+
+                    return mutated != null ? updateItem(mutated, context) : Mono.just(item);
+                })
+                .onErrorResume(e -> RepositoryInstrumentation.unwrap(e) instanceof OptimisticLockFailureException && retryPolicy.canRetry(attempt),
+                        e -> {
+                            LOGGER.debug(MessageFormat.format("Conflict updating the record with the primary key [{0}] in table [{1}], attempt [{2}]",
+                                    primaryKey, context.getTableName(), attempt));
+                            context.getSettings().getMetrics().recordConflict(context.getTableName(), attempt);
+
+                            return Mono.delay(retryPolicy.getDelay(attempt))
+                                    .then(Mono.defer(() -> updateWithRetry(primaryKey, mutator, retryPolicy, attempt + 1, context)));
+                        });
+    }
+
+    private <ENTITY_TYPE> Mono<ENTITY_TYPE> findByPrimaryKeyConsistent(final PrimaryKey primaryKey,
+                                                                       final RepositoryContext<ENTITY_TYPE> context) {
+
+        return Mono.defer(() -> {
+            final GetItemRequest getItemRequest = GetItemRequest.builder()
+                    .key(context.getDataMapper().getPrimaryKey(primaryKey))
+                    .tableName(context.getTableName())
+                    .consistentRead(true)
+                    .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
+                    .build();
+            final Function<Map<String, AttributeValue>, ENTITY_TYPE> entityMapper = RepositoryInstrumentation.entityMapper(context);
+
+            return Mono
+                    .fromCompletionStage(context.getSettings().getMappingExecutor().map(
+                            RepositoryInstrumentation.callFuture(() -> context.getDynamoDbAsyncClient().getItem(getItemRequest),
+                                    GetItemResponse::consumedCapacity, RepositoryOperation.GET_ITEM, null, context),
+                            resp -> resp.item().isEmpty() ? null : entityMapper.apply(resp.item())));
         });
     }
 
-    <ENTITY_TYPE> CompletableFuture<List<ENTITY_TYPE>> processBatchWriteRequest(final Func0<List<ENTITY_TYPE>> returnItemFunc,
-                                                                                final Map<String, List<WriteRequest>> requestItems) {
+    private static UpdateResult.Outcome getUpdateOutcome(final Throwable e) {
+        final Throwable cause = RepositoryInstrumentation.unwrap(e);
+
+        if (cause instanceof ConditionalCheckFailedException || cause instanceof OptimisticLockFailureException) {
+            return UpdateResult.Outcome.CONDITIONAL_CHECK_FAILED;
+        } else if (cause instanceof AwsServiceException && ((AwsServiceException) cause).isThrottlingException()) {
+            return UpdateResult.Outcome.THROTTLED;
+        } else {
+            return UpdateResult.Outcome.FAILED;
+        }
+    }
+
+    /**
+     * Applies all the actions with one TransactWriteItems call. Cached items of the records are invalidated once the call
+     * completes. A cancellation is reported as a {@link TransactionFailedException} listing the actions that caused it.
+     */
+    Mono<Void> transactWrite(final TransactWrite transactWrite, final RepositoryContext<?> context) {
+        return Mono.defer(() -> {
+            final List<TransactWrite.Action> actions = transactWrite.getActions();
+            final TransactWriteItemsRequest request = TransactWriteItemsRequest.builder()
+                    .transactItems(actions.stream().map(TransactWrite.Action::toTransactWriteItem).collect(Collectors.toList()))
+                    .clientRequestToken(transactWrite.getClientRequestToken())
+                    .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
+                    .build();
+
+            return RepositoryInstrumentation.call(Mono.defer(() -> Mono.fromFuture(context.getDynamoDbAsyncClient().transactWriteItems(request))),
+                            RepositoryOperation.TRANSACT_WRITE, null, context)
+                    .doOnNext(response -> RepositoryInstrumentation.consumedCapacity(RepositoryOperation.TRANSACT_WRITE,
+                            response.consumedCapacity(), context))
+                    .doFinally(signalType -> actions.forEach(action -> invalidate(action.getKey(), action.getContext())))
+                    .onErrorMap(e -> RepositoryInstrumentation.unwrap(e) instanceof TransactionCanceledException,
+                            e -> toTransactionFailedException(actions, (TransactionCanceledException) RepositoryInstrumentation.unwrap(e)))
+                    .then();
+        });
+    }
+
+    private static TransactionFailedException toTransactionFailedException(final List<TransactWrite.Action> actions,
+                                                                          final TransactionCanceledException e) {
+
+        final List<TransactionFailedException.Failure> failures = new ArrayList<>();
+
+        if (e.hasCancellationReasons()) {
+            for (int i = 0; i < e.cancellationReasons().size() && i < actions.size(); i++) {
+                final CancellationReason reason = e.cancellationReasons().get(i);
+
+                if (reason.code() != null && !"None".equals(reason.code())) {
+                    final TransactWrite.Action action = actions.get(i);
+
+                    failures.add(new TransactionFailedException.Failure(i, action.getContext().getTableName(), action.getTarget(),
+                            reason.code(), reason.message()));
+                }
+            }
+        }
+
+        return new TransactionFailedException(MessageFormat.format("Transaction canceled: {0}", failures), failures, e);
+    }
+
+    /**
+     * Reads all the records with one TransactGetItems call.
+     */
+    Mono<TransactGetResult> transactGet(final TransactGet transactGet, final RepositoryContext<?> context) {
+        return Mono.defer(() -> {
+            final List<TransactGet.Entry> entries = transactGet.getEntries();
+            final TransactGetItemsRequest request = TransactGetItemsRequest.builder()
+                    .transactItems(entries.stream().map(TransactGet.Entry::toTransactGetItem).collect(Collectors.toList()))
+                    .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
+                    .build();
+
+            return RepositoryInstrumentation.call(Mono.defer(() -> Mono.fromFuture(context.getDynamoDbAsyncClient().transactGetItems(request))),
+                            RepositoryOperation.TRANSACT_GET, null, context)
+                    .map(response -> {
+                        final List<Object> items = new ArrayList<>(entries.size());
+
+                        RepositoryInstrumentation.consumedCapacity(RepositoryOperation.TRANSACT_GET, response.consumedCapacity(), context);
+
+                        for (int i = 0; i < entries.size(); i++) {
+                            final Map<String, AttributeValue> item = response.hasResponses() && i < response.responses().size() ?
+                                    response.responses().get(i).item() : null;
+                            final Function<Map<String, AttributeValue>, ?> entityMapper =
+                                    RepositoryInstrumentation.entityMapper(entries.get(i).getContext());
+
+                            items.add(CollectionUtils.isEmpty(item) ? null : entityMapper.apply(item));
+                        }
+
+                        return new TransactGetResult(entries, items);
+                    });
+        });
+    }
+
+    <ENTITY_TYPE> Flux<ENTITY_TYPE> batchWrite(final List<ENTITY_TYPE> putItems,
+                                               final List<ENTITY_TYPE> deleteItems,
+                                               final RepositoryContext<ENTITY_TYPE> context) {
+
+        final Func1<DataMapper<ENTITY_TYPE>, Stream<Tuple<WriteRequest, ENTITY_TYPE>>> putFunc = dataMapper ->
+                (putItems != null ? putItems : Collections.<ENTITY_TYPE>emptyList()).stream().map(item -> Tuples.of(WriteRequest.builder()
+                        .putRequest(PutRequest.builder()
+                                .item(dataMapper.mapFromEntityToAttributeValue(item))
+                                .build())
+                        .build(), item));
+        final Func1<DataMapper<ENTITY_TYPE>, Stream<Tuple<WriteRequest, ENTITY_TYPE>>> deleteFunc = dataMapper ->
+                (deleteItems != null ? deleteItems : Collections.<ENTITY_TYPE>emptyList()).stream().map(item -> Tuples.of(WriteRequest.builder()
+                        .deleteRequest(DeleteRequest.builder()
+                                .key(dataMapper.getPrimaryKey(dataMapper.createPKFromItem(item)))
+                                .build())
+                        .build(), (ENTITY_TYPE) null));
+
+        return batchWriteRequest(dataMapper -> Stream.concat(putFunc.call(dataMapper), deleteFunc.call(dataMapper)), context);
+    }
+
+    /**
+     * @param writeRequests At most 25 write requests of the table of the context
+     * @param context       Repository context
+     * @return Mono completed once all the requests are written
+     */
+    Mono<Void> batchWriteItems(final List<WriteRequest> writeRequests, final RepositoryContext<?> context) {
+        return processBatchWriteRequest(ImmutableMap.of(context.getTableName(), writeRequests), 1, context);
+    }
+
+    <ENTITY_TYPE> Mono<List<ENTITY_TYPE>> processBatchWriteRequest(final Func0<List<ENTITY_TYPE>> returnItemFunc,
+                                                                  final Map<String, List<WriteRequest>> requestItems,
+                                                                  final RepositoryContext<ENTITY_TYPE> context) {
 
-        final BatchWriteItemRequest batchWriteItemRequest;
-        final CompletableFuture<BatchWriteItemResponse> response;
+        return processBatchWriteRequest(requestItems, 1, context).then(Mono.fromSupplier(returnItemFunc::call));
+    }
 
-        batchWriteItemRequest = BatchWriteItemRequest.builder()
-                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+    /**
+     * Unprocessed items are written again after the backoff delay of the retry policy, without blocking any thread while
+     * waiting. Once the attempts are exhausted the still unprocessed requests are returned in a {@link BatchWriteException}.
+     */
+    private Mono<Void> processBatchWriteRequest(final Map<String, List<WriteRequest>> requestItems,
+                                                final int attempt,
+                                                final RepositoryContext<?> context) {
+
+        final BatchWriteItemRequest batchWriteItemRequest = BatchWriteItemRequest.builder()
+                .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
                 .returnItemCollectionMetrics(ReturnItemCollectionMetrics.SIZE)
                 .requestItems(requestItems).build();
 
-        response = DataMapperUtils.getDynamoDbAsyncClient().batchWriteItem(batchWriteItemRequest);
+        return RepositoryInstrumentation.call(Mono.defer(() -> Mono.fromFuture(context.getDynamoDbAsyncClient().batchWriteItem(batchWriteItemRequest))),
+                        RepositoryOperation.BATCH_WRITE, null, context)
+                .flatMap(res -> {
+                    final RetryPolicy retryPolicy = context.getSettings().getRetryPolicy();
 
-        return response.thenApplyAsync(res -> {
-            final boolean hasUnProcessed = res.hasUnprocessedItems();
+                    RepositoryInstrumentation.consumedCapacity(RepositoryOperation.BATCH_WRITE, res.consumedCapacity(), context);
 
-            return hasUnProcessed && !CollectionUtils.isEmpty(res.unprocessedItems()) ?
-                    Utils.getFromFromFuture(processBatchWriteRequest(returnItemFunc, res.unprocessedItems())) : returnItemFunc.call();
-        });
+                    if (!res.hasUnprocessedItems() || CollectionUtils.isEmpty(res.unprocessedItems())) {
+                        return Mono.empty();
+                    } else if (!retryPolicy.canRetry(attempt)) {
+                        return Mono.error(new BatchWriteException(MessageFormat.format("Batch write has unprocessed items after [{0}] attempts",
+                                attempt), res.unprocessedItems()));
+                    } else {
+                        RepositoryInstrumentation.retry(RepositoryOperation.BATCH_WRITE, attempt, context);
+
+                        return Mono.delay(retryPolicy.getDelay(attempt))
+                                .then(Mono.defer(() -> processBatchWriteRequest(res.unprocessedItems(), attempt + 1, context)));
+                    }
+                });
     }
 
     <ENTITY_TYPE> Mono<ENTITY_TYPE> deleteItem(final ENTITY_TYPE item,
-                                               final Supplier<Class<ENTITY_TYPE>> paramTypeFunc) {
+                                               final RepositoryContext<ENTITY_TYPE> context) {
 
         return Mono.defer(() -> {
-            final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(paramTypeFunc.get());
+            final DataMapper<ENTITY_TYPE> dataMapper = context.getDataMapper();
             final PrimaryKey primaryKey = dataMapper.createPKFromItem(item);
             final DeleteItemRequest deleteRequest = DeleteItemRequest.builder()
-                    .tableName(dataMapper.tableName())
-                    .key(dataMapper.getPrimaryKey(primaryKey)).build();
+                    .tableName(context.getTableName())
+                    .key(dataMapper.getPrimaryKey(primaryKey))
+                    .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context))
+                    .build();
 
-            return Mono.fromFuture(DataMapperUtils.getDynamoDbAsyncClient().deleteItem(deleteRequest).thenApplyAsync(deleteItemResponse -> item));
+            return Mono.fromFuture(RepositoryInstrumentation.callFuture(() -> context.getDynamoDbAsyncClient().deleteItem(deleteRequest),
+                    DeleteItemResponse::consumedCapacity, RepositoryOperation.DELETE, null, context)
+                    .whenComplete((response, e) -> invalidate(deleteRequest.key(), context))
+                    .thenApply(deleteItemResponse -> item));
         });
     }
 
 
     @SuppressWarnings("DuplicatedCode")
-    <ENTITY_TYPE> Tuple<ProjectionType, QueryPublisher> getDataFromIndex(final String indexName,
-                                                                         final String hashKeyValue,
-                                                                         final Object rangeKeyValue,
-                                                                         final Class<ENTITY_TYPE> dataClass,
-                                                                         final Expr filterExpressions) {
-
-        final AttributeMapper<ENTITY_TYPE> attributeMapper = (AttributeMapper<ENTITY_TYPE>) MapperUtils.getInstance().getAttributeMappingMap()
-                .get(dataClass.getName());
+    <ENTITY_TYPE> Tuple<ProjectionType, QueryRequest> getDataFromIndex(final String indexName,
+                                                                       final String hashKeyValue,
+                                                                       final Object rangeKeyValue,
+                                                                       final RepositoryContext<ENTITY_TYPE> context,
+                                                                       final Expr filterExpressions) {
+
+        final AttributeMapper<ENTITY_TYPE> attributeMapper = context.getAttributeMapper();
         final GSI secondaryIndex = attributeMapper.getGlobalSecondaryIndexMap().get(indexName);
 
         if (secondaryIndex == null) {
@@ -494,7 +1202,6 @@ enum BaseRepositoryUtils {
             final String keyConditionExpression = "#d = :partition_key" + (rangeKeyValue != null ? (" and " + secondaryIndex.getRangeKeyTuple()._1()
                     + " = :sort_key_val") : "");
             final QueryRequest request;
-            final QueryPublisher queryPublisher;
             final QueryRequest.Builder builder = QueryRequest.builder();
             final Map<String, String> nameMap = new HashMap<>(Map.of("#d", secondaryIndex.getHashKeyTuple()._1()));
             final Map<String, AttributeValue> attributeValueMap = new HashMap<>();
@@ -513,12 +1220,11 @@ enum BaseRepositoryUtils {
             builder.keyConditionExpression(keyConditionExpression);
             builder.expressionAttributeNames(nameMap);
             builder.expressionAttributeValues(attributeValueMap);
+            builder.returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context));
 
             request = builder.build();
 
-            queryPublisher = DataMapperUtils.getDynamoDbAsyncClient().queryPaginator(request);
-
-            return Tuples.of(secondaryIndex.getProjectionType(), queryPublisher);
+            return Tuples.of(secondaryIndex.getProjectionType(), request);
         }
     }
 
@@ -556,24 +1262,171 @@ enum BaseRepositoryUtils {
         });
     }
 
+    /**
+     * Returns the context bound to the repository. The context is resolved the first time the repository is used (or when
+     * the application context finishes initializing) and reused for every subsequent call.
+     *
+     * @param baseRepository Repository
+     * @return Context of the repository
+     */
+    <ENTITY_TYPE> RepositoryContext<ENTITY_TYPE> getRepositoryContext(final DynamoDbRepository<ENTITY_TYPE> baseRepository) {
+        final RepositoryContext<?> context = repositoryContextMap.get(baseRepository.getClass());
+
+        return (RepositoryContext<ENTITY_TYPE>) (context != null ? context : repositoryContextMap.computeIfAbsent(baseRepository.getClass(),
+                s -> RepositoryContext.create(getRepoParameterType(baseRepository))));
+    }
+
+    /**
+     * Drops the contexts bound so far, so that the repositories of a new application context are bound to its own client,
+     * data mappers and settings.
+     */
+    void clearRepositoryContexts() {
+        repositoryContextMap.clear();
+    }
+
     <ENTITY_TYPE> Flux<ENTITY_TYPE> findByHashKeyAndRangeKeyStartsWithPagination(final String hashKey,
                                                                                  final Object hashKeyValueObj,
                                                                                  final String rangeKey,
                                                                                  final String rangeKeyValue,
                                                                                  final Page page,
                                                                                  @Nullable final String indexName,
-                                                                                 final Class<ENTITY_TYPE> dataClass,
+                                                                                 final RepositoryContext<ENTITY_TYPE> context,
                                                                                  @Nullable final Expr expr) {
 
-        if ((hashKeyValueObj instanceof String) || hashKeyValueObj instanceof Number) {
+        return findByHashKeyAndRangeKeyStartsWithPagination(hashKey, hashKeyValueObj, rangeKey, rangeKeyValue, page, NO_MAX_RESULTS,
+                indexName, null, RepositoryInstrumentation.entityMapper(context), context, expr);
+    }
+
+    /**
+     * @param maxResults Number of records after which the query stops, {@link #NO_MAX_RESULTS} to read all the records
+     * @param projection Attributes to fetch, null to fetch the whole items
+     * @param mapper     Mapping of the (projected) items
+     */
+    <R> Flux<R> findByHashKeyAndRangeKeyStartsWithPagination(final String hashKey,
+                                                             final Object hashKeyValueObj,
+                                                             final String rangeKey,
+                                                             final String rangeKeyValue,
+                                                             final Page page,
+                                                             final int maxResults,
+                                                             @Nullable final String indexName,
+                                                             @Nullable final Projection projection,
+                                                             final Function<Map<String, AttributeValue>, R> mapper,
+                                                             final RepositoryContext<?> context,
+                                                             @Nullable final Expr expr) {
+
+        final QueryRequest.Builder builder = getQueryRequestBuilder(hashKey, hashKeyValueObj, rangeKey, rangeKeyValue, indexName,
+                projection, context, expr);
+        final QueryRequest queryRequest;
+
+        if (page != null) {
+            builder.limit(page.getPageSize());
+
+            if (page.getLastEndKey() != null) {
+                final String lastEndKeyVal = (String) page.getLastEndKey().getRangeKeyValue();
+
+                if (!StringUtils.hasText(rangeKeyValue) || lastEndKeyVal.startsWith(rangeKeyValue)) {
+                    builder.exclusiveStartKey(context.getDataMapper().getPrimaryKey(page.getLastEndKey()));
+                } else {
+                    return Flux.error(new DbException("INVALID_RANGE_KEY_VALUE"));
+                }
+            }
+        }
+
+        queryRequest = builder.build();
+
+        return limitResults(resultLimit -> queryPages(queryRequest, indexName, resultLimit, context), QueryResponse::items,
+                page != null ? page.getPageSize() : Integer.MAX_VALUE, maxResults)
+                .map(mapper);
+    }
+
+    /**
+     * Reads a single page with one Query call, unlike the paginated queries that keep reading until all the matching records
+     * are consumed.
+     *
+     * @param pageSize  Maximum number of records read (before the filter expression is applied)
+     * @param pageToken Token returned with the previous page, null for the first page
+     * @return Page of records and the token of the next page
+     */
+    <R> Mono<PageResult<R>> findPageByHashKey(final String hashKey,
+                                              final Object hashKeyValueObj,
+                                              @Nullable final String rangeKey,
+                                              @Nullable final String rangeKeyValue,
+                                              final int pageSize,
+                                              @Nullable final String pageToken,
+                                              @Nullable final String indexName,
+                                              @Nullable final Projection projection,
+                                              final Function<Map<String, AttributeValue>, R> mapper,
+                                              final RepositoryContext<?> context,
+                                              @Nullable final Expr expr) {
+
+        return Mono.defer(() -> {
+            final QueryRequest.Builder builder = getQueryRequestBuilder(hashKey, hashKeyValueObj, rangeKey, rangeKeyValue, indexName,
+                    projection, context, expr).limit(pageSize);
             final QueryRequest request;
-            final QueryPublisher queryResponse;
+
+            if (pageToken != null) {
+                builder.exclusiveStartKey(PageTokens.decode(pageToken));
+            }
+
+            request = builder.build();
+
+            //Single page: the last evaluated key goes to the caller as the token of the next page
+            return RepositoryInstrumentation.pages(startKey -> context.getDynamoDbAsyncClient().query(request), response -> null,
+                            QueryResponse::count, QueryResponse::consumedCapacity, RepositoryOperation.QUERY, indexName, context)
+                    .next()
+                    .map(response -> PageResult.of(response.items().stream().map(mapper).collect(Collectors.toList()),
+                            PageTokens.encode(response.lastEvaluatedKey())));
+        });
+    }
+
+    /**
+     * Reads a single page with one Scan call.
+     *
+     * @param pageSize  Maximum number of records read (before the filter expression is applied)
+     * @param pageToken Token returned with the previous page, null for the first page
+     * @return Page of records and the token of the next page
+     */
+    <R> Mono<PageResult<R>> findAllPage(@Nullable final Expr expr,
+                                        final int pageSize,
+                                        @Nullable final String pageToken,
+                                        @Nullable final Projection projection,
+                                        final Function<Map<String, AttributeValue>, R> mapper,
+                                        final RepositoryContext<?> context) {
+
+        return Mono.defer(() -> {
+            final ScanRequest.Builder builder = getScanRequestBuilder(expr, pageSize, projection, context);
+            final ScanRequest request;
+
+            if (pageToken != null) {
+                builder.exclusiveStartKey(PageTokens.decode(pageToken));
+            }
+
+            request = builder.build();
+
+            //Single page: the last evaluated key goes to the caller as the token of the next page
+            return RepositoryInstrumentation.pages(startKey -> context.getDynamoDbAsyncClient().scan(request), response -> null,
+                            ScanResponse::count, ScanResponse::consumedCapacity, RepositoryOperation.SCAN, null, context)
+                    .next()
+                    .map(response -> PageResult.of(response.items().stream().map(mapper).collect(Collectors.toList()),
+                            PageTokens.encode(response.lastEvaluatedKey())));
+        });
+    }
+
+    private QueryRequest.Builder getQueryRequestBuilder(final String hashKey,
+                                                        final Object hashKeyValueObj,
+                                                        final String rangeKey,
+                                                        final String rangeKeyValue,
+                                                        @Nullable final String indexName,
+                                                        @Nullable final Projection projection,
+                                                        final RepositoryContext<?> context,
+                                                        @Nullable final Expr expr) {
+
+        if ((hashKeyValueObj instanceof String) || hashKeyValueObj instanceof Number) {
             final Map<String, String> nameMap = new HashMap<>();
             final Map<String, AttributeValue> attributeValueMap = new HashMap<>();
             final String hashAlias = "#a";
             final String keyConditionExpression;
             final QueryRequest.Builder builder = QueryRequest.builder();
-            final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(dataClass);
 
 
             if (StringUtils.hasText(rangeKey) && StringUtils.hasText(rangeKeyValue)) {
@@ -600,32 +1453,16 @@ enum BaseRepositoryUtils {
 
             setFilterExpression(expr, builder, nameMap, attributeValueMap);
 
-            if (page != null) {
-                builder.limit(page.getPageSize());
-
-                if (page.getLastEndKey() != null) {
-                    final String lastEndKeyVal = (String) page.getLastEndKey().getRangeKeyValue();
-
-                    if (!StringUtils.hasText(rangeKeyValue) || lastEndKeyVal.startsWith(rangeKeyValue)) {
-                        builder.exclusiveStartKey(dataMapper.getPrimaryKey(page.getLastEndKey()));
-                    } else {
-                        return Flux.error(new DbException("INVALID_RANGE_KEY_VALUE"));
-                    }
-                }
+            if (projection != null) {
+                builder.projectionExpression(getProjectionExpression(projection, nameMap, context));
             }
 
-            request = builder
-                    .tableName(dataMapper.tableName())
+            return builder
+                    .tableName(context.getTableName())
                     .keyConditionExpression(keyConditionExpression)
                     .expressionAttributeNames(nameMap)
                     .expressionAttributeValues(attributeValueMap)
-                    .build();
-
-            queryResponse = DataMapperUtils.getDynamoDbAsyncClient().queryPaginator(request);
-
-            return Flux.from(queryResponse)
-                    .flatMapIterable(QueryResponse::items)
-                    .map(dataMapper::mapFromAttributeValueToEntity);
+                    .returnConsumedCapacity(RepositoryInstrumentation.returnConsumedCapacity(context));
         } else {
             throw new DbException("Currently only String/Number types are supported for hashKey Values");
         }
@@ -0,0 +1,265 @@
+package org.leo.aws.ddb.repositories;
+
+import org.leo.aws.ddb.annotations.DbAttribute;
+import org.leo.aws.ddb.data.PrimaryKey;
+import org.leo.aws.ddb.data.UpdateExpr;
+import org.leo.aws.ddb.exceptions.DbException;
+import org.leo.aws.ddb.utils.DbUtils;
+import org.leo.aws.ddb.utils.Expr;
+import org.leo.aws.ddb.utils.NestedAttributeCodec;
+import org.leo.aws.ddb.utils.Tuple;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * {@link UpdateExpr} translated to the UpdateExpression, ConditionExpression and placeholders of an UpdateItem call. The
+ * update only applies to an existing item, and increments the version attribute of versioned entities.
+ */
+final class CompiledUpdate {
+    private final Map<String, AttributeValue> key;
+    private final String updateExpression;
+    private final String conditionExpression;
+    private final Map<String, String> attributeNames;
+    private final Map<String, AttributeValue> attributeValues;
+    private final boolean conditional;
+
+    private CompiledUpdate(final Map<String, AttributeValue> key,
+                           final String updateExpression,
+                           final String conditionExpression,
+                           final Map<String, String> attributeNames,
+                           final Map<String, AttributeValue> attributeValues,
+                           final boolean conditional) {
+
+        this.key = key;
+        this.updateExpression = updateExpression;
+        this.conditionExpression = conditionExpression;
+        this.attributeNames = attributeNames;
+        this.attributeValues = attributeValues;
+        this.conditional = conditional;
+    }
+
+    static <ENTITY_TYPE> CompiledUpdate of(final PrimaryKey primaryKey,
+                                           final UpdateExpr updateExpr,
+                                           final RepositoryContext<ENTITY_TYPE> context) {
+
+        return of(primaryKey, updateExpr, context.getAttributeMapper().getMappedFields(),
+                context.getAttributeMapper().getVersionAttributeField(), context.getDataMapper().getPrimaryKey(primaryKey),
+                context.getTableName());
+    }
+
+    /**
+     * @param mappedFields       Fields of the entity by attribute name
+     * @param versionedAttribute Version attribute of the entity, null if the entity is not versioned
+     * @param key                Attribute values of the primary key
+     * @param tableName          Table name
+     */
+    static CompiledUpdate of(final PrimaryKey primaryKey,
+                             final UpdateExpr updateExpr,
+                             final Map<String, Tuple<Field, DbAttribute>> mappedFields,
+                             final Tuple<Field, DbAttribute> versionedAttribute,
+                             final Map<String, AttributeValue> key,
+                             final String tableName) {
+
+        final Map<String, String> attributeNames = new HashMap<>();
+        final Map<String, AttributeValue> attributeValues = new HashMap<>();
+        final StringJoiner setActions = new StringJoiner(", ", "SET ", " ").setEmptyValue("");
+        final StringJoiner addActions = new StringJoiner(", ", "ADD ", " ").setEmptyValue("");
+        final StringJoiner removeActions = new StringJoiner(", ", "REMOVE ", " ").setEmptyValue("");
+        final List<String> conditions = new ArrayList<>();
+        int index = 0;
+
+        for (final UpdateExpr.Action action : updateExpr.getActions()) {
+            final String attributeName = action.getAttributeName();
+            final String name = "#u" + index;
+            final String value = ":u" + index;
+
+            if (attributeName.equals(primaryKey.getHashKeyName()) || attributeName.equals(primaryKey.getRangeKeyName())) {
+                throw new DbException(MessageFormat.format("Key attribute [{0}] cannot be updated", attributeName));
+            } else if (versionedAttribute != null && attributeName.equals(versionedAttribute._2().value())) {
+                throw new DbException(MessageFormat.format("Version attribute [{0}] is incremented by the update", attributeName));
+            }
+
+            attributeNames.put(name, attributeName);
+
+            switch (action.getType()) {
+                case SET:
+                    setActions.add(name + " = " + value);
+                    attributeValues.put(value, toAttributeValue(mappedFields.get(attributeName), action.getValue()));
+                    break;
+                case SET_IF_NOT_EXISTS:
+                    setActions.add(name + " = if_not_exists(" + name + ", " + value + ")");
+                    attributeValues.put(value, toAttributeValue(mappedFields.get(attributeName), action.getValue()));
+                    break;
+                case APPEND_TO_LIST:
+                    if (isStoredAsSet(attributeName, mappedFields.get(attributeName))) {
+                        //String and number collections are stored as SS/NS, list_append only applies to L
+                        addActions.add(name + " " + value);
+                        attributeValues.put(value, toSetAttributeValue(attributeName, (List<?>) action.getValue()));
+                    } else {
+                        setActions.add(name + " = list_append(if_not_exists(" + name + ", :uempty), " + value + ")");
+                        attributeValues.put(value, toListAttributeValue((List<?>) action.getValue()));
+                        attributeValues.put(":uempty", AttributeValue.builder().l(Collections.emptyList()).build());
+                    }
+                    break;
+                case ADD:
+                    addActions.add(name + " " + value);
+                    attributeValues.put(value, NestedAttributeCodec.encode(action.getValue()));
+                    break;
+                default:
+                    removeActions.add(name);
+                    break;
+            }
+
+            index++;
+        }
+
+        attributeNames.put("#ukey", primaryKey.getHashKeyName());
+        conditions.add("attribute_exists(#ukey)");
+
+        if (versionedAttribute != null) {
+            attributeNames.put("#uver", versionedAttribute._2().value());
+            attributeValues.put(":uzero", AttributeValue.builder().n("0").build());
+            attributeValues.put(":uone", AttributeValue.builder().n("1").build());
+            setActions.add("#uver = if_not_exists(#uver, :uzero) + :uone");
+
+            if (updateExpr.getExpectedVersion() != null) {
+                attributeValues.put(":uexpected", NestedAttributeCodec.encode(updateExpr.getExpectedVersion()));
+                conditions.add("#uver = :uexpected");
+            }
+        } else if (updateExpr.getExpectedVersion() != null) {
+            throw new DbException(MessageFormat.format("[{0}] has no version attribute", tableName));
+        }
+
+        if (updateExpr.getCondition() != null) {
+            final Expr condition = updateExpr.getCondition();
+
+            conditions.add("(" + condition.expression() + ")");
+
+            if (condition.attributeNameMap() != null) {
+                putConditionPlaceholders(attributeNames, condition.attributeNameMap());
+            }
+
+            if (condition.attributeValueMap() != null) {
+                putConditionPlaceholders(attributeValues, condition.attributeValueMap());
+            }
+        }
+
+        return new CompiledUpdate(key,
+                (setActions.toString() + addActions.toString() + removeActions.toString()).trim(),
+                String.join(" AND ", conditions),
+                attributeNames,
+                attributeValues,
+                updateExpr.getExpectedVersion() != null || updateExpr.getCondition() != null);
+    }
+
+    /**
+     * Adds the placeholders of the user condition, which must not replace the ones generated for the update.
+     */
+    private static <V> void putConditionPlaceholders(final Map<String, V> placeholders, final Map<String, V> conditionPlaceholders) {
+        for (final Map.Entry<String, V> entry : conditionPlaceholders.entrySet()) {
+            if (placeholders.putIfAbsent(entry.getKey(), entry.getValue()) != null) {
+                throw new DbException(MessageFormat.format("Condition placeholder [{0}] collides with a placeholder of the update",
+                        entry.getKey()));
+            }
+        }
+    }
+
+    private static AttributeValue toAttributeValue(final Tuple<Field, DbAttribute> mappedField, final Object value) {
+        if (value instanceof AttributeValue || mappedField == null) {
+            return NestedAttributeCodec.encode(value);
+        } else {
+            return DbUtils.modelToAttributeValueConverter(mappedField._1()).call(value);
+        }
+    }
+
+    /**
+     * @return true if the mapped field is a collection of strings or numbers (SS/NS), false for a list stored as L
+     */
+    private static boolean isStoredAsSet(final String attributeName, final Tuple<Field, DbAttribute> mappedField) {
+        if (mappedField == null) {
+            return false;
+        }
+
+        final Field field = mappedField._1();
+        final Class<?> elementType;
+
+        if (field.getType().isArray()) {
+            elementType = field.getType().getComponentType();
+        } else if (Collection.class.isAssignableFrom(field.getType()) && field.getGenericType() instanceof ParameterizedType) {
+            final Type typeArgument = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+
+            elementType = typeArgument instanceof Class ? (Class<?>) typeArgument : Object.class;
+        } else {
+            throw new DbException(MessageFormat.format("Attribute [{0}] is not a list, values cannot be appended to it", attributeName));
+        }
+
+        return elementType == String.class || Number.class.isAssignableFrom(elementType)
+                || elementType == int.class || elementType == long.class || elementType == double.class;
+    }
+
+    private static AttributeValue toSetAttributeValue(final String attributeName, final List<?> values) {
+        final AttributeValue attributeValue = NestedAttributeCodec.encode(values);
+
+        if (!attributeValue.hasSs() && !attributeValue.hasNs()) {
+            throw new DbException(MessageFormat.format("Attribute [{0}] is a set of strings or numbers, [{1}] cannot be added to it",
+                    attributeName, values));
+        }
+
+        return attributeValue;
+    }
+
+    private static AttributeValue toListAttributeValue(final List<?> values) {
+        final List<AttributeValue> attributeValues = new ArrayList<>(values.size());
+
+        for (final Object value : values) {
+            attributeValues.add(NestedAttributeCodec.encode(value));
+        }
+
+        return AttributeValue.builder().l(attributeValues).build();
+    }
+
+    Map<String, AttributeValue> getKey() {
+        return key;
+    }
+
+    /**
+     * @return true if the update has a condition besides the existence of the item (expected version, user condition)
+     */
+    boolean isConditional() {
+        return conditional;
+    }
+
+    UpdateItemRequest.Builder toUpdateItemRequest(final String tableName) {
+        return UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(key)
+                .updateExpression(updateExpression)
+                .conditionExpression(conditionExpression)
+                .expressionAttributeNames(attributeNames)
+                .expressionAttributeValues(attributeValues);
+    }
+
+    Update toTransactUpdate(final String tableName) {
+        return Update.builder()
+                .tableName(tableName)
+                .key(key)
+                .updateExpression(updateExpression)
+                .conditionExpression(conditionExpression)
+                .expressionAttributeNames(attributeNames)
+                .expressionAttributeValues(attributeValues)
+                .build();
+    }
+}
@@ -8,7 +8,6 @@ import org.leo.aws.ddb.data.PrimaryKey;
 import org.leo.aws.ddb.utils.DbUtils;
 import org.leo.aws.ddb.utils.Tuple;
 import org.leo.aws.ddb.utils.Tuple4;
-import org.leo.aws.ddb.utils.Tuples;
 import org.leo.aws.ddb.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,12 +15,10 @@ import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 interface DataMapper<T> {
@@ -33,21 +30,10 @@ interface DataMapper<T> {
      * @param attributeValues Attribute values returned by the AWS DynamoDB SDK
      * @return The entity object representing the attribute value passed.
      */
-    @SuppressWarnings("unchecked")
     default T mapFromAttributeValueToEntity(final Map<String, AttributeValue> attributeValues) {
-        final AttributeMapper<T> fieldMapping = (AttributeMapper<T>) MapperUtils.getInstance().getAttributeMappingMap().get(getParameterType().getName());
-        final Constructor<T> constructor = fieldMapping.getConstructor();
-        final T mappedObject = Utils.constructObject(constructor);
-        final Map<String, Tuple<Field, DbAttribute>> fieldMap = fieldMapping.getMappedFields();
-
-        attributeValues
-                .entrySet()
-                .stream()
-                .filter(a -> (fieldMap.get(a.getKey()) != null))
-                .forEach(entry -> ReflectionUtils.setField(fieldMap.get(entry.getKey())._1(), mappedObject,
-                        DbUtils.attributeToModel(fieldMap.get(entry.getKey())._1()).call(entry.getValue())));
-
-        return mappedObject;
+        final AttributeMapper<T> fieldMapping = getAttributeMapper();
+
+        return fieldMapping.getEntityCodec().decode(attributeValues);
     }
 
     /**
@@ -55,21 +41,14 @@ interface DataMapper<T> {
      * @param input Entity Object
      * @return Attribute name to value mapping.
      */
-    @SuppressWarnings("unchecked")
     default Map<String, AttributeValue> mapFromEntityToAttributeValue(final T input) {
-        final AttributeMapper<T> fieldMapping = (AttributeMapper<T>) MapperUtils.getInstance().getAttributeMappingMap().get(getParameterType().getName());
-        final Map<String, Tuple<Field, DbAttribute>> fieldMap = fieldMapping.getMappedFields();
-
-        return fieldMapping.getMappedFields().keySet().stream()
-                .map(key -> Tuples.of(key, ReflectionUtils.getField(fieldMap.get(key)._1(), input)))
-                .filter(a -> a._2() != null)
-                .map(t -> Tuples.of(t._1(), DbUtils.modelToAttributeValue(fieldMap.get(t._1())._1(), t._2()).call(AttributeValue.builder()).build()))
-                .collect(Collectors.toMap(Tuple::_1, Tuple::_2));
+        final AttributeMapper<T> fieldMapping = getAttributeMapper();
+
+        return fieldMapping.getEntityCodec().encode(input);
     }
 
-    @SuppressWarnings("unchecked")
     default Tuple<Field, DbAttribute> getVersionedAttribute() {
-        final AttributeMapper<T> fieldMapping = (AttributeMapper<T>) MapperUtils.getInstance().getAttributeMappingMap().get(getParameterType().getName());
+        final AttributeMapper<T> fieldMapping = getAttributeMapper();
 
         return fieldMapping.getVersionAttributeField();
     }
@@ -113,9 +92,8 @@ interface DataMapper<T> {
     /**
      * Generate the primary key (hash key/range key combination) from the entity passed.
      */
-    @SuppressWarnings("unchecked")
     default PrimaryKey createPKFromItem(final T item) {
-        final AttributeMapper<T> fieldMapping = (AttributeMapper<T>) MapperUtils.getInstance().getAttributeMappingMap().get(getParameterType().getName());
+        final AttributeMapper<T> fieldMapping = getAttributeMapper();
         final Map<KeyType, Tuple<String, Field>> pkMap = fieldMapping.getPrimaryKeyMapping();
         final Tuple<String, Field> hashKeyTuple = pkMap.get(KeyType.HASH_KEY);
         final Tuple<String, Field> rangeKeyTuple = pkMap.get(KeyType.RANGE_KEY);
@@ -147,12 +125,21 @@ interface DataMapper<T> {
      */
     Class<T> getParameterType();
 
+    /**
+     *
+     * @return Attribute mapping registered for the entity class
+     */
+    @SuppressWarnings("unchecked")
+    default AttributeMapper<T> getAttributeMapper() {
+        return (AttributeMapper<T>) MapperUtils.getInstance().getAttributeMappingMap().get(getParameterType().getName());
+    }
+
     /**
      *
      * @return name of the DDB table name the entity class represents
      */
     default String tableName() {
-        return MapperUtils.getInstance().getAttributeMappingMap().get(getParameterType().getName()).getTableName();
+        return getAttributeMapper().getTableName();
     }
 
     /**
@@ -170,6 +157,6 @@ interface DataMapper<T> {
      * @return Primary key mapping
      */
     default Map<KeyType, Tuple<String, Field>> getPKMapping() {
-        return MapperUtils.getInstance().getAttributeMappingMap().get(getParameterType().getName()).getPrimaryKeyMapping();
+        return getAttributeMapper().getPrimaryKeyMapping();
     }
 }
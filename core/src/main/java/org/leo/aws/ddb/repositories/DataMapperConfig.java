@@ -44,6 +44,11 @@ public class DataMapperConfig {
         }
     }
 
+    @Bean
+    RepositoryContextInitializer repositoryContextInitializer() {
+        return new RepositoryContextInitializer(applicationContext);
+    }
+
     private Class getParameterType(final DataMapper<?> dataMapper) {
         return dataMapper.getParameterType();
     }
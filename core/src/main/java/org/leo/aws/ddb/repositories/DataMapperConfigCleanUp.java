@@ -25,6 +25,8 @@ public class DataMapperConfigCleanUp {
 
     @PostConstruct
     public void mapDataObjectsWithoutMapper() {
+        BaseRepositoryUtils.getInstance().clearRepositoryContexts();
+
         final Reflections reflections = new Reflections(new ConfigurationBuilder().setUrls(ClasspathHelper.forPackage(
                 dtoBasePackage, ClasspathHelper.contextClassLoader(),
                 ClasspathHelper.staticClassLoader())));
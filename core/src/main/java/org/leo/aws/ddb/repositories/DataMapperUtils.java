@@ -1,11 +1,16 @@
 package org.leo.aws.ddb.repositories;
 
+import org.leo.aws.ddb.config.RepositorySettings;
 import org.leo.aws.ddb.utils.ApplicationContextUtils;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 
 import java.util.Map;
 
 
+/**
+ * Lookups of the beans of the current application context. Nothing is cached here: the results are held by the
+ * {@link RepositoryContext} of each repository, which is resolved once.
+ */
 @SuppressWarnings("unchecked")
 final class DataMapperUtils {
     private DataMapperUtils(){}
@@ -18,6 +23,11 @@ final class DataMapperUtils {
         return ApplicationContextUtils.getInstance().getBean(DynamoDbAsyncClient.class);
     }
 
+    static RepositorySettings getRepositorySettings() {
+        return ApplicationContextUtils.getInstance().getApplicationContext().getBeanProvider(RepositorySettings.class)
+                .getIfAvailable(RepositorySettings::defaults);
+    }
+
     private static Map<Class<?>, ? extends DataMapper<?>> getDataMapperMap() {
         return ApplicationContextUtils.getInstance().getBean("dataMapperMap");
     }
@@ -4,9 +4,14 @@ package org.leo.aws.ddb.repositories;
 import org.leo.aws.ddb.annotations.DbAttribute;
 import org.leo.aws.ddb.annotations.KeyType;
 import org.leo.aws.ddb.data.Page;
+import org.leo.aws.ddb.data.PageResult;
 import org.leo.aws.ddb.data.PatchUpdate;
 import org.leo.aws.ddb.data.PrimaryKey;
+import org.leo.aws.ddb.data.Projection;
+import org.leo.aws.ddb.data.RetryPolicy;
+import org.leo.aws.ddb.data.UpdateExpr;
 import org.leo.aws.ddb.data.UpdateItem;
+import org.leo.aws.ddb.data.UpdateResult;
 import org.leo.aws.ddb.exceptions.DbException;
 import org.leo.aws.ddb.utils.*;
 import org.springframework.lang.NonNull;
@@ -21,11 +26,11 @@ import software.amazon.awssdk.services.dynamodb.model.PutRequest;
 import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 import java.lang.reflect.Field;
-import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -34,14 +39,14 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
     int DEFAULT_PAGE_SIZE = 20;
 
     default DynamoDbAsyncClient dynamoDbClient() {
-        return DataMapperUtils.getDynamoDbAsyncClient();
+        return BaseRepositoryUtils.getInstance().getRepositoryContext(this).getDynamoDbAsyncClient();
     }
 
     /**
      * @return Range Key name
      */
     default String getRangeKeyName() {
-        return DataMapperUtils.getDataMapper(getParameterType()).getPKMapping().get(KeyType.RANGE_KEY)._1();
+        return BaseRepositoryUtils.getInstance().getRepositoryContext(this).getDataMapper().getPKMapping().get(KeyType.RANGE_KEY)._1();
     }
 
     /**
@@ -52,22 +57,14 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
     }
 
     default PrimaryKey getPrimaryKey(final ENTITY_TYPE item) {
-        return DataMapperUtils.getDataMapper(getParameterType()).createPKFromItem(item);
+        return BaseRepositoryUtils.getInstance().getRepositoryContext(this).getDataMapper().createPKFromItem(item);
     }
 
     /**
      * @return hash key name of the entity
      */
     default String getHashKeyName() {
-        final Class<ENTITY_TYPE> type = getParameterType();
-        final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(getParameterType());
-
-        if (dataMapper == null) {
-            throw new DbException(MessageFormat.format("Could not find any entity of type [{0}] in the provided entityBasePackage [service.aws.ddb.entityBasePackage: {1}]",
-                    type.getName(), ApplicationContextUtils.getInstance().getEnvironment().getProperty("service.aws.ddb.entityBasePackage")));
-        }
-
-        return dataMapper.getPKMapping().get(KeyType.HASH_KEY)._1();
+        return BaseRepositoryUtils.getInstance().getRepositoryContext(this).getDataMapper().getPKMapping().get(KeyType.HASH_KEY)._1();
     }
 
 
@@ -79,8 +76,7 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return Map
      */
     default Map<String, ?> getFieldMappings(final ENTITY_TYPE item, final boolean includeNullValues) {
-        final Class<ENTITY_TYPE> paramType = getParameterType();
-        final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(paramType);
+        final DataMapper<ENTITY_TYPE> dataMapper = BaseRepositoryUtils.getInstance().getRepositoryContext(this).getDataMapper();
         final PrimaryKey primaryKey = dataMapper.createPKFromItem(item);
         final Stream<Tuple4<String, Object, Field, DbAttribute>> fieldMappings = dataMapper.getMappedValues(item)
                 .filter(a -> !a._1().equals(primaryKey.getHashKeyName())).filter(a -> !a._1().equals(primaryKey.getRangeKeyName()));
@@ -281,10 +277,133 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
                 rangeKeyValue,
                 page,
                 indexName,
-                getParameterType(),
+                BaseRepositoryUtils.getInstance().getRepositoryContext(this),
                 expr);
     }
 
+    /**
+     * @param hashKeyName     Hash Key Name
+     * @param hashKeyValueObj Hash Key Value
+     * @param indexName       Index name
+     * @param expr            Filter Expression
+     * @param projection      Attributes to fetch, the other attributes are left null
+     * @return Records matching above criteria
+     */
+    default Flux<ENTITY_TYPE> findByHashKey(final String hashKeyName,
+                                            final Object hashKeyValueObj,
+                                            @Nullable final String indexName,
+                                            @Nullable final Expr expr,
+                                            @NonNull final Projection projection) {
+
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findByHashKeyAndRangeKeyStartsWithPagination(hashKeyName, hashKeyValueObj, null,
+                null, null, BaseRepositoryUtils.NO_MAX_RESULTS, indexName, projection, RepositoryInstrumentation.entityMapper(context),
+                context, expr);
+    }
+
+    /**
+     * @param hashKeyName     Hash Key Name
+     * @param hashKeyValueObj Hash Key Value
+     * @param indexName       Index name
+     * @param expr            Filter Expression
+     * @param projectionType  Class whose fields name the attributes to fetch
+     * @return Records matching above criteria, mapped to the projection type
+     */
+    default <P> Flux<P> findByHashKey(final String hashKeyName,
+                                      final Object hashKeyValueObj,
+                                      @Nullable final String indexName,
+                                      @Nullable final Expr expr,
+                                      @NonNull final Class<P> projectionType) {
+
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findByHashKeyAndRangeKeyStartsWithPagination(hashKeyName, hashKeyValueObj, null,
+                null, null, BaseRepositoryUtils.NO_MAX_RESULTS, indexName, Projection.of(projectionType),
+                RepositoryInstrumentation.projectionMapper(projectionType, context), context, expr);
+    }
+
+    /**
+     * Stops reading once {@code maxResults} records are returned, instead of querying all the records of the hash key. With a
+     * filter expression the page size grows with the share of the records read that match the filter.
+     *
+     * @param hashKeyName     Hash Key Name
+     * @param hashKeyValueObj Hash Key Value
+     * @param indexName       Index name
+     * @param expr            Filter Expression
+     * @param maxResults      Maximum number of records returned
+     * @return At most maxResults records matching above criteria
+     */
+    default Flux<ENTITY_TYPE> findByHashKey(final String hashKeyName,
+                                            final Object hashKeyValueObj,
+                                            @Nullable final String indexName,
+                                            @Nullable final Expr expr,
+                                            final int maxResults) {
+
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findByHashKeyAndRangeKeyStartsWithPagination(hashKeyName, hashKeyValueObj, null,
+                null, null, maxResults, indexName, null, RepositoryInstrumentation.entityMapper(context), context, expr);
+    }
+
+    /**
+     * Reads one page of the records of a hash key with a single Query call.
+     *
+     * @param hashKeyValueObj Hash Key Value
+     * @param pageSize        Maximum number of records in the page
+     * @param pageToken       Token returned with the previous page, null for the first page
+     * @return Page of records and the token of the next page
+     */
+    default Mono<PageResult<ENTITY_TYPE>> findPageByHashKey(final Object hashKeyValueObj,
+                                                            final int pageSize,
+                                                            @Nullable final String pageToken) {
+
+        return findPageByHashKey(getHashKeyName(), hashKeyValueObj, null, null, pageSize, pageToken, null, null);
+    }
+
+    /**
+     * Reads one page with a single Query call. With a filter expression a page can hold fewer records than the page size
+     * (even none) while there are more pages, since DynamoDB filters the records after reading the page.
+     *
+     * @param hashKey         Hash Key Name
+     * @param hashKeyValueObj Hash Key Value
+     * @param rangeKey        Range Key Name
+     * @param rangeKeyValue   Prefix of the range key values, null for all the records of the hash key
+     * @param pageSize        Maximum number of records read
+     * @param pageToken       Token returned with the previous page, null for the first page
+     * @param indexName       Index name
+     * @param expr            Filter Expression
+     * @return Page of records and the token of the next page
+     */
+    default Mono<PageResult<ENTITY_TYPE>> findPageByHashKey(final String hashKey,
+                                                            final Object hashKeyValueObj,
+                                                            @Nullable final String rangeKey,
+                                                            @Nullable final String rangeKeyValue,
+                                                            final int pageSize,
+                                                            @Nullable final String pageToken,
+                                                            @Nullable final String indexName,
+                                                            @Nullable final Expr expr) {
+
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findPageByHashKey(hashKey, hashKeyValueObj, rangeKey, rangeKeyValue, pageSize,
+                pageToken, indexName, null, RepositoryInstrumentation.entityMapper(context), context, expr);
+    }
+
+    /**
+     * Reads one page of the table with a single Scan call.
+     *
+     * @param expr      Filter Expression
+     * @param pageSize  Maximum number of records read
+     * @param pageToken Token returned with the previous page, null for the first page
+     * @return Page of records and the token of the next page
+     */
+    default Mono<PageResult<ENTITY_TYPE>> findAllPage(@Nullable final Expr expr, final int pageSize, @Nullable final String pageToken) {
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findAllPage(expr, pageSize, pageToken, null, RepositoryInstrumentation.entityMapper(context), context);
+    }
+
     /**
      * Queries by GSI name and the hash key value used for the index
      *
@@ -337,9 +456,7 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
         return BaseRepositoryUtils.getInstance().findByGlobalSecondaryIndex(indexName,
                 hashKeyValueObj,
                 rangeKeyValue,
-                this::getPrimaryKey,
-                this::getParameterType,
-                pks -> BaseRepositoryUtils.getInstance().findByPrimaryKeys(pks, this::getParameterType),
+                BaseRepositoryUtils.getInstance().getRepositoryContext(this),
                 expr);
     }
 
@@ -369,7 +486,7 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return List of all records
      */
     default Flux<ENTITY_TYPE> findAll(final int limit) {
-        return BaseRepositoryUtils.getInstance().findAll(limit, this::getParameterType);
+        return BaseRepositoryUtils.getInstance().findAll(limit, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
     }
 
     /**
@@ -386,7 +503,72 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return All records that satisfy the filter criteria
      */
     default Flux<ENTITY_TYPE> findAll(@Nullable final Expr expr, final int limit) {
-        return BaseRepositoryUtils.getInstance().findAll(expr, limit, this::getParameterType);
+        return BaseRepositoryUtils.getInstance().findAll(expr, limit, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
+    }
+
+    /**
+     * Stops scanning once {@code maxResults} records are returned, instead of scanning the whole table. Pages hold the records
+     * still wanted and, with a filter expression, grow with the share of the records read that match the filter.
+     *
+     * @param expr       Filter Expression
+     * @param limit      Largest page size
+     * @param maxResults Maximum number of records returned
+     * @return At most maxResults records that satisfy the filter criteria
+     */
+    default Flux<ENTITY_TYPE> findAll(@Nullable final Expr expr, final int limit, final int maxResults) {
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findAll(expr, limit, maxResults, null, RepositoryInstrumentation.entityMapper(context), context);
+    }
+
+    /**
+     * @param expr       Filter Expression
+     * @param limit      Page size
+     * @param projection Attributes to fetch, the other attributes are left null
+     * @return All records that satisfy the filter criteria
+     */
+    default Flux<ENTITY_TYPE> findAll(@Nullable final Expr expr, final int limit, @NonNull final Projection projection) {
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findAll(expr, limit, BaseRepositoryUtils.NO_MAX_RESULTS, projection,
+                RepositoryInstrumentation.entityMapper(context), context);
+    }
+
+    /**
+     * @param expr           Filter Expression
+     * @param limit          Page size
+     * @param projectionType Class whose fields name the attributes to fetch
+     * @return All records that satisfy the filter criteria, mapped to the projection type
+     */
+    default <P> Flux<P> findAll(@Nullable final Expr expr, final int limit, @NonNull final Class<P> projectionType) {
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findAll(expr, limit, BaseRepositoryUtils.NO_MAX_RESULTS, Projection.of(projectionType),
+                RepositoryInstrumentation.projectionMapper(projectionType, context), context);
+    }
+
+    /**
+     * Scans the table with parallel segments (Segment/TotalSegments). Records are not emitted in table order.
+     *
+     * @param totalSegments Number of segments scanned in parallel
+     * @param expr          Filter Expression
+     * @return All records that satisfy the filter criteria
+     */
+    default Flux<ENTITY_TYPE> findAllParallel(final int totalSegments, @Nullable final Expr expr) {
+        return findAllParallel(totalSegments, expr, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Scans the table with parallel segments (Segment/TotalSegments). At most one page per segment is in flight, and pages
+     * are only requested as the records are consumed. Records are not emitted in table order.
+     *
+     * @param totalSegments Number of segments scanned in parallel
+     * @param expr          Filter Expression
+     * @param limit         Page size of each segment
+     * @return All records that satisfy the filter criteria
+     */
+    default Flux<ENTITY_TYPE> findAllParallel(final int totalSegments, @Nullable final Expr expr, final int limit) {
+        return BaseRepositoryUtils.getInstance().findAllParallel(totalSegments, expr, limit, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
     }
 
     /**
@@ -396,12 +578,35 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return A mono representing a record which matches the primary key passed.
      */
     default Mono<ENTITY_TYPE> findByPrimaryKey(@NonNull final PrimaryKey primaryKey) {
-        return BaseRepositoryUtils.getInstance().findByPrimaryKey(primaryKey, this::getParameterType);
+        return BaseRepositoryUtils.getInstance().findByPrimaryKey(primaryKey, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
+    }
+
+    /**
+     * @param primaryKey Primary Key
+     * @param projection Attributes to fetch, the other attributes are left null
+     * @return A mono representing a record which matches the primary key passed
+     */
+    default Mono<ENTITY_TYPE> findByPrimaryKey(@NonNull final PrimaryKey primaryKey, @NonNull final Projection projection) {
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findByPrimaryKey(primaryKey, projection, RepositoryInstrumentation.entityMapper(context), context);
+    }
+
+    /**
+     * @param primaryKey     Primary Key
+     * @param projectionType Class whose fields name the attributes to fetch
+     * @return A mono representing the record which matches the primary key passed, mapped to the projection type
+     */
+    default <P> Mono<P> findByPrimaryKey(@NonNull final PrimaryKey primaryKey, @NonNull final Class<P> projectionType) {
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findByPrimaryKey(primaryKey, Projection.of(projectionType),
+                RepositoryInstrumentation.projectionMapper(projectionType, context), context);
     }
 
     default Mono<ENTITY_TYPE> findByPrimaryKey(final Object hashKeyValue) {
         final String hashKeyName = getHashKeyName();
-        final Tuple<String, Field> rangeKey = DataMapperUtils.getDataMapper(getParameterType()).getPKMapping().get(KeyType.RANGE_KEY);
+        final Tuple<String, Field> rangeKey = BaseRepositoryUtils.getInstance().getRepositoryContext(this).getDataMapper().getPKMapping().get(KeyType.RANGE_KEY);
         final String rangeKeyName = rangeKey == null ? null : rangeKey._1();
 
         if (StringUtils.hasText(rangeKeyName)) {
@@ -435,7 +640,50 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return Records matching above criteria
      */
     default Flux<ENTITY_TYPE> findByPrimaryKeys(@NonNull final List<PrimaryKey> primaryKeys) {
-        return BaseRepositoryUtils.getInstance().findByPrimaryKeys(primaryKeys, this::getParameterType);
+        return BaseRepositoryUtils.getInstance().findByPrimaryKeys(primaryKeys, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
+    }
+
+    /**
+     * Keys are fetched in chunks of 100 keys, several chunks at a time. Duplicate keys are fetched once.
+     *
+     * @param primaryKeys   List of primary keys
+     * @param preserveOrder true to emit the records in the order of the keys (once all the chunks are fetched), false to emit them as they arrive
+     * @return Records matching above criteria
+     */
+    default Flux<ENTITY_TYPE> findByPrimaryKeys(@NonNull final List<PrimaryKey> primaryKeys, final boolean preserveOrder) {
+        return BaseRepositoryUtils.getInstance().findByPrimaryKeys(primaryKeys, preserveOrder, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
+    }
+
+    /**
+     * @param primaryKeys   List of primary keys
+     * @param preserveOrder true to emit the records in the order of the keys
+     * @param projection    Attributes to fetch, the other attributes are left null
+     * @return Records matching above criteria
+     */
+    default Flux<ENTITY_TYPE> findByPrimaryKeys(@NonNull final List<PrimaryKey> primaryKeys,
+                                                final boolean preserveOrder,
+                                                @NonNull final Projection projection) {
+
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findByPrimaryKeys(primaryKeys, preserveOrder, projection,
+                RepositoryInstrumentation.entityMapper(context), context);
+    }
+
+    /**
+     * @param primaryKeys    List of primary keys
+     * @param preserveOrder  true to emit the records in the order of the keys
+     * @param projectionType Class whose fields name the attributes to fetch
+     * @return Records matching above criteria, mapped to the projection type
+     */
+    default <P> Flux<P> findByPrimaryKeys(@NonNull final List<PrimaryKey> primaryKeys,
+                                          final boolean preserveOrder,
+                                          @NonNull final Class<P> projectionType) {
+
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().findByPrimaryKeys(primaryKeys, preserveOrder, Projection.of(projectionType),
+                RepositoryInstrumentation.projectionMapper(projectionType, context), context);
     }
 
     /**
@@ -445,7 +693,6 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return A future
      */
     default Mono<ENTITY_TYPE> putItem(@NonNull final ENTITY_TYPE item) {
-        final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(getParameterType());
         final Action2<ENTITY_TYPE, Map<String, AttributeValue>> ttlAction = (a, b) -> {
         };
 
@@ -462,21 +709,22 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
                 Mono.defer(() -> Mono.fromFuture(BaseRepositoryUtils.getInstance()
                         .saveItem(item, true,
                                 ttlAction,
-                                DataMapperUtils.getDataMapper(getParameterType()))));
+                                BaseRepositoryUtils.getInstance().getRepositoryContext(this))));
     }
 
     /**
-     * Method to create a list of records
+     * Method to create a list of records. The records are written in chunks of 25 (BatchWriteItem limit), several chunks
+     * at a time, and each record is emitted once its chunk is written.
      *
      * @param items the list of records to be updated
      * @return A future
      */
     default Flux<ENTITY_TYPE> putItem(@NonNull final List<ENTITY_TYPE> items) {
-        return BaseRepositoryUtils.getInstance().batchWriteRequest(dataMapper -> items.stream().map(item -> WriteRequest.builder()
+        return BaseRepositoryUtils.getInstance().batchWriteRequest(dataMapper -> items.stream().map(item -> Tuples.of(WriteRequest.builder()
                 .putRequest(PutRequest.builder()
                         .item(dataMapper.mapFromEntityToAttributeValue(item))
                         .build())
-                .build()), () -> items, DataMapperUtils.getDataMapper(getParameterType()));
+                .build(), item)), BaseRepositoryUtils.getInstance().getRepositoryContext(this));
     }
 
     /**
@@ -486,7 +734,7 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return updated item
      */
     default Mono<ENTITY_TYPE> updateItem(@NonNull final ENTITY_TYPE item) {
-        return BaseRepositoryUtils.getInstance().updateItem(item, this::getPrimaryKey, this::getParameterType);
+        return BaseRepositoryUtils.getInstance().updateItem(item, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
     }
 
     /**
@@ -495,7 +743,9 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return A future representing the execution of the method
      */
     default Mono<ENTITY_TYPE> updateItem(@NonNull final PrimaryKey primaryKey, @NonNull final Map<String, Object> updatedValues) {
-        return BaseRepositoryUtils.getInstance().updateItem(primaryKey, updatedValues, pk -> BaseRepositoryUtils.getInstance().findByPrimaryKey(pk, this::getParameterType), this::getParameterType);
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().updateItem(primaryKey, updatedValues, pk -> BaseRepositoryUtils.getInstance().findByPrimaryKey(pk, context), context);
     }
 
     /**
@@ -506,6 +756,50 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
         return updateItem(updateItem.getPrimaryKey(), updateItem.getUpdatedValues());
     }
 
+    /**
+     * Updates a record with a single UpdateItem call, without reading it first. Counters, list appends and the version
+     * attribute are updated atomically by DynamoDB.
+     *
+     * @param primaryKey Hash Key and Sort Keys
+     * @param updateExpr Update (SET, ADD, REMOVE, list_append, if_not_exists) and optional expected version or condition
+     * @return Updated item, empty if the record does not exist. Fails with an
+     * {@link org.leo.aws.ddb.exceptions.OptimisticLockFailureException} if the expected version or the condition is not met
+     */
+    default Mono<ENTITY_TYPE> updateItem(@NonNull final PrimaryKey primaryKey, @NonNull final UpdateExpr updateExpr) {
+        return BaseRepositoryUtils.getInstance().updateItem(primaryKey, updateExpr, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
+    }
+
+    /**
+     * Reads the record (consistent read), applies the mutator and updates the record. The read, the mutator and the update are
+     * repeated, with the delays of the settings retry policy, while the record is changed by another writer in the meantime.
+     * Conflicts are detected with the version attribute, the entity must have a field annotated with
+     * {@link org.leo.aws.ddb.annotations.VersionAttribute}.
+     *
+     * @param primaryKey Hash Key and Sort Keys
+     * @param mutator    Function changing the record. It can be called several times, returning null leaves the record as is
+     * @return Updated record, empty if the record does not exist
+     */
+    default Mono<ENTITY_TYPE> updateWithRetry(@NonNull final PrimaryKey primaryKey, @NonNull final Function<ENTITY_TYPE, ENTITY_TYPE> mutator) {
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance().updateWithRetry(primaryKey, mutator, context.getSettings().getRetryPolicy(), context);
+    }
+
+    /**
+     * @param primaryKey  Hash Key and Sort Keys
+     * @param mutator     Function changing the record. It can be called several times, returning null leaves the record as is
+     * @param retryPolicy Number of attempts and delays between them
+     * @return Updated record, empty if the record does not exist. Fails with an
+     * {@link org.leo.aws.ddb.exceptions.OptimisticLockFailureException} once the attempts are exhausted, with a
+     * {@link org.leo.aws.ddb.exceptions.DbException} if the entity has no version attribute
+     */
+    default Mono<ENTITY_TYPE> updateWithRetry(@NonNull final PrimaryKey primaryKey,
+                                              @NonNull final Function<ENTITY_TYPE, ENTITY_TYPE> mutator,
+                                              @NonNull final RetryPolicy retryPolicy) {
+
+        return BaseRepositoryUtils.getInstance().updateWithRetry(primaryKey, mutator, retryPolicy, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
+    }
+
     /**
      * Method updates a list of records/documents. Please note that DynamoDb as of today does not
      * support a batch update. This method updates the records one at a time. It will do a batch update
@@ -515,8 +809,10 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return A future representing the execution of the method
      */
     default Flux<ENTITY_TYPE> updateItem(@NonNull final List<UpdateItem> updateItems) {
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
         return BaseRepositoryUtils.getInstance()
-                .updateItem(updateItems, this::getParameterType, pks -> BaseRepositoryUtils.getInstance().findByPrimaryKeys(pks, this::getParameterType));
+                .updateItem(updateItems, context, pks -> BaseRepositoryUtils.getInstance().findByPrimaryKeys(pks, context));
     }
 
     /**
@@ -534,28 +830,89 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
     }
 
     /**
-     * Method to remove a list of records
+     * Updates the records concurrently (up to {@link org.leo.aws.ddb.config.RepositorySettings#getUpdateConcurrency()} records
+     * at the same time). Updates of the same record are applied in the given order.
+     *
+     * @param updateItems Updates, several updates can target the same record
+     * @return Outcome of every update, in completion order. A failed update does not stop the others
+     */
+    default Flux<UpdateResult<ENTITY_TYPE>> bulkUpdate(@NonNull final List<UpdateItem> updateItems) {
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return bulkUpdate(updateItems, context.getSettings().getUpdateConcurrency());
+    }
+
+    /**
+     * @param updateItems Updates, several updates can target the same record
+     * @param concurrency Maximum number of records updated at the same time
+     * @return Outcome of every update, in completion order. A failed update does not stop the others
+     */
+    default Flux<UpdateResult<ENTITY_TYPE>> bulkUpdate(@NonNull final List<UpdateItem> updateItems, final int concurrency) {
+        final RepositoryContext<ENTITY_TYPE> context = BaseRepositoryUtils.getInstance().getRepositoryContext(this);
+
+        return BaseRepositoryUtils.getInstance()
+                .bulkUpdate(updateItems, concurrency, context, pks -> BaseRepositoryUtils.getInstance().findByPrimaryKeys(pks, context));
+    }
+
+    /**
+     * Concurrent version of {@link #updateItems(String, List, Func1)}, see {@link #bulkUpdate(List)}.
+     *
+     * @param patchUpdates PatchUpdate list
+     * @param convertFunc  Function to convert PatchItem to UpdateItem
+     * @return Outcome of every update, in completion order
+     */
+    default Flux<UpdateResult<ENTITY_TYPE>> bulkUpdateItems(@NonNull final List<? extends PatchUpdate> patchUpdates,
+                                                            final Func1<PatchUpdate, UpdateItem> convertFunc) {
+
+        return bulkUpdate(patchUpdates.stream().map(convertFunc::call).collect(Collectors.toList()));
+    }
+
+    /**
+     * Applies the writes of the transaction atomically (one TransactWriteItems call, using the client of this repository).
+     * The transaction can target records of other repositories.
+     *
+     * @param transactWrite Puts, updates, deletes and condition checks (at most 100)
+     * @return Completes once the transaction is applied. Fails with a
+     * {@link org.leo.aws.ddb.exceptions.TransactionFailedException} listing the actions that caused the cancellation
+     */
+    default Mono<Void> transactWrite(@NonNull final TransactWrite transactWrite) {
+        return BaseRepositoryUtils.getInstance().transactWrite(transactWrite, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
+    }
+
+    /**
+     * Reads a consistent snapshot of the records (one TransactGetItems call, using the client of this repository). The
+     * records can belong to other repositories.
+     *
+     * @param transactGet Keys of the records (at most 100)
+     * @return Records in the order they were requested
+     */
+    default Mono<TransactGetResult> transactGet(@NonNull final TransactGet transactGet) {
+        return BaseRepositoryUtils.getInstance().transactGet(transactGet, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
+    }
+
+    /**
+     * Method to remove a list of records. Same chunking as {@link #putItem(List)}.
      *
      * @param items List of items to be removed
      * @return A future
      */
     default Flux<ENTITY_TYPE> deleteAllItems(@NonNull final List<ENTITY_TYPE> items) {
-        return BaseRepositoryUtils.getInstance().batchWriteRequest(dataMapper -> items.stream().map(item -> WriteRequest.builder()
+        return BaseRepositoryUtils.getInstance().batchWriteRequest(dataMapper -> items.stream().map(item -> Tuples.of(WriteRequest.builder()
                 .deleteRequest(DeleteRequest.builder()
                         .key(dataMapper.getPrimaryKey(dataMapper.createPKFromItem(item)))
                         .build())
-                .build()), () -> items, DataMapperUtils.getDataMapper(getParameterType()));
+                .build(), item)), BaseRepositoryUtils.getInstance().getRepositoryContext(this));
     }
 
     /**
-     * Method to remove a list of records
+     * Method to add and remove a list of records. Same chunking as {@link #putItem(List)}, only the added records are emitted.
      *
      * @param putItems    List of items to be added
      * @param deleteItems List of items to be removed
      * @return A future
      */
     default Flux<ENTITY_TYPE> batchWrite(final List<ENTITY_TYPE> putItems, final List<ENTITY_TYPE> deleteItems) {
-        return BaseRepositoryUtils.getInstance().batchWrite(putItems, deleteItems, this::getParameterType);
+        return BaseRepositoryUtils.getInstance().batchWrite(putItems, deleteItems, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
     }
 
 
@@ -566,7 +923,7 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return A future
      */
     default Mono<ENTITY_TYPE> deleteItem(@NonNull final ENTITY_TYPE item) {
-        return BaseRepositoryUtils.getInstance().deleteItem(item, this::getParameterType);
+        return BaseRepositoryUtils.getInstance().deleteItem(item, BaseRepositoryUtils.getInstance().getRepositoryContext(this));
     }
 
     /**
@@ -586,8 +943,6 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
      * @return A future
      */
     default Mono<ENTITY_TYPE> saveItem(@NonNull final ENTITY_TYPE item) {
-        final DataMapper<ENTITY_TYPE> dataMapper = DataMapperUtils.getDataMapper(getParameterType());
-
         return saveItem(item, (entity, attributeValueMap) -> {
         });
     }
@@ -603,6 +958,6 @@ public interface DynamoDbRepository<ENTITY_TYPE> {
                         .saveItem(item,
                                 false,
                                 ttlAction,
-                                DataMapperUtils.getDataMapper(getParameterType()))));
+                                BaseRepositoryUtils.getInstance().getRepositoryContext(this))));
     }
 }
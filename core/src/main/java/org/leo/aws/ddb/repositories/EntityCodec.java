@@ -0,0 +1,171 @@
+package org.leo.aws.ddb.repositories;
+
+import org.leo.aws.ddb.annotations.DbAttribute;
+import org.leo.aws.ddb.exceptions.DbException;
+import org.leo.aws.ddb.utils.DbUtils;
+import org.leo.aws.ddb.utils.Func1;
+import org.leo.aws.ddb.utils.Tuple;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Codec compiled once per entity class when its mapping is registered. Getters, setters and attribute converters are
+ * resolved up front so that mapping an item in either direction does not need any reflection lookups.
+ *
+ * @param <T> Entity type
+ */
+@SuppressWarnings("unchecked")
+final class EntityCodec<T> {
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> mappedClass;
+    private final MethodHandle constructor;
+    private final Map<String, FieldCodec> fieldCodecMap;
+    private final FieldCodec[] fieldCodecs;
+    private final int encodedMapCapacity;
+
+    private EntityCodec(final Class<T> mappedClass,
+                        final MethodHandle constructor,
+                        final FieldCodec[] fieldCodecs) {
+
+        this.mappedClass = mappedClass;
+        this.constructor = constructor;
+        this.fieldCodecs = fieldCodecs;
+        this.fieldCodecMap = new HashMap<>(fieldCodecs.length * 2);
+        this.encodedMapCapacity = (int) (fieldCodecs.length / 0.75f) + 1;
+
+        for (final FieldCodec fieldCodec : fieldCodecs) {
+            fieldCodecMap.put(fieldCodec.attributeName, fieldCodec);
+        }
+    }
+
+    /**
+     * @param mappedClass  Entity class
+     * @param constructor  No-args constructor of the entity (already made accessible)
+     * @param mappedFields Attribute name to field mapping of the entity
+     * @return Codec for the entity
+     */
+    static <T> EntityCodec<T> compile(final Class<T> mappedClass,
+                                      final Constructor<T> constructor,
+                                      final Map<String, Tuple<Field, DbAttribute>> mappedFields) {
+
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        final FieldCodec[] fieldCodecs = new FieldCodec[mappedFields.size()];
+        int index = 0;
+
+        try {
+            for (final Map.Entry<String, Tuple<Field, DbAttribute>> entry : mappedFields.entrySet()) {
+                final Field field = entry.getValue()._1();
+
+                fieldCodecs[index++] = new FieldCodec(entry.getKey(),
+                        lookup.unreflectGetter(field).asType(GETTER_TYPE),
+                        lookup.unreflectSetter(field).asType(SETTER_TYPE),
+                        DbUtils.attributeToModel(field),
+                        DbUtils.modelToAttributeValueConverter(field));
+            }
+
+            return new EntityCodec<>(mappedClass, lookup.unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE), fieldCodecs);
+        } catch (final IllegalAccessException e) {
+            throw new DbException(MessageFormat.format("Unable to create codec for entity [{0}]", mappedClass.getName()), e);
+        }
+    }
+
+    /**
+     * @param attributeValues Attribute values returned by the AWS DynamoDB SDK
+     * @return The entity object representing the attribute values passed.
+     */
+    T decode(final Map<String, AttributeValue> attributeValues) {
+        final T entity = newInstance();
+
+        for (final Map.Entry<String, AttributeValue> entry : attributeValues.entrySet()) {
+            final FieldCodec fieldCodec = fieldCodecMap.get(entry.getKey());
+
+            if (fieldCodec != null) {
+                fieldCodec.decode(entity, entry.getValue());
+            }
+        }
+
+        return entity;
+    }
+
+    /**
+     * @param entity Entity object
+     * @return Attribute name to value mapping of all the non null fields of the entity
+     */
+    Map<String, AttributeValue> encode(final T entity) {
+        final Map<String, AttributeValue> attributeValues = new HashMap<>(encodedMapCapacity);
+
+        for (final FieldCodec fieldCodec : fieldCodecs) {
+            final Object value = fieldCodec.get(entity);
+
+            if (value != null) {
+                attributeValues.put(fieldCodec.attributeName, fieldCodec.encoder.call(value));
+            }
+        }
+
+        return attributeValues;
+    }
+
+    private T newInstance() {
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new DbException(MessageFormat.format("Unable to instantiate entity [{0}]", mappedClass.getName()), e);
+        }
+    }
+
+    private static final class FieldCodec {
+        private final String attributeName;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Func1<AttributeValue, Object> decoder;
+        private final Func1<Object, AttributeValue> encoder;
+
+        private FieldCodec(final String attributeName,
+                           final MethodHandle getter,
+                           final MethodHandle setter,
+                           final Func1<AttributeValue, Object> decoder,
+                           final Func1<Object, AttributeValue> encoder) {
+
+            this.attributeName = attributeName;
+            this.getter = getter;
+            this.setter = setter;
+            this.decoder = decoder;
+            this.encoder = encoder;
+        }
+
+        private Object get(final Object entity) {
+            try {
+                return (Object) getter.invokeExact(entity);
+            } catch (final RuntimeException | Error e) {
+                throw e;
+            } catch (final Throwable e) {
+                throw new DbException(MessageFormat.format("Unable to read attribute [{0}]", attributeName), e);
+            }
+        }
+
+        private void decode(final Object entity, final AttributeValue attributeValue) {
+            final Object value = decoder.call(attributeValue);
+
+            try {
+                setter.invokeExact(entity, value);
+            } catch (final RuntimeException | Error e) {
+                throw e;
+            } catch (final Throwable e) {
+                throw new DbException(MessageFormat.format("Unable to map attribute [{0}]", attributeName), e);
+            }
+        }
+    }
+}
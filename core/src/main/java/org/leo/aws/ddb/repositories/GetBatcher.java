@@ -0,0 +1,112 @@
+package org.leo.aws.ddb.repositories;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects the single key lookups of a table made within a short window and fetches them with one BatchGetItem call. A
+ * batch is sent when the window started by its first key elapses or as soon as it holds the maximum number of keys.
+ */
+final class GetBatcher {
+    private final Duration window;
+    private final int maxKeys;
+    private final Function<List<Map<String, AttributeValue>>, Flux<Map<String, AttributeValue>>> loader;
+    private Batch batch;
+
+    /**
+     * @param window  Time to wait for more keys after the first key of a batch
+     * @param maxKeys Maximum number of keys of a batch
+     * @param loader  Fetches the items of the keys of a batch (items not found are simply not emitted)
+     */
+    GetBatcher(final Duration window,
+               final int maxKeys,
+               final Function<List<Map<String, AttributeValue>>, Flux<Map<String, AttributeValue>>> loader) {
+
+        this.window = window;
+        this.maxKeys = maxKeys;
+        this.loader = loader;
+    }
+
+    /**
+     * @param key Primary key of the item
+     * @return Future of the item, completed with null when the item does not exist
+     */
+    CompletableFuture<Map<String, AttributeValue>> get(final Map<String, AttributeValue> key) {
+        final CompletableFuture<Map<String, AttributeValue>> future;
+        Batch fullBatch = null;
+
+        synchronized (this) {
+            if (batch == null) {
+                final Batch newBatch = new Batch();
+
+                batch = newBatch;
+                Schedulers.parallel().schedule(() -> flush(newBatch), window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+
+            future = batch.futures.computeIfAbsent(key, k -> new CompletableFuture<>());
+
+            if (batch.futures.size() >= maxKeys) {
+                fullBatch = batch;
+                batch = null;
+            }
+        }
+
+        if (fullBatch != null) {
+            load(fullBatch);
+        }
+
+        return future.copy();
+    }
+
+    private void flush(final Batch expiredBatch) {
+        synchronized (this) {
+            if (batch != expiredBatch) {
+                return; //Already sent because it was full.
+            }
+
+            batch = null;
+        }
+
+        load(expiredBatch);
+    }
+
+    private void load(final Batch loadedBatch) {
+        final Set<String> keyNames = loadedBatch.futures.keySet().iterator().next().keySet();
+        final Map<Map<String, AttributeValue>, Map<String, AttributeValue>> items = new HashMap<>();
+
+        try {
+            loader.apply(new ArrayList<>(loadedBatch.futures.keySet()))
+                    .subscribe(item -> items.put(getKey(item, keyNames), item),
+                            e -> loadedBatch.futures.values().forEach(future -> future.completeExceptionally(e)),
+                            () -> loadedBatch.futures.forEach((key, future) -> future.complete(items.get(key))));
+        } catch (final RuntimeException e) {
+            loadedBatch.futures.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private static Map<String, AttributeValue> getKey(final Map<String, AttributeValue> item, final Set<String> keyNames) {
+        final Map<String, AttributeValue> key = new HashMap<>();
+
+        for (final String keyName : keyNames) {
+            key.put(keyName, item.get(keyName));
+        }
+
+        return key;
+    }
+
+    private static final class Batch {
+        private final Map<Map<String, AttributeValue>, CompletableFuture<Map<String, AttributeValue>>> futures = new LinkedHashMap<>();
+    }
+}
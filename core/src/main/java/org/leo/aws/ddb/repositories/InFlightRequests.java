@@ -0,0 +1,58 @@
+package org.leo.aws.ddb.repositories;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares the pending call for a key between all the callers asking for the same key while it is in flight. The call is
+ * forgotten as soon as it completes, so nothing is served once the response has been delivered.
+ *
+ * @param <K> Key type
+ * @param <V> Response type
+ */
+final class InFlightRequests<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param key  Key of the call
+     * @param call Starts the call when none is in flight for the key
+     * @return Future of the shared call. Each caller gets its own copy so cancelling it does not affect the other callers.
+     */
+    CompletableFuture<V> execute(final K key, final Supplier<CompletableFuture<V>> call) {
+        final CompletableFuture<V> pending = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, pending);
+
+        if (existing != null) {
+            return existing.copy();
+        }
+
+        try {
+            call.get().whenComplete((response, e) -> {
+                inFlight.remove(key, pending);
+
+                if (e != null) {
+                    pending.completeExceptionally(e);
+                } else {
+                    pending.complete(response);
+                }
+            });
+        } catch (final RuntimeException e) {
+            inFlight.remove(key, pending);
+            pending.completeExceptionally(e);
+        }
+
+        return pending.copy();
+    }
+
+    /**
+     * Detaches the call in flight for the key, if any. Callers already waiting on it still get its response; later callers
+     * start a new call.
+     *
+     * @param key Key of the call
+     */
+    void forget(final K key) {
+        inFlight.remove(key);
+    }
+}
@@ -0,0 +1,87 @@
+package org.leo.aws.ddb.repositories;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.leo.aws.ddb.annotations.EntityCache;
+import org.leo.aws.ddb.exceptions.DbException;
+import org.springframework.util.ClassUtils;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Caffeine cache of the raw items of a table, keyed by primary key. Raw items are cached rather than entities so every read
+ * gets its own entity instance.
+ * <p>
+ * Every invalidation increments the generation of the key. A read captures the generation before calling DynamoDB and only
+ * caches its item if no invalidation happened meanwhile, so a read that started before a write cannot put back the item the
+ * write invalidated. Generations are striped by key hash to bound memory, a collision only skips a put.
+ */
+final class ItemCache {
+    private static final String CAFFEINE_CLASS = "com.github.benmanes.caffeine.cache.Caffeine";
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final Cache<Map<String, AttributeValue>, Map<String, AttributeValue>> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private ItemCache(final Cache<Map<String, AttributeValue>, Map<String, AttributeValue>> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param entityClass Entity class
+     * @param entityCache Cache configuration of the entity
+     * @return Cache, null when caching is disabled
+     */
+    static ItemCache create(final Class<?> entityClass, final EntityCache entityCache) {
+        if (entityCache == null || !entityCache.enabled()) {
+            return null;
+        } else if (!ClassUtils.isPresent(CAFFEINE_CLASS, ItemCache.class.getClassLoader())) {
+            throw new DbException(MessageFormat.format("Entity [{0}] has a cache enabled but Caffeine is not on the classpath", entityClass.getName()));
+        } else {
+            return new ItemCache(Caffeine.newBuilder()
+                    .maximumSize(entityCache.maximumSize())
+                    .expireAfterWrite(Duration.ofSeconds(entityCache.expireAfterWriteSeconds()))
+                    .build());
+        }
+    }
+
+    Map<String, AttributeValue> get(final Map<String, AttributeValue> key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * @return Generation of the key, to capture before reading the item
+     */
+    long getGeneration(final Map<String, AttributeValue> key) {
+        return generations.get(stripe(key));
+    }
+
+    /**
+     * Caches the item unless the key has been invalidated since the generation was captured.
+     */
+    void put(final Map<String, AttributeValue> key, final Map<String, AttributeValue> item, final long generation) {
+        final int stripe = stripe(key);
+
+        if (generations.get(stripe) == generation) {
+            cache.put(key, item);
+
+            //An invalidation between the check and the put may have run before the item was cached
+            if (generations.get(stripe) != generation) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    void invalidate(final Map<String, AttributeValue> key) {
+        generations.incrementAndGet(stripe(key));
+        cache.invalidate(key);
+    }
+
+    private static int stripe(final Map<String, AttributeValue> key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+}
@@ -95,6 +95,7 @@ public enum MapperUtils {
                     .primaryKeyMapping(primaryKeyMapping)
                     .globalSecondaryIndexMap(indexMap.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, b -> b.getValue().build())))
                     .versionAttributeField(!CollectionUtils.isEmpty(versionAttMap) ? versionAttMap.entrySet().iterator().next().getValue() : null)
+                    .entityCodec(EntityCodec.compile(dataClass, constructor, map))
                     .tableName(tableName)
                     .build());
         });
@@ -0,0 +1,99 @@
+package org.leo.aws.ddb.repositories;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.leo.aws.ddb.exceptions.DbException;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts LastEvaluatedKey / ExclusiveStartKey maps to and from page tokens: the key attributes as JSON
+ * ({@code {"id":{"S":"a"}}}), Base64 URL encoded.
+ */
+final class PageTokens {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Map<String, String>>> TOKEN_TYPE = new TypeReference<Map<String, Map<String, String>>>() {
+    };
+
+    private PageTokens() {
+    }
+
+    /**
+     * @param lastEvaluatedKey Last evaluated key of a page
+     * @return Token of the next page, null when there is no next page
+     */
+    static String encode(final Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+
+        final Map<String, Map<String, String>> token = new HashMap<>();
+
+        for (final Map.Entry<String, AttributeValue> entry : lastEvaluatedKey.entrySet()) {
+            final AttributeValue value = entry.getValue();
+
+            if (value.s() != null) {
+                token.put(entry.getKey(), Map.of("S", value.s()));
+            } else if (value.n() != null) {
+                token.put(entry.getKey(), Map.of("N", value.n()));
+            } else if (value.b() != null) {
+                token.put(entry.getKey(), Map.of("B", Base64.getEncoder().encodeToString(value.b().asByteArray())));
+            } else {
+                throw new DbException(MessageFormat.format("Key attribute [{0}] should be of type S, N or B", entry.getKey()));
+            }
+        }
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(OBJECT_MAPPER.writeValueAsBytes(token));
+        } catch (final IOException e) {
+            throw new DbException("Unable to create page token", e);
+        }
+    }
+
+    /**
+     * @param pageToken Token returned with the previous page
+     * @return Exclusive start key of the page
+     */
+    static Map<String, AttributeValue> decode(final String pageToken) {
+        final Map<String, Map<String, String>> token;
+        final Map<String, AttributeValue> exclusiveStartKey = new HashMap<>();
+
+        try {
+            token = OBJECT_MAPPER.readValue(Base64.getUrlDecoder().decode(pageToken), TOKEN_TYPE);
+        } catch (final IOException | IllegalArgumentException e) {
+            throw new DbException("INVALID_PAGE_TOKEN", e);
+        }
+
+        for (final Map.Entry<String, Map<String, String>> entry : token.entrySet()) {
+            final Map<String, String> value = entry.getValue();
+
+            if (value == null || value.size() != 1 || value.containsValue(null)) {
+                throw new DbException("INVALID_PAGE_TOKEN");
+            } else if (value.containsKey("S")) {
+                exclusiveStartKey.put(entry.getKey(), AttributeValue.builder().s(value.get("S")).build());
+            } else if (value.containsKey("N")) {
+                exclusiveStartKey.put(entry.getKey(), AttributeValue.builder().n(value.get("N")).build());
+            } else if (value.containsKey("B")) {
+                exclusiveStartKey.put(entry.getKey(), AttributeValue.builder().b(SdkBytes.fromByteArray(decodeBase64(value.get("B")))).build());
+            } else {
+                throw new DbException("INVALID_PAGE_TOKEN");
+            }
+        }
+
+        return exclusiveStartKey;
+    }
+
+    private static byte[] decodeBase64(final String value) {
+        try {
+            return Base64.getDecoder().decode(value);
+        } catch (final IllegalArgumentException e) {
+            throw new DbException("INVALID_PAGE_TOKEN", e);
+        }
+    }
+}
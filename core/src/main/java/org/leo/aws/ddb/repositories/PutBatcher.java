@@ -0,0 +1,150 @@
+package org.leo.aws.ddb.repositories;
+
+import org.leo.aws.ddb.exceptions.BatchWriteException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects the unconditional puts of a table made within a short window and writes them with one BatchWriteItem call. A
+ * batch is sent when the window started by its first put elapses or as soon as it holds the maximum number of items. A put
+ * of a key already in the batch replaces the previous one (a batch cannot hold the same key twice), both callers completing
+ * once the batch is written. When some items are left unprocessed after the retries, only the callers of those items fail.
+ */
+final class PutBatcher {
+    private final Duration window;
+    private final int maxItems;
+    private final Function<List<WriteRequest>, Mono<Void>> writer;
+    private Batch batch;
+
+    /**
+     * @param window   Time to wait for more puts after the first put of a batch
+     * @param maxItems Maximum number of items of a batch
+     * @param writer   Writes the requests of a batch, failing with a {@link BatchWriteException} listing the unprocessed
+     *                 requests when some of them could not be written
+     */
+    PutBatcher(final Duration window, final int maxItems, final Function<List<WriteRequest>, Mono<Void>> writer) {
+        this.window = window;
+        this.maxItems = maxItems;
+        this.writer = writer;
+    }
+
+    /**
+     * @param key  Primary key of the item
+     * @param item Item to put
+     * @return Future completed once the batch holding the item is written
+     */
+    CompletableFuture<Void> put(final Map<String, AttributeValue> key, final Map<String, AttributeValue> item) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        Batch fullBatch = null;
+
+        synchronized (this) {
+            if (batch == null) {
+                final Batch newBatch = new Batch();
+
+                batch = newBatch;
+                Schedulers.parallel().schedule(() -> flush(newBatch), window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+
+            batch.writeRequests.put(key, WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+            batch.futures.computeIfAbsent(key, k -> new ArrayList<>()).add(future);
+
+            if (batch.writeRequests.size() >= maxItems) {
+                fullBatch = batch;
+                batch = null;
+            }
+        }
+
+        if (fullBatch != null) {
+            write(fullBatch);
+        }
+
+        return future;
+    }
+
+    private void flush(final Batch expiredBatch) {
+        synchronized (this) {
+            if (batch != expiredBatch) {
+                return; //Already sent because it was full.
+            }
+
+            batch = null;
+        }
+
+        write(expiredBatch);
+    }
+
+    private void write(final Batch writtenBatch) {
+        try {
+            writer.apply(new ArrayList<>(writtenBatch.writeRequests.values()))
+                    .subscribe(null,
+                            e -> failed(writtenBatch, e),
+                            () -> writtenBatch.futures.values().forEach(futures -> futures.forEach(future -> future.complete(null))));
+        } catch (final RuntimeException e) {
+            failed(writtenBatch, e);
+        }
+    }
+
+    /**
+     * Fails the callers of the unprocessed items of a {@link BatchWriteException}, the other items of the batch have been
+     * written. Any other error fails the whole batch.
+     */
+    private static void failed(final Batch failedBatch, final Throwable e) {
+        final Set<Map<String, AttributeValue>> unprocessedKeys = getUnprocessedKeys(failedBatch, e);
+
+        failedBatch.futures.forEach((key, futures) -> futures.forEach(future -> {
+            if (unprocessedKeys == null || unprocessedKeys.contains(key)) {
+                future.completeExceptionally(e);
+            } else {
+                future.complete(null);
+            }
+        }));
+    }
+
+    /**
+     * @return Keys of the unprocessed items, null when the error does not list them
+     */
+    private static Set<Map<String, AttributeValue>> getUnprocessedKeys(final Batch failedBatch, final Throwable e) {
+        if (!(e instanceof BatchWriteException) || ((BatchWriteException) e).getUnprocessedItems() == null) {
+            return null;
+        }
+
+        final Set<String> keyNames = failedBatch.futures.keySet().iterator().next().keySet();
+        final Set<Map<String, AttributeValue>> unprocessedKeys = new HashSet<>();
+
+        for (final List<WriteRequest> writeRequests : ((BatchWriteException) e).getUnprocessedItems().values()) {
+            for (final WriteRequest writeRequest : writeRequests) {
+                if (writeRequest.putRequest() != null) {
+                    final Map<String, AttributeValue> key = new HashMap<>();
+
+                    for (final String keyName : keyNames) {
+                        key.put(keyName, writeRequest.putRequest().item().get(keyName));
+                    }
+
+                    unprocessedKeys.add(key);
+                }
+            }
+        }
+
+        return unprocessedKeys;
+    }
+
+    private static final class Batch {
+        private final Map<Map<String, AttributeValue>, WriteRequest> writeRequests = new LinkedHashMap<>();
+        private final Map<Map<String, AttributeValue>, List<CompletableFuture<Void>>> futures = new HashMap<>();
+    }
+}
@@ -0,0 +1,128 @@
+package org.leo.aws.ddb.repositories;
+
+import org.leo.aws.ddb.annotations.DDBTable;
+import org.leo.aws.ddb.config.RepositorySettings;
+import org.leo.aws.ddb.exceptions.DbException;
+import org.leo.aws.ddb.utils.ApplicationContextUtils;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+
+import java.text.MessageFormat;
+import java.util.Map;
+
+/**
+ * Everything a repository needs to talk to its table, resolved once per repository and shared by all the
+ * {@link BaseRepositoryUtils} operations.
+ *
+ * @param <T> Entity type
+ */
+final class RepositoryContext<T> {
+    private final Class<T> entityClass;
+    private final DataMapper<T> dataMapper;
+    private final AttributeMapper<T> attributeMapper;
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+    private final String tableName;
+    private final RepositorySettings settings;
+    private final ItemCache itemCache;
+    private final InFlightRequests<Map<String, AttributeValue>, GetItemResponse> inFlightGets;
+    private final GetBatcher getBatcher;
+    private final PutBatcher putBatcher;
+
+    private RepositoryContext(final Class<T> entityClass,
+                              final DataMapper<T> dataMapper,
+                              final AttributeMapper<T> attributeMapper,
+                              final DynamoDbAsyncClient dynamoDbAsyncClient,
+                              final RepositorySettings settings,
+                              final ItemCache itemCache) {
+
+        this.entityClass = entityClass;
+        this.dataMapper = dataMapper;
+        this.attributeMapper = attributeMapper;
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+        this.tableName = attributeMapper.getTableName();
+        this.settings = settings;
+        this.itemCache = itemCache;
+        this.inFlightGets = settings.isCoalesceGets() ? new InFlightRequests<>() : null;
+        this.getBatcher = settings.getGetBatchWindow().isZero() ? null : new GetBatcher(settings.getGetBatchWindow(),
+                BaseRepositoryUtils.MAX_BATCH_GET_KEYS, keys -> BaseRepositoryUtils.getInstance().batchGetItems(keys, this));
+        this.putBatcher = settings.getPutBatchWindow().isZero() ? null : new PutBatcher(settings.getPutBatchWindow(),
+                WriteRequestChunker.MAX_CHUNK_REQUESTS, writeRequests -> BaseRepositoryUtils.getInstance().batchWriteItems(writeRequests, this));
+    }
+
+    /**
+     * @param entityClass Entity class managed by the repository
+     * @return Context bound to the data mapper, attribute mapping and client of the entity
+     */
+    static <T> RepositoryContext<T> create(final Class<T> entityClass) {
+        final DataMapper<T> dataMapper = DataMapperUtils.getDataMapper(entityClass);
+        final AttributeMapper<T> attributeMapper;
+        final DDBTable table = entityClass.getAnnotation(DDBTable.class);
+
+        if (dataMapper == null) {
+            throw new DbException(MessageFormat.format("Could not find any entity of type [{0}] in the provided entityBasePackage [service.aws.ddb.entityBasePackage: {1}]",
+                    entityClass.getName(), ApplicationContextUtils.getInstance().getEnvironment().getProperty("service.aws.ddb.entityBasePackage")));
+        }
+
+        attributeMapper = dataMapper.getAttributeMapper();
+
+        if (attributeMapper == null) {
+            throw new DbException(MessageFormat.format("Entity [{0}] has not been mapped yet", entityClass.getName()));
+        }
+
+        return new RepositoryContext<>(entityClass, dataMapper, attributeMapper, DataMapperUtils.getDynamoDbAsyncClient(),
+                DataMapperUtils.getRepositorySettings(), ItemCache.create(entityClass, table != null ? table.cache() : null));
+    }
+
+    Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    DataMapper<T> getDataMapper() {
+        return dataMapper;
+    }
+
+    AttributeMapper<T> getAttributeMapper() {
+        return attributeMapper;
+    }
+
+    DynamoDbAsyncClient getDynamoDbAsyncClient() {
+        return dynamoDbAsyncClient;
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    RepositorySettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return Cache of the items fetched by primary key, null when the entity is not cached
+     */
+    ItemCache getItemCache() {
+        return itemCache;
+    }
+
+    /**
+     * @return GetItem calls in flight by primary key, null when the lookups are not coalesced
+     */
+    InFlightRequests<Map<String, AttributeValue>, GetItemResponse> getInFlightGets() {
+        return inFlightGets;
+    }
+
+    /**
+     * @return Batcher of the single key lookups, null when the lookups are not batched
+     */
+    GetBatcher getGetBatcher() {
+        return getBatcher;
+    }
+
+    /**
+     * @return Batcher of the unconditional puts, null when the puts are not batched
+     */
+    PutBatcher getPutBatcher() {
+        return putBatcher;
+    }
+}
@@ -0,0 +1,38 @@
+package org.leo.aws.ddb.repositories;
+
+
+import org.leo.aws.ddb.exceptions.DbException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+
+import java.text.MessageFormat;
+
+/**
+ * Binds every repository to its {@link RepositoryContext} once all the singletons (and thereby all the entity mappings)
+ * have been created, so that the first request does not pay for resolving the data mapper, the table name and the client.
+ * Repositories that cannot be bound at this point are bound lazily on first use.
+ */
+@SuppressWarnings("rawtypes")
+class RepositoryContextInitializer implements SmartInitializingSingleton {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryContextInitializer.class);
+
+    private final ApplicationContext applicationContext;
+
+    RepositoryContextInitializer(final ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void afterSingletonsInstantiated() {
+        applicationContext.getBeansOfType(DynamoDbRepository.class).forEach((name, repository) -> {
+            try {
+                BaseRepositoryUtils.getInstance().getRepositoryContext(repository);
+            } catch (final DbException e) {
+                LOGGER.debug(MessageFormat.format("Repository [{0}] will be bound on first use", name), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,338 @@
+package org.leo.aws.ddb.repositories;
+
+import org.leo.aws.ddb.metrics.ConsumedCapacityTracker;
+import org.leo.aws.ddb.metrics.RepositoryMetrics;
+import org.leo.aws.ddb.metrics.RepositoryOperation;
+import org.leo.aws.ddb.throttling.ThroughputLimiter;
+import org.leo.aws.ddb.utils.Func1;
+import org.leo.aws.ddb.utils.NestedAttributeCodec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.Capacity;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Wraps the DynamoDB calls of {@link BaseRepositoryUtils}: waits for the {@link ThroughputLimiter} before dispatching and
+ * reports durations, page sizes and consumed capacity to the {@link RepositoryMetrics}, the {@link ConsumedCapacityTracker}
+ * and the limiter. Everything is a pass-through when none of them is configured.
+ */
+final class RepositoryInstrumentation {
+
+    private RepositoryInstrumentation() {
+    }
+
+    /**
+     * @param mono Call to DynamoDB (subscribed once the limiter allows it)
+     * @return Response, recording the duration of the call
+     */
+    static <T> Mono<T> call(final Mono<T> mono,
+                            final RepositoryOperation operation,
+                            final String indexName,
+                            final RepositoryContext<?> context) {
+
+        final RepositoryMetrics metrics = context.getSettings().getMetrics();
+        final Mono<T> timed;
+
+        if (!metrics.isEnabled()) {
+            timed = mono;
+        } else {
+            timed = Mono.defer(() -> {
+                final long start = System.nanoTime();
+
+                return mono
+                        .doOnSuccess(value -> metrics.recordOperation(operation, context.getTableName(), indexName, System.nanoTime() - start, null))
+                        .doOnError(e -> metrics.recordOperation(operation, context.getTableName(), indexName, System.nanoTime() - start, unwrap(e)));
+            });
+        }
+
+        if (context.getSettings().getThroughputLimiter() == null) {
+            return timed;
+        }
+
+        return Mono.defer(() -> {
+            final long delay = reserve(operation, indexName, context);
+
+            return delay > 0 ? Mono.delay(Duration.ofNanos(delay)).then(timed) : timed;
+        }).doOnError(e -> throttled(operation, indexName, e, context));
+    }
+
+    /**
+     * @param futureSupplier   Call to DynamoDB (invoked once the limiter allows it)
+     * @param consumedCapacity Consumed capacity of the response
+     * @return Response, recording the duration of the call and the capacity it consumed
+     */
+    static <T> CompletableFuture<T> callFuture(final Supplier<CompletableFuture<T>> futureSupplier,
+                                               final Function<T, ConsumedCapacity> consumedCapacity,
+                                               final RepositoryOperation operation,
+                                               final String indexName,
+                                               final RepositoryContext<?> context) {
+
+        final long delay = reserve(operation, indexName, context);
+        final CompletableFuture<T> future;
+
+        if (delay > 0) {
+            final CompletableFuture<Void> permit = new CompletableFuture<>();
+
+            //Reactor timer rather than CompletableFuture.delayedExecutor, which would dispatch the call on the common pool
+            Schedulers.parallel().schedule(() -> permit.complete(null), delay, TimeUnit.NANOSECONDS);
+            future = permit.thenCompose(a -> timedFuture(futureSupplier, operation, indexName, context));
+        } else {
+            future = timedFuture(futureSupplier, operation, indexName, context);
+        }
+
+        if (!isCapacityTracked(context)) {
+            return future;
+        }
+
+        return future.whenComplete((value, e) -> {
+            if (value != null) {
+                consumedCapacity(operation, consumedCapacity.apply(value), context);
+            } else if (e != null) {
+                throttled(operation, indexName, e, context);
+            }
+        });
+    }
+
+    private static <T> CompletableFuture<T> timedFuture(final Supplier<CompletableFuture<T>> futureSupplier,
+                                                        final RepositoryOperation operation,
+                                                        final String indexName,
+                                                        final RepositoryContext<?> context) {
+
+        final RepositoryMetrics metrics = context.getSettings().getMetrics();
+
+        if (!metrics.isEnabled()) {
+            return futureSupplier.get();
+        } else {
+            final long start = System.nanoTime();
+
+            return futureSupplier.get().whenComplete((value, e) ->
+                    metrics.recordOperation(operation, context.getTableName(), indexName, System.nanoTime() - start, e != null ? unwrap(e) : null));
+        }
+    }
+
+    /**
+     * @param page             Query or Scan call reading the page that starts at the given key, null for the first page
+     * @param lastEvaluatedKey Key after which the next page starts, null or empty after the last page
+     * @param itemCount        Number of items of a page
+     * @param consumedCapacity Consumed capacity of a page
+     * @return Pages, recording the size and consumed capacity of each page and the duration of the whole stream. When rate
+     * limited, every page (the first one included) is only requested once the limiter allows it.
+     */
+    static <P> Flux<P> pages(final Function<Map<String, AttributeValue>, CompletableFuture<P>> page,
+                             final Function<P, Map<String, AttributeValue>> lastEvaluatedKey,
+                             final ToIntFunction<P> itemCount,
+                             final Function<P, ConsumedCapacity> consumedCapacity,
+                             final RepositoryOperation operation,
+                             final String indexName,
+                             final RepositoryContext<?> context) {
+
+        final RepositoryMetrics metrics = context.getSettings().getMetrics();
+        final Flux<P> flux = paginate(() -> permit(operation, indexName, context),
+                startKey -> Mono.defer(() -> Mono.fromFuture(page.apply(startKey)))
+                        .doOnNext(response -> consumedCapacity(operation, consumedCapacity.apply(response), context))
+                        .doOnError(e -> throttled(operation, indexName, e, context)),
+                lastEvaluatedKey);
+
+        if (!metrics.isEnabled()) {
+            return flux;
+        }
+
+        return Flux.defer(() -> {
+            final long start = System.nanoTime();
+
+            return flux
+                    .doOnNext(page -> metrics.recordPage(operation, context.getTableName(), indexName, itemCount.applyAsInt(page)))
+                    .doOnComplete(() -> metrics.recordOperation(operation, context.getTableName(), indexName, System.nanoTime() - start, null))
+                    .doOnError(e -> metrics.recordOperation(operation, context.getTableName(), indexName, System.nanoTime() - start, unwrap(e)));
+        });
+    }
+
+    /**
+     * Reads the pages one call at a time: the call of a page is made after the permit completes, and the next page is only
+     * read once the previous one has been emitted, so nothing is read ahead and a cancelled subscriber stops the pagination.
+     *
+     * @param permit           Wait before each call
+     * @param page             Call reading the page that starts at the given key, null for the first page
+     * @param lastEvaluatedKey Key after which the next page starts, null or empty after the last page
+     * @return Pages
+     */
+    static <P> Flux<P> paginate(final Supplier<Mono<?>> permit,
+                                final Function<Map<String, AttributeValue>, Mono<P>> page,
+                                final Function<P, Map<String, AttributeValue>> lastEvaluatedKey) {
+
+        final Function<Map<String, AttributeValue>, Mono<P>> permittedPage = startKey -> Mono.defer(permit).then(Mono.defer(() -> page.apply(startKey)));
+
+        return Flux.defer(() -> permittedPage.apply(null).expand(response -> {
+            final Map<String, AttributeValue> startKey = lastEvaluatedKey.apply(response);
+
+            return startKey == null || startKey.isEmpty() ? Mono.empty() : permittedPage.apply(startKey);
+        }));
+    }
+
+    /**
+     * Called before retrying unprocessed batch keys/items, which DynamoDB leaves out when the table is throttled.
+     */
+    static void retry(final RepositoryOperation operation, final int attempt, final RepositoryContext<?> context) {
+        final ThroughputLimiter limiter = context.getSettings().getThroughputLimiter();
+
+        context.getSettings().getMetrics().recordRetry(operation, context.getTableName(), attempt);
+
+        if (limiter != null) {
+            limiter.throttled(context.getTableName(), null, operation.isRead());
+        }
+    }
+
+    /**
+     * @return INDEXES when the consumed capacity is tracked or rate limited, NONE otherwise
+     */
+    static ReturnConsumedCapacity returnConsumedCapacity(final RepositoryContext<?> context) {
+        return isCapacityTracked(context) ? ReturnConsumedCapacity.INDEXES : ReturnConsumedCapacity.NONE;
+    }
+
+    private static boolean isCapacityTracked(final RepositoryContext<?> context) {
+        return context.getSettings().getConsumedCapacityTracker() != null || context.getSettings().getThroughputLimiter() != null;
+    }
+
+    private static Mono<?> permit(final RepositoryOperation operation, final String indexName, final RepositoryContext<?> context) {
+        final long delay = reserve(operation, indexName, context);
+
+        return delay > 0 ? Mono.delay(Duration.ofNanos(delay)) : Mono.empty();
+    }
+
+    private static long reserve(final RepositoryOperation operation, final String indexName, final RepositoryContext<?> context) {
+        final ThroughputLimiter limiter = context.getSettings().getThroughputLimiter();
+
+        return limiter != null ? limiter.reserve(context.getTableName(), indexName, operation.isRead()) : 0;
+    }
+
+    private static void throttled(final RepositoryOperation operation,
+                                  final String indexName,
+                                  final Throwable e,
+                                  final RepositoryContext<?> context) {
+
+        final ThroughputLimiter limiter = context.getSettings().getThroughputLimiter();
+        final Throwable cause = unwrap(e);
+
+        if (limiter != null && cause instanceof AwsServiceException && ((AwsServiceException) cause).isThrottlingException()) {
+            limiter.throttled(context.getTableName(), indexName, operation.isRead());
+        }
+    }
+
+    static void consumedCapacity(final RepositoryOperation operation,
+                                 final List<ConsumedCapacity> consumedCapacities,
+                                 final RepositoryContext<?> context) {
+
+        if (consumedCapacities != null && isCapacityTracked(context)) {
+            consumedCapacities.forEach(consumedCapacity -> consumedCapacity(operation, consumedCapacity, context));
+        }
+    }
+
+    /**
+     * Splits the consumed capacity between the table and its indexes and reports it to the tracker, the limiter and the
+     * metrics.
+     */
+    static void consumedCapacity(final RepositoryOperation operation,
+                                 final ConsumedCapacity consumedCapacity,
+                                 final RepositoryContext<?> context) {
+
+        if (consumedCapacity != null && isCapacityTracked(context)) {
+            final String tableName = consumedCapacity.tableName() != null ? consumedCapacity.tableName() : context.getTableName();
+
+            if (consumedCapacity.table() != null) {
+                consumedCapacity(operation, tableName, null, consumedCapacity.table(), context);
+            } else if (!consumedCapacity.hasGlobalSecondaryIndexes() && !consumedCapacity.hasLocalSecondaryIndexes()
+                    && consumedCapacity.capacityUnits() != null) {
+
+                consumedCapacity(operation, tableName, null, Capacity.builder().capacityUnits(consumedCapacity.capacityUnits()).build(), context);
+            }
+
+            if (consumedCapacity.hasGlobalSecondaryIndexes()) {
+                consumedCapacity.globalSecondaryIndexes().forEach((indexName, capacity) -> consumedCapacity(operation, tableName, indexName, capacity, context));
+            }
+
+            if (consumedCapacity.hasLocalSecondaryIndexes()) {
+                consumedCapacity.localSecondaryIndexes().forEach((indexName, capacity) -> consumedCapacity(operation, tableName, indexName, capacity, context));
+            }
+        }
+    }
+
+    private static void consumedCapacity(final RepositoryOperation operation,
+                                         final String tableName,
+                                         final String indexName,
+                                         final Capacity capacity,
+                                         final RepositoryContext<?> context) {
+
+        final ConsumedCapacityTracker tracker = context.getSettings().getConsumedCapacityTracker();
+        final ThroughputLimiter limiter = context.getSettings().getThroughputLimiter();
+
+        if (capacity.capacityUnits() != null && capacity.capacityUnits() > 0) {
+            if (tracker != null) {
+                tracker.record(operation, tableName, indexName, capacity.capacityUnits());
+            }
+
+            if (limiter != null) {
+                limiter.consumed(tableName, indexName, operation.isRead(), capacity.capacityUnits());
+            }
+
+            context.getSettings().getMetrics().recordConsumedCapacity(operation, tableName, indexName, capacity.capacityUnits());
+        }
+    }
+
+    /**
+     * @return Mapping of an item to an entity, timed when metrics are enabled
+     */
+    static <T> Function<Map<String, AttributeValue>, T> entityMapper(final RepositoryContext<T> context) {
+        final DataMapper<T> dataMapper = context.getDataMapper();
+
+        return timedMapper(dataMapper::mapFromAttributeValueToEntity, context);
+    }
+
+    /**
+     * @return Mapping of a projected item to an instance of the projection type, timed when metrics are enabled
+     */
+    @SuppressWarnings("unchecked")
+    static <P> Function<Map<String, AttributeValue>, P> projectionMapper(final Class<P> projectionType,
+                                                                        final RepositoryContext<?> context) {
+
+        final Func1<AttributeValue, Object> decoder = NestedAttributeCodec.decoder(projectionType);
+
+        return timedMapper(item -> (P) decoder.call(AttributeValue.builder().m(item).build()), context);
+    }
+
+    private static <R> Function<Map<String, AttributeValue>, R> timedMapper(final Function<Map<String, AttributeValue>, R> mapper,
+                                                                           final RepositoryContext<?> context) {
+
+        final RepositoryMetrics metrics = context.getSettings().getMetrics();
+
+        if (!metrics.isEnabled()) {
+            return mapper;
+        }
+
+        return item -> {
+            final long start = System.nanoTime();
+            final R result = mapper.apply(item);
+
+            metrics.recordMapping(context.getTableName(), System.nanoTime() - start);
+
+            return result;
+        };
+    }
+
+    static Throwable unwrap(final Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,59 @@
+package org.leo.aws.ddb.repositories;
+
+/**
+ * Pagination state of a query or scan stopping after {@code maxResults} records. The Limit of the next page is sized from the
+ * records still wanted and the ratio of records read (ScannedCount) to records returned (Count) so far: without filter
+ * expression both are equal and the page holds exactly the remaining records, with a filter the page grows with the
+ * selectivity observed (doubling while nothing matched). Pages never exceed the requested page size, and the pagination ends
+ * as soon as {@code maxResults} records have been returned.
+ */
+final class ResultLimit {
+    private final int pageSize;
+    private final int maxResults;
+    private long scanned;
+    private long returned;
+    private int lastLimit;
+
+    /**
+     * @param pageSize   Largest page Limit
+     * @param maxResults Number of records after which the pagination stops
+     */
+    ResultLimit(final int pageSize, final int maxResults) {
+        this.pageSize = pageSize;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * @return Limit of the next page
+     */
+    synchronized int nextLimit() {
+        final long remaining = maxResults - returned;
+        final double limit;
+
+        if (scanned == 0) {
+            limit = remaining;
+        } else if (returned == 0) {
+            limit = lastLimit * 2d;
+        } else {
+            limit = Math.ceil(remaining * (double) scanned / returned);
+        }
+
+        lastLimit = (int) Math.max(1, Math.min(pageSize, limit));
+
+        return lastLimit;
+    }
+
+    /**
+     * @param scannedCount Records read by the page, null when not reported
+     * @param count        Records returned by the page
+     * @return true if the next page is needed
+     */
+    synchronized boolean record(final Integer scannedCount, final Integer count) {
+        final int returnedCount = count != null ? count : 0;
+
+        scanned += scannedCount != null ? scannedCount : returnedCount;
+        returned += returnedCount;
+
+        return returned < maxResults;
+    }
+}
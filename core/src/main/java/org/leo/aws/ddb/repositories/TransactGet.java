@@ -0,0 +1,113 @@
+package org.leo.aws.ddb.repositories;
+
+import org.leo.aws.ddb.data.PrimaryKey;
+import software.amazon.awssdk.services.dynamodb.model.Get;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records read with a single TransactGetItems call, which returns a consistent snapshot of all of them. Records can belong
+ * to different repositories (tables).
+ */
+@SuppressWarnings({"unused"})
+public final class TransactGet {
+    public static final int MAX_ITEMS = 100;
+
+    private final List<Entry> entries;
+
+    private TransactGet(final List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    public static Builder builder() {
+        return new BuilderImpl();
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return "TransactGet{" +
+                "entries=" + entries +
+                '}';
+    }
+
+    static final class Entry {
+        private final RepositoryContext<?> context;
+        private final PrimaryKey primaryKey;
+
+        private Entry(final RepositoryContext<?> context, final PrimaryKey primaryKey) {
+            this.context = context;
+            this.primaryKey = primaryKey;
+        }
+
+        RepositoryContext<?> getContext() {
+            return context;
+        }
+
+        PrimaryKey getPrimaryKey() {
+            return primaryKey;
+        }
+
+        TransactGetItem toTransactGetItem() {
+            return TransactGetItem.builder()
+                    .get(Get.builder()
+                            .tableName(context.getTableName())
+                            .key(context.getDataMapper().getPrimaryKey(primaryKey))
+                            .build())
+                    .build();
+        }
+
+        @Override
+        public String toString() {
+            return context.getTableName() + " " + primaryKey;
+        }
+    }
+
+    public interface Builder {
+
+        <T> Builder get(DynamoDbRepository<T> repository, PrimaryKey primaryKey);
+
+        TransactGet build();
+    }
+
+    private static class BuilderImpl implements Builder {
+        private final List<Entry> entries = new ArrayList<>();
+
+        BuilderImpl() {
+        }
+
+        /**
+         * @param repository Repository of the record
+         * @param primaryKey Hash Key and Sort Keys
+         * @return Builder
+         */
+        @Override
+        public <T> Builder get(final DynamoDbRepository<T> repository, final PrimaryKey primaryKey) {
+            if (entries.size() >= MAX_ITEMS) {
+                throw new IllegalArgumentException("A transaction cannot read more than " + MAX_ITEMS + " records");
+            }
+
+            entries.add(new Entry(BaseRepositoryUtils.getInstance().getRepositoryContext(repository), primaryKey));
+            return this;
+        }
+
+        @Override
+        public TransactGet build() {
+            if (entries.isEmpty()) {
+                throw new IllegalArgumentException("A transaction should read at least one record");
+            }
+
+            return new TransactGet(Collections.unmodifiableList(new ArrayList<>(entries)));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.leo.aws.ddb.repositories;
+
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records read by a {@link TransactGet}, in the order they were requested.
+ */
+@SuppressWarnings({"unused"})
+public final class TransactGetResult {
+    private final List<TransactGet.Entry> entries;
+    private final List<Object> items;
+
+    TransactGetResult(final List<TransactGet.Entry> entries, final List<Object> items) {
+        this.entries = entries;
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @param index Position of the record in the {@link TransactGet}
+     * @return Record, null if it does not exist
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T getItem(final int index) {
+        return (T) items.get(index);
+    }
+
+    /**
+     * @return Records in the order they were requested, null for the records that do not exist
+     */
+    public List<Object> getItems() {
+        return items;
+    }
+
+    /**
+     * @param repository Repository of the records
+     * @return Existing records of the repository, in the order they were requested
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getItems(final DynamoDbRepository<T> repository) {
+        final RepositoryContext<T> context = BaseRepositoryUtils.getInstance().getRepositoryContext(repository);
+        final List<T> repositoryItems = new ArrayList<>();
+
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).getContext() == context && items.get(i) != null) {
+                repositoryItems.add((T) items.get(i));
+            }
+        }
+
+        return repositoryItems;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactGetResult{" +
+                "items=" + items +
+                '}';
+    }
+}
@@ -0,0 +1,337 @@
+package org.leo.aws.ddb.repositories;
+
+import org.leo.aws.ddb.annotations.DbAttribute;
+import org.leo.aws.ddb.data.PrimaryKey;
+import org.leo.aws.ddb.data.UpdateExpr;
+import org.leo.aws.ddb.utils.Expr;
+import org.leo.aws.ddb.utils.Tuple;
+import org.leo.aws.ddb.utils.Tuples;
+import org.springframework.util.ReflectionUtils;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionCheck;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Writes applied atomically with a single TransactWriteItems call: either all of them succeed or none is applied. Actions
+ * can target records of different repositories (tables), a record can only be targeted once.
+ */
+@SuppressWarnings({"unused"})
+public final class TransactWrite {
+    public static final int MAX_ACTIONS = 100;
+
+    private final List<Action> actions;
+    private final String clientRequestToken;
+
+    private TransactWrite(final List<Action> actions, final String clientRequestToken) {
+        this.actions = actions;
+        this.clientRequestToken = clientRequestToken;
+    }
+
+    public static Builder builder() {
+        return new BuilderImpl();
+    }
+
+    List<Action> getActions() {
+        return actions;
+    }
+
+    String getClientRequestToken() {
+        return clientRequestToken;
+    }
+
+    public int size() {
+        return actions.size();
+    }
+
+    @Override
+    public String toString() {
+        return "TransactWrite{" +
+                "actions=" + actions +
+                ", clientRequestToken='" + clientRequestToken + '\'' +
+                '}';
+    }
+
+    /**
+     * Action of the transaction. The request is built when the transaction is executed, so the version attribute of the
+     * entities is only incremented at that time.
+     */
+    static final class Action {
+        private final String type;
+        private final RepositoryContext<?> context;
+        private final Object target;
+        private final Map<String, AttributeValue> key;
+        private final Supplier<TransactWriteItem> request;
+
+        private Action(final String type,
+                       final RepositoryContext<?> context,
+                       final Object target,
+                       final Map<String, AttributeValue> key,
+                       final Supplier<TransactWriteItem> request) {
+
+            this.type = type;
+            this.context = context;
+            this.target = target;
+            this.key = key;
+            this.request = request;
+        }
+
+        RepositoryContext<?> getContext() {
+            return context;
+        }
+
+        /**
+         * @return Entity written by a put, primary key of the record for the other actions
+         */
+        Object getTarget() {
+            return target;
+        }
+
+        Map<String, AttributeValue> getKey() {
+            return key;
+        }
+
+        TransactWriteItem toTransactWriteItem() {
+            return request.get();
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + context.getTableName() + " " + target;
+        }
+    }
+
+    public interface Builder {
+
+        <T> Builder put(DynamoDbRepository<T> repository, T item);
+
+        <T> Builder create(DynamoDbRepository<T> repository, T item);
+
+        <T> Builder update(DynamoDbRepository<T> repository, PrimaryKey primaryKey, UpdateExpr updateExpr);
+
+        <T> Builder delete(DynamoDbRepository<T> repository, PrimaryKey primaryKey);
+
+        <T> Builder delete(DynamoDbRepository<T> repository, PrimaryKey primaryKey, Expr condition);
+
+        <T> Builder conditionCheck(DynamoDbRepository<T> repository, PrimaryKey primaryKey, Expr condition);
+
+        Builder clientRequestToken(String clientRequestToken);
+
+        TransactWrite build();
+    }
+
+    private static class BuilderImpl implements Builder {
+        private final List<Action> actions = new ArrayList<>();
+        private final Set<Tuple<String, Map<String, AttributeValue>>> targets = new HashSet<>();
+        private String clientRequestToken;
+
+        BuilderImpl() {
+        }
+
+        /**
+         * Same checks as {@link DynamoDbRepository#putItem(Object)}: the put fails if the version attribute does not match.
+         *
+         * @param repository Repository of the entity
+         * @param item       Entity written
+         * @return Builder
+         */
+        @Override
+        public <T> Builder put(final DynamoDbRepository<T> repository, final T item) {
+            return put(repository, item, true);
+        }
+
+        /**
+         * Same checks as {@link DynamoDbRepository#saveItem(Object)}: the put fails if the record already exists.
+         *
+         * @param repository Repository of the entity
+         * @param item       Entity written
+         * @return Builder
+         */
+        @Override
+        public <T> Builder create(final DynamoDbRepository<T> repository, final T item) {
+            return put(repository, item, false);
+        }
+
+        /**
+         * @param repository Repository of the record
+         * @param primaryKey Hash Key and Sort Keys
+         * @param updateExpr Update, same rules as {@link DynamoDbRepository#updateItem(PrimaryKey, UpdateExpr)} (the record
+         *                   must exist)
+         * @return Builder
+         */
+        @Override
+        public <T> Builder update(final DynamoDbRepository<T> repository, final PrimaryKey primaryKey, final UpdateExpr updateExpr) {
+            final RepositoryContext<T> context = BaseRepositoryUtils.getInstance().getRepositoryContext(repository);
+            final CompiledUpdate compiledUpdate = CompiledUpdate.of(primaryKey, updateExpr, context);
+
+            return add(new Action("update", context, primaryKey, compiledUpdate.getKey(), () -> TransactWriteItem.builder()
+                    .update(compiledUpdate.toTransactUpdate(context.getTableName()))
+                    .build()));
+        }
+
+        /**
+         * @param repository Repository of the record
+         * @param primaryKey Hash Key and Sort Keys
+         * @return Builder
+         */
+        @Override
+        public <T> Builder delete(final DynamoDbRepository<T> repository, final PrimaryKey primaryKey) {
+            return delete(repository, primaryKey, null);
+        }
+
+        /**
+         * @param repository Repository of the record
+         * @param primaryKey Hash Key and Sort Keys
+         * @param condition  Condition the record should satisfy to be deleted
+         * @return Builder
+         */
+        @Override
+        public <T> Builder delete(final DynamoDbRepository<T> repository, final PrimaryKey primaryKey, final Expr condition) {
+            final RepositoryContext<T> context = BaseRepositoryUtils.getInstance().getRepositoryContext(repository);
+            final Map<String, AttributeValue> key = context.getDataMapper().getPrimaryKey(primaryKey);
+            final Delete.Builder delete = Delete.builder().tableName(context.getTableName()).key(key);
+
+            if (condition != null) {
+                delete.conditionExpression(condition.expression());
+
+                if (condition.attributeNameMap() != null && !condition.attributeNameMap().isEmpty()) {
+                    delete.expressionAttributeNames(condition.attributeNameMap());
+                }
+
+                if (condition.attributeValueMap() != null && !condition.attributeValueMap().isEmpty()) {
+                    delete.expressionAttributeValues(condition.attributeValueMap());
+                }
+            }
+
+            return add(new Action("delete", context, primaryKey, key, () -> TransactWriteItem.builder().delete(delete.build()).build()));
+        }
+
+        /**
+         * @param repository Repository of the record
+         * @param primaryKey Hash Key and Sort Keys
+         * @param condition  Condition the record should satisfy for the transaction to be applied
+         * @return Builder
+         */
+        @Override
+        public <T> Builder conditionCheck(final DynamoDbRepository<T> repository, final PrimaryKey primaryKey, final Expr condition) {
+            if (condition == null) {
+                throw new IllegalArgumentException("condition should not be null");
+            }
+
+            final RepositoryContext<T> context = BaseRepositoryUtils.getInstance().getRepositoryContext(repository);
+            final Map<String, AttributeValue> key = context.getDataMapper().getPrimaryKey(primaryKey);
+            final ConditionCheck.Builder conditionCheck = ConditionCheck.builder()
+                    .tableName(context.getTableName())
+                    .key(key)
+                    .conditionExpression(condition.expression());
+
+            if (condition.attributeNameMap() != null && !condition.attributeNameMap().isEmpty()) {
+                conditionCheck.expressionAttributeNames(condition.attributeNameMap());
+            }
+
+            if (condition.attributeValueMap() != null && !condition.attributeValueMap().isEmpty()) {
+                conditionCheck.expressionAttributeValues(condition.attributeValueMap());
+            }
+
+            return add(new Action("conditionCheck", context, primaryKey, key,
+                    () -> TransactWriteItem.builder().conditionCheck(conditionCheck.build()).build()));
+        }
+
+        /**
+         * @param clientRequestToken Idempotency token: calls made with the same token within 10 minutes are applied once
+         * @return Builder
+         */
+        @Override
+        public Builder clientRequestToken(final String clientRequestToken) {
+            this.clientRequestToken = clientRequestToken;
+            return this;
+        }
+
+        @Override
+        public TransactWrite build() {
+            if (actions.isEmpty()) {
+                throw new IllegalArgumentException("A transaction should have at least one action");
+            }
+
+            return new TransactWrite(Collections.unmodifiableList(new ArrayList<>(actions)), clientRequestToken);
+        }
+
+        private <T> Builder put(final DynamoDbRepository<T> repository, final T item, final boolean upsert) {
+            final RepositoryContext<T> context = BaseRepositoryUtils.getInstance().getRepositoryContext(repository);
+            final DataMapper<T> dataMapper = context.getDataMapper();
+            final PrimaryKey primaryKey = dataMapper.createPKFromItem(item);
+
+            return add(new Action(upsert ? "put" : "create", context, item, dataMapper.getPrimaryKey(primaryKey),
+                    () -> TransactWriteItem.builder().put(toPut(item, primaryKey, upsert, context)).build()));
+        }
+
+        private Builder add(final Action action) {
+            if (actions.size() >= MAX_ACTIONS) {
+                throw new IllegalArgumentException("A transaction cannot have more than " + MAX_ACTIONS + " actions");
+            } else if (!targets.add(Tuples.of(action.getContext().getTableName(), action.getKey()))) {
+                throw new IllegalArgumentException("A record can only be targeted once in a transaction: " + action);
+            }
+
+            actions.add(action);
+            return this;
+        }
+
+        private static <T> Put toPut(final T item, final PrimaryKey primaryKey, final boolean upsert, final RepositoryContext<T> context) {
+            final Tuple<Field, DbAttribute> versionedAttribute = context.getAttributeMapper().getVersionAttributeField();
+            final Map<String, String> attributeNames = new HashMap<>();
+            final Map<String, AttributeValue> attributeValues = new HashMap<>();
+            final Put.Builder put = Put.builder().tableName(context.getTableName());
+
+            if (!upsert) {
+                attributeNames.put("#tkey", primaryKey.getHashKeyName());
+                put.conditionExpression("attribute_not_exists(#tkey)");
+
+                if (versionedAttribute != null) {
+                    setVersion(item, versionedAttribute, 0);
+                }
+            } else if (versionedAttribute != null) {
+                final Number versionNum = (Number) ReflectionUtils.getField(versionedAttribute._1(), item);
+
+                attributeNames.put("#tver", versionedAttribute._2().value());
+
+                if (versionNum == null) {
+                    put.conditionExpression("attribute_not_exists(#tver)");
+                    setVersion(item, versionedAttribute, 0);
+                } else {
+                    attributeValues.put(":tver", AttributeValue.builder().n(String.valueOf(versionNum)).build());
+                    put.conditionExpression("#tver = :tver");
+                    setVersion(item, versionedAttribute, versionNum.intValue() + 1);
+                }
+            }
+
+            if (!attributeNames.isEmpty()) {
+                put.expressionAttributeNames(attributeNames);
+            }
+
+            if (!attributeValues.isEmpty()) {
+                put.expressionAttributeValues(attributeValues);
+            }
+
+            return put.item(context.getDataMapper().mapFromEntityToAttributeValue(item)).build();
+        }
+
+        private static void setVersion(final Object item, final Tuple<Field, DbAttribute> versionedAttribute, final int version) {
+            if (versionedAttribute._1().getType() == Long.class || versionedAttribute._1().getType() == long.class) {
+                ReflectionUtils.setField(versionedAttribute._1(), item, (long) version);
+            } else {
+                ReflectionUtils.setField(versionedAttribute._1(), item, version);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.leo.aws.ddb.repositories;
+
+import org.leo.aws.ddb.utils.DbUtils;
+import org.leo.aws.ddb.utils.Tuple;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Groups write requests into chunks that fit in a single BatchWriteItem call (at most 25 requests and 16 MB). Chunks are
+ * built lazily as they are consumed, so large imports do not need all the write requests in memory at once.
+ *
+ * @param <T> Entity type
+ */
+final class WriteRequestChunker<T> implements Iterator<WriteRequestChunker.Chunk<T>> {
+    static final int MAX_CHUNK_REQUESTS = 25;
+    static final long MAX_CHUNK_SIZE = 16L * 1024 * 1024;
+
+    private final Iterator<Tuple<WriteRequest, T>> writeRequests;
+    private Tuple<WriteRequest, T> pending;
+    private long pendingSize;
+
+    /**
+     * @param writeRequests Write requests paired with the entity emitted once the request is written (null to emit nothing)
+     */
+    WriteRequestChunker(final Iterator<Tuple<WriteRequest, T>> writeRequests) {
+        this.writeRequests = writeRequests;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending != null || writeRequests.hasNext();
+    }
+
+    @Override
+    public Chunk<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final Chunk<T> chunk = new Chunk<>();
+
+        while (chunk.writeRequests.size() < MAX_CHUNK_REQUESTS && (pending != null || writeRequests.hasNext())) {
+            if (pending == null) {
+                pending = writeRequests.next();
+                pendingSize = estimateSize(pending._1());
+            }
+
+            if (!chunk.writeRequests.isEmpty() && chunk.size + pendingSize > MAX_CHUNK_SIZE) {
+                break;
+            }
+
+            chunk.add(pending, pendingSize);
+            pending = null;
+        }
+
+        return chunk;
+    }
+
+    private static long estimateSize(final WriteRequest writeRequest) {
+        if (writeRequest.putRequest() != null) {
+            return DbUtils.estimateItemSize(writeRequest.putRequest().item());
+        } else if (writeRequest.deleteRequest() != null) {
+            return DbUtils.estimateItemSize(writeRequest.deleteRequest().key());
+        } else {
+            return 0;
+        }
+    }
+
+    static final class Chunk<T> {
+        private final List<WriteRequest> writeRequests = new ArrayList<>(MAX_CHUNK_REQUESTS);
+        private final List<T> items = new ArrayList<>(MAX_CHUNK_REQUESTS);
+        private long size;
+
+        private void add(final Tuple<WriteRequest, T> writeRequest, final long writeRequestSize) {
+            writeRequests.add(writeRequest._1());
+            size += writeRequestSize;
+
+            if (writeRequest._2() != null) {
+                items.add(writeRequest._2());
+            }
+        }
+
+        List<WriteRequest> getWriteRequests() {
+            return writeRequests;
+        }
+
+        /**
+         * @return Entities to emit once the chunk is written
+         */
+        List<T> getItems() {
+            return items;
+        }
+
+        long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.leo.aws.ddb.throttling;
+
+/**
+ * Capacity units per second a table (or index) may consume. A value of 0 means no limit.
+ */
+@SuppressWarnings({"unused"})
+public final class ThroughputLimit {
+    private final double readCapacityUnits;
+    private final double writeCapacityUnits;
+
+    private ThroughputLimit(final double readCapacityUnits, final double writeCapacityUnits) {
+        this.readCapacityUnits = readCapacityUnits;
+        this.writeCapacityUnits = writeCapacityUnits;
+    }
+
+    /**
+     * @param readCapacityUnits  Read capacity units per second, 0 for no limit
+     * @param writeCapacityUnits Write capacity units per second, 0 for no limit
+     * @return Limit
+     */
+    public static ThroughputLimit of(final double readCapacityUnits, final double writeCapacityUnits) {
+        if (readCapacityUnits < 0 || writeCapacityUnits < 0) {
+            throw new IllegalArgumentException("Capacity units should not be negative");
+        }
+
+        return new ThroughputLimit(readCapacityUnits, writeCapacityUnits);
+    }
+
+    public double getReadCapacityUnits() {
+        return readCapacityUnits;
+    }
+
+    public double getWriteCapacityUnits() {
+        return writeCapacityUnits;
+    }
+
+    /**
+     * @param read Read or write capacity
+     * @return Capacity units per second, {@link Double#POSITIVE_INFINITY} when there is no limit
+     */
+    double getRate(final boolean read) {
+        final double units = read ? readCapacityUnits : writeCapacityUnits;
+
+        return units > 0 ? units : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public String toString() {
+        return "ThroughputLimit{" +
+                "readCapacityUnits=" + readCapacityUnits +
+                ", writeCapacityUnits=" + writeCapacityUnits +
+                '}';
+    }
+}
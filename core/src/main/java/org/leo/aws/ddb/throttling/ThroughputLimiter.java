@@ -0,0 +1,191 @@
+package org.leo.aws.ddb.throttling;
+
+import org.leo.aws.ddb.utils.Tuple;
+import org.leo.aws.ddb.utils.Tuple3;
+import org.leo.aws.ddb.utils.Tuples;
+import org.springframework.lang.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client side rate limiter keeping the repositories under the throughput of their tables and indexes. Calls wait
+ * (without blocking a thread) while the token bucket of the table/index they use is in debt. Every call reserves an
+ * estimate of its capacity (the average of the previous calls) before it is dispatched, so concurrent calls are spread out,
+ * and the capacity actually consumed, as reported by DynamoDB, is settled once the response arrives. Writes wait for the
+ * table and all its indexes, since they consume write capacity on every index that projects the item; their estimate is
+ * reserved on the table.
+ * <p>
+ * In adaptive mode the rate is lowered when DynamoDB throttles (throttling errors or unprocessed batch items) and raised
+ * back gradually afterwards. Tables without a configured limit are then only limited after they have been throttled.
+ */
+@SuppressWarnings({"unused"})
+public final class ThroughputLimiter {
+    private final Map<Tuple<String, String>, ThroughputLimit> limits;
+    private final boolean adaptive;
+    private final Map<Tuple3<String, String, Boolean>, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private ThroughputLimiter(final Map<Tuple<String, String>, ThroughputLimit> limits, final boolean adaptive) {
+        this.limits = limits;
+        this.adaptive = adaptive;
+    }
+
+    public static Builder builder() {
+        return new BuilderImpl();
+    }
+
+    /**
+     * Reserves the estimated capacity of a call, settled by the {@link #consumed(String, String, boolean, double)} of its
+     * response.
+     *
+     * @param tableName Table name
+     * @param indexName Index queried, null for the table (ignored for writes)
+     * @param read      Read or write
+     * @return Nanos to wait before calling DynamoDB
+     */
+    public long reserve(final String tableName, @Nullable final String indexName, final boolean read) {
+        final long now = System.nanoTime();
+
+        if (read) {
+            final TokenBucket bucket = getBucket(tableName, indexName, true);
+
+            return bucket != null ? bucket.reserve(now) : 0;
+        } else {
+            final TokenBucket tableBucket = getBucket(tableName, null, false);
+            long delay = tableBucket != null ? tableBucket.reserve(now) : 0;
+
+            for (final Map.Entry<Tuple3<String, String, Boolean>, TokenBucket> entry : buckets.entrySet()) {
+                if (!entry.getKey()._3() && tableName.equals(entry.getKey()._1()) && entry.getKey()._2() != null) {
+                    delay = Math.max(delay, entry.getValue().getDelayNanos(now));
+                }
+            }
+
+            return delay;
+        }
+    }
+
+    /**
+     * @param tableName     Table name
+     * @param indexName     Index name, null for the table
+     * @param read          Read or write capacity
+     * @param capacityUnits Capacity units consumed
+     */
+    public void consumed(final String tableName, @Nullable final String indexName, final boolean read, final double capacityUnits) {
+        final TokenBucket bucket = getBucket(tableName, indexName, read);
+
+        if (bucket != null) {
+            bucket.consume(capacityUnits, System.nanoTime());
+        }
+    }
+
+    /**
+     * @param tableName Table name
+     * @param indexName Index name, null for the table
+     * @param read      Read or write
+     */
+    public void throttled(final String tableName, @Nullable final String indexName, final boolean read) {
+        final TokenBucket bucket = getBucket(tableName, read ? indexName : null, read);
+
+        if (bucket != null) {
+            bucket.throttled(System.nanoTime());
+        }
+    }
+
+    /**
+     * @return Current rate (capacity units per second) of the table/index, {@link Double#POSITIVE_INFINITY} when not limited
+     */
+    public double getRate(final String tableName, @Nullable final String indexName, final boolean read) {
+        final TokenBucket bucket = buckets.get(Tuples.of(tableName, indexName, read));
+
+        return bucket != null ? bucket.getRate() : Double.POSITIVE_INFINITY;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    private TokenBucket getBucket(final String tableName, final String indexName, final boolean read) {
+        final Tuple3<String, String, Boolean> key = Tuples.of(tableName, indexName, read);
+        final TokenBucket bucket = buckets.get(key);
+
+        if (bucket != null) {
+            return bucket;
+        } else {
+            final ThroughputLimit limit = limits.get(Tuples.of(tableName, indexName));
+
+            if (limit == null && !adaptive) {
+                return null;
+            }
+
+            buckets.putIfAbsent(key, new TokenBucket(limit != null ? limit.getRate(read) : Double.POSITIVE_INFINITY, adaptive, System.nanoTime()));
+
+            return buckets.get(key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ThroughputLimiter{" +
+                "limits=" + limits +
+                ", adaptive=" + adaptive +
+                '}';
+    }
+
+    public interface Builder {
+
+        Builder limit(String tableName, ThroughputLimit limit);
+
+        Builder limit(String tableName, String indexName, ThroughputLimit limit);
+
+        Builder adaptive(boolean adaptive);
+
+        ThroughputLimiter build();
+    }
+
+    private static class BuilderImpl implements Builder {
+        private final Map<Tuple<String, String>, ThroughputLimit> limits = new HashMap<>();
+        private boolean adaptive;
+
+        BuilderImpl() {
+        }
+
+        /**
+         * @param tableName Table name
+         * @param limit     Throughput of the table
+         * @return Builder
+         */
+        @Override
+        public Builder limit(final String tableName, final ThroughputLimit limit) {
+            limits.put(Tuples.of(tableName, null), limit);
+            return this;
+        }
+
+        /**
+         * @param tableName Table name
+         * @param indexName Index name
+         * @param limit     Throughput of the index
+         * @return Builder
+         */
+        @Override
+        public Builder limit(final String tableName, final String indexName, final ThroughputLimit limit) {
+            limits.put(Tuples.of(tableName, indexName), limit);
+            return this;
+        }
+
+        /**
+         * @param adaptive Lower the rate when DynamoDB throttles and raise it back gradually
+         * @return Builder
+         */
+        @Override
+        public Builder adaptive(final boolean adaptive) {
+            this.adaptive = adaptive;
+            return this;
+        }
+
+        @Override
+        public ThroughputLimiter build() {
+            return new ThroughputLimiter(new HashMap<>(limits), adaptive);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.leo.aws.ddb.throttling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket refilled at {@code rate} capacity units per second, holding at most one second worth of tokens. Every call
+ * reserves the average capacity of the previous calls before it is dispatched, and the difference with the capacity it
+ * actually consumed is settled once the response arrives. The balance can go negative; callers wait until the debt is paid
+ * back, so a burst of concurrent calls is spread over time instead of all going through while the balance is positive.
+ * <p>
+ * In adaptive mode a throttle cuts the rate to 70% of the current rate (multiplicative decrease), or to 70% of the rate
+ * observed over the last second while the rate is unlimited. Every second without throttles raises it back by 5% of the
+ * limit (additive increase), up to the limit. Without a limit the rate is raised by 10% of the current rate instead, and
+ * goes back to unlimited once it would exceed twice the observed rate.
+ */
+final class TokenBucket {
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double DECREASE_FACTOR = 0.7;
+    private static final double INCREASE_FACTOR = 0.05;
+    private static final double MIN_RATE = 1;
+    private static final double AVERAGE_WEIGHT = 0.2;
+
+    private final double maxRate;
+    private final boolean adaptive;
+    private double rate;
+    private double balance;
+    private long lastRefill;
+    private long windowStart;
+    private double windowUnits;
+    private double observedRate;
+    private long lastAdjustment;
+    private double averageUnits = 1;
+    private double reservedUnits;
+    private long reservations;
+
+    /**
+     * @param maxRate  Capacity units per second, {@link Double#POSITIVE_INFINITY} for no limit
+     * @param adaptive Lower the rate when throttled
+     * @param now      Current time (nanos)
+     */
+    TokenBucket(final double maxRate, final boolean adaptive, final long now) {
+        this.maxRate = maxRate;
+        this.adaptive = adaptive;
+        this.rate = maxRate;
+        this.lastRefill = now;
+        this.windowStart = now;
+        this.lastAdjustment = now;
+    }
+
+    /**
+     * @return Nanos to wait before the next call, 0 if the bucket is not in debt
+     */
+    synchronized long getDelayNanos(final long now) {
+        refill(now);
+
+        return balance >= 0 || Double.isInfinite(rate) ? 0 : (long) (-balance / rate * ONE_SECOND);
+    }
+
+    /**
+     * Reserves the estimated capacity of a call, settled by the next {@link #consume(double, long)}.
+     *
+     * @return Nanos to wait before the call, 0 if the bucket was not in debt
+     */
+    synchronized long reserve(final long now) {
+        final long delay = getDelayNanos(now);
+
+        if (!Double.isInfinite(rate)) {
+            balance -= averageUnits;
+            reservedUnits += averageUnits;
+            reservations++;
+        }
+
+        return delay;
+    }
+
+    synchronized void consume(final double units, final long now) {
+        refill(now);
+        averageUnits += (units - averageUnits) * AVERAGE_WEIGHT;
+
+        if (now - windowStart >= ONE_SECOND) {
+            observedRate = windowUnits * ONE_SECOND / (now - windowStart);
+            windowStart = now;
+            windowUnits = 0;
+        }
+
+        windowUnits += units;
+
+        if (reservations > 0) {
+            final double reserved = reservedUnits / reservations;
+
+            reservedUnits -= reserved;
+            reservations--;
+            balance -= units - reserved;
+        } else if (!Double.isInfinite(rate)) {
+            balance -= units;
+        }
+    }
+
+    synchronized void throttled(final long now) {
+        if (adaptive) {
+            final double base = Double.isInfinite(rate) ? Math.max(observedRate, MIN_RATE) : rate;
+
+            refill(now);
+            rate = Math.max(MIN_RATE, base * DECREASE_FACTOR);
+            balance = Math.min(balance, 0);
+            lastAdjustment = now;
+        }
+    }
+
+    synchronized double getRate() {
+        return rate;
+    }
+
+    private void refill(final long now) {
+        final long elapsed = now - lastRefill;
+
+        if (adaptive && rate < maxRate && now - lastAdjustment >= ONE_SECOND) {
+            final double step = Double.isInfinite(maxRate) ? Math.max(MIN_RATE, rate * INCREASE_FACTOR * 2) : maxRate * INCREASE_FACTOR;
+
+            rate = Double.isInfinite(maxRate) && rate + step > observedRate * 2 ? maxRate : Math.min(maxRate, rate + step);
+            lastAdjustment = now;
+        }
+
+        if (elapsed > 0) {
+            lastRefill = now;
+            balance = Double.isInfinite(rate) ? 0 : Math.min(rate, balance + rate * elapsed / ONE_SECOND);
+        }
+
+        if (Double.isInfinite(rate)) {
+            reservedUnits = 0;
+            reservations = 0;
+        }
+    }
+}
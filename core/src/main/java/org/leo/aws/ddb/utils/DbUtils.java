@@ -1,8 +1,5 @@
 package org.leo.aws.ddb.utils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import org.leo.aws.ddb.annotations.DbAttribute;
 import org.leo.aws.ddb.exceptions.DbException;
 import org.leo.aws.ddb.utils.exceptions.Issue;
@@ -11,14 +8,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.ReflectionUtils;
+import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.dynamodb.model.AttributeAction;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValueUpdate;
 
-import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.NumberFormat;
@@ -37,15 +35,6 @@ public final class DbUtils {
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DbUtils.class);
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-
-    static {
-        final SimpleModule module = new SimpleModule();
-
-        module.addSerializer(AttributeValue.class, new AttributeValueSerializer());
-        OBJECT_MAPPER.registerModule(module);
-    }
-
 
     private DbUtils() {
     }
@@ -90,15 +79,15 @@ public final class DbUtils {
             } else if (field.getType() == Date.class) {
                 func1 = attributeValue -> Date.from(ZonedDateTime.parse(attributeValue.s(), DATE_TIME_FORMATTER).toInstant());
             } else if (Set.class.isAssignableFrom(field.getType())) {
-                func1 = a -> attributeToCollection(field, a, () -> new HashSet<>());
+                func1 = collectionDecoder(field, () -> new HashSet<>());
             } else if (List.class.isAssignableFrom(field.getType())) {
-                func1 = a -> attributeToCollection(field, a, () -> new ArrayList<>());
-            } else if (field.getType() == Map.class) {
-                func1 = DbUtils::toMappedObject;
+                func1 = collectionDecoder(field, () -> new ArrayList<>());
             } else if (field.getType().isArray()) {
-                func1 = a -> attributeToArray(field, a);
+                final Func1<AttributeValue, Object> arrayDecoder = NestedAttributeCodec.decoder(field.getGenericType());
+
+                func1 = a -> attributeToArray(arrayDecoder, a);
             } else {
-                func1 = a -> toMappedObject(field.getType(), a);
+                func1 = NestedAttributeCodec.decoder(field.getGenericType());
             }
 
             return func1;
@@ -108,40 +97,35 @@ public final class DbUtils {
     }
 
     public static Object attributeToArray(final Field field, final AttributeValue attributeValue) {
-        final Class arrayType = field.getType();
-        final Class fieldType = field.getType().getComponentType();
-
-        if (attributeValue.hasSs()) {
-            final List<String> set = new ArrayList<>();
-
-            set.addAll(attributeValue.ss());
-            Object arr = Array.newInstance(fieldType, set.size());
-
-            for (int i = 0; i < set.size(); i++) {
-                Array.set(arr, i, set.get(i));
-            }
-        } else if (attributeValue.hasNs()) {
-            final List<String> set = new ArrayList<>();
-
-            set.addAll(createValueCollection(attributeValue.ns(), attributeValue, s -> (Set) s.collect(Collectors.toSet()), fieldType));
-
-            Object arr = Array.newInstance(fieldType, set.size());
-
-            for (int i = 0; i < set.size(); i++) {
-                Array.set(arr, i, set.get(i));
-            }
+        return attributeToArray(NestedAttributeCodec.decoder(field.getGenericType()), attributeValue);
+    }
 
-            return arr;
-        } else if (attributeValue.hasL()) {
-            return toArrayObject(arrayType, attributeValue);
+    private static Object attributeToArray(final Func1<AttributeValue, Object> arrayDecoder, final AttributeValue attributeValue) {
+        if (attributeValue.hasSs() || attributeValue.hasNs() || attributeValue.hasL()) {
+            return arrayDecoder.call(attributeValue);
         } else {
             throw new DbException("UNSUPPORTED_ARRAY_TYPE");
         }
+    }
 
-        return null;
+    /**
+     * Resolves the decoder of the list elements once, for every value of the field.
+     */
+    private static Func1<AttributeValue, Object> collectionDecoder(final Field field, final Func0<Collection> collectionFunc) {
+        final Func1<AttributeValue, Object> listDecoder = NestedAttributeCodec.listDecoder(getElementType(field));
+
+        return a -> attributeToCollection(field, a, collectionFunc, listDecoder);
     }
 
     public static Object attributeToCollection(final Field field, final AttributeValue attributeValue, final Func0<Collection> collectionFunc) {
+        return attributeToCollection(field, attributeValue, collectionFunc, NestedAttributeCodec.listDecoder(getElementType(field)));
+    }
+
+    private static Object attributeToCollection(final Field field,
+                                                final AttributeValue attributeValue,
+                                                final Func0<Collection> collectionFunc,
+                                                final Func1<AttributeValue, Object> listDecoder) {
+
         final Class<?> fieldType = field.getType();
         final Collection attToCollection;
 
@@ -158,7 +142,7 @@ public final class DbUtils {
         } else if (attributeValue.hasL()) {
             final Collection<?> coll = !fieldType.isInterface() ? (Collection<String>) Utils.constructObject(fieldType) : collectionFunc.call();
 
-            coll.addAll((Collection) toListObject(attributeValue, getParameterizedType(field)));
+            coll.addAll(toListObject(attributeValue, listDecoder));
             attToCollection = coll;
         } else {
             throw new DbException("UNSUPPORTED_TYPE_COLLECTION");
@@ -167,6 +151,10 @@ public final class DbUtils {
         return attToCollection;
     }
 
+    private static Type getElementType(final Field field) {
+        return field.getGenericType() instanceof ParameterizedType ? ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0] : Object.class;
+    }
+
     private static Class<?> getParameterizedType(final Field field) {
         final ParameterizedType parameterizedType = (ParameterizedType) field.getGenericType();
         return (Class<?>) parameterizedType.getActualTypeArguments()[0];
@@ -245,49 +233,11 @@ public final class DbUtils {
         }
     }
 
-    private static Map<String, ?> toMappedObject(final AttributeValue attributeValue) {
-        return toMappedObject(Map.class, attributeValue);
-    }
-
-    private static <T> T toMappedObject(Class<T> mappedClass, final AttributeValue attributeValue) {
-        try {
-            if (attributeValue.hasM()) {
-                return Utils.constructFromJson(mappedClass, OBJECT_MAPPER.writeValueAsString(attributeValue));
-            } else {
-                throw new DbException("UNKNOWN_TYPE_TO_MAPPED");
-            }
-        } catch (Exception e) {
-            throw new DbException(e.getMessage(), e);
-        }
-    }
-
-    private static List<?> toListObject(final AttributeValue attributeValue, final Class paramType) {
-        try {
-            if (attributeValue.hasL()) {
-                return Utils.constructListFromJson(paramType, OBJECT_MAPPER.writeValueAsString(attributeValue));
-            } else {
-                throw new DbException("UNKNOWN_LIST_TYPE");
-            }
-        } catch (JsonProcessingException e) {
-            throw new DbException(e.getMessage(), e);
-        }
-    }
-
-    private static Object toArrayObject(final Class<?> arrayType, final AttributeValue attributeValue) {
-        try {
-            if (attributeValue.hasL()) {
-                Object ret = Utils.constructFromJson(arrayType, OBJECT_MAPPER.writeValueAsString(attributeValue));
-
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("return object: " + ret);
-                }
-
-                return ret;
-            } else {
-                throw new DbException("UNKNOWN_ARRAY_TYPE");
-            }
-        } catch (JsonProcessingException e) {
-            throw new DbException(e.getMessage(), e);
+    private static List<?> toListObject(final AttributeValue attributeValue, final Func1<AttributeValue, Object> listDecoder) {
+        if (attributeValue.hasL()) {
+            return (List<?>) listDecoder.call(attributeValue);
+        } else {
+            throw new DbException("UNKNOWN_LIST_TYPE");
         }
     }
 
@@ -333,6 +283,76 @@ public final class DbUtils {
         }
     }
 
+    /**
+     * Resolves the conversion of a field value to an attribute value once, so that the returned function can be reused for
+     * every item written. Values passed to the function should not be null.
+     *
+     * @param field Mapped field
+     * @return Function converting a value of the field to an attribute value
+     */
+    public static Func1<Object, AttributeValue> modelToAttributeValueConverter(final Field field) {
+        final Class<?> fieldType = field.getType();
+        final Func1<Object, AttributeValue> converter;
+
+        if (fieldType.isEnum()) {
+            converter = value -> AttributeValue.builder().s(((Enum<?>) value).name()).build();
+        } else if (fieldType == String.class) {
+            converter = value -> AttributeValue.builder().s(String.valueOf(value)).build();
+        } else if (fieldType == Long.class || fieldType == long.class
+                || fieldType == Integer.class || fieldType == int.class
+                || fieldType == Double.class || fieldType == double.class
+                || fieldType == Number.class) {
+            converter = value -> AttributeValue.builder().n(String.valueOf(value)).build();
+        } else if (fieldType == boolean.class || fieldType == Boolean.class) {
+            converter = value -> AttributeValue.builder().bool((Boolean) value).build();
+        } else if (fieldType == Date.class) {
+            converter = value -> AttributeValue.builder().s(formatDynamoDbDate((Date) value)).build();
+        } else if (Collection.class.isAssignableFrom(fieldType)) {
+            final Type elementType = getElementType(field);
+            final Func1<Collection, AttributeValue> listConverter = listToAttributeValueConverter(elementType instanceof Class ? (Class<?>) elementType : Object.class);
+
+            converter = value -> listConverter.call((Collection) value);
+        } else if (Map.class.isAssignableFrom(fieldType)) {
+            converter = value -> AttributeValue.builder().m(NestedAttributeCodec.encodeMap((Map<?, ?>) value)).build();
+        } else if (fieldType.isArray()) {
+            final Class<?> componentType = fieldType.getComponentType();
+            final Func1<Collection, AttributeValue> listConverter = listToAttributeValueConverter(componentType);
+
+            converter = value -> listConverter.call(Utils.convertArrayToList(componentType, value));
+        } else {
+            converter = NestedAttributeCodec.encoder(fieldType);
+        }
+
+        return converter;
+    }
+
+    /**
+     * Same representation as {@link #getAttributeValueFromList(Collection, Func1)}, with the element encoder resolved once.
+     */
+    private static Func1<Collection, AttributeValue> listToAttributeValueConverter(final Class<?> elementType) {
+        final Func1<Collection, AttributeValue> converter;
+
+        if (elementType == String.class) {
+            converter = values -> AttributeValue.builder().ss(((Collection<String>) values).toArray(new String[]{})).build();
+        } else if (Number.class.isAssignableFrom(elementType)) {
+            converter = values -> AttributeValue.builder().ns(((Collection<Number>) values).stream().map(DbUtils::convertNumberToString).collect(Collectors.toList()).toArray(new String[]{})).build();
+        } else {
+            final Func1<Object, AttributeValue> encoder = NestedAttributeCodec.encoder(elementType);
+
+            converter = values -> {
+                final List<AttributeValue> attList = new ArrayList<>(values.size());
+
+                for (final Object value : values) {
+                    attList.add(encoder.call(value));
+                }
+
+                return AttributeValue.builder().l(attList).build();
+            };
+        }
+
+        return converter;
+    }
+
     public static Func1<AttributeValue.Builder, AttributeValue.Builder> modelToAttributeValue(final Field field, final Object value) {
         final Class<?> fieldType = field.getType();
         final Func1<Collection, Class<?>> paramTypeFuncForList = a -> (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
@@ -371,13 +391,13 @@ public final class DbUtils {
             } else if (Collection.class.isAssignableFrom(fieldType)) {
                 action = getAttributeValueFromList((Collection) value, paramTypeFuncForList);
             } else if (Map.class.isAssignableFrom(fieldType)) {
-                action = a -> a.m(getAttributeValueFromMap((Map<String, Object>) value));
+                action = a -> a.m(NestedAttributeCodec.encodeMap((Map<?, ?>) value));
             } else if (fieldType.isArray()) {
                 final List listVals = Utils.convertArrayToList(fieldType.getComponentType(), value);
 
                 action = getAttributeValueFromList(listVals, l -> fieldType.getComponentType());
             } else {
-                action = a -> a.m(getAttributeValueFromMap(Utils.constructFromJson(Map.class, Utils.constructJson(value))));
+                action = a -> NestedAttributeCodec.encode(value).toBuilder();
             }
 
             return action;
@@ -395,21 +415,19 @@ public final class DbUtils {
         } else if (Number.class.isAssignableFrom(paramType)) {
             action = a -> a.ns(((Collection<Number>) values).stream().map(DbUtils::convertNumberToString).collect(Collectors.toList()).toArray(new String[]{}));
         } else {
-            final Stream<AttributeValue> attList = (values).stream()
-                    .map(b -> AttributeValue.builder().m(getAttributeValueFromMap(Utils.constructFromJson(Map.class, Utils.constructJson(b)))).build());
+            final List<AttributeValue> attList = new ArrayList<>(values.size());
+
+            for (final Object value : values) {
+                attList.add(NestedAttributeCodec.encode(value));
+            }
 
-            action = a -> a.l(attList.collect(Collectors.toList()));
+            action = a -> a.l(attList);
         }
         return action;
     }
 
     public static Map<String, AttributeValue> getAttributeValueFromMap(final Map<String, Object> valuesMap) {
-        final Map<String, AttributeValue> attributeValueMap = valuesMap.
-                entrySet()
-                .stream()
-                .filter(entry -> entry.getValue() != null)
-                .map(entry -> getStringAttributeValueFromMapEntry(entry))
-                .collect(Collectors.toMap(Tuple::_1, Tuple::_2));
+        final Map<String, AttributeValue> attributeValueMap = NestedAttributeCodec.encodeMap(valuesMap);
 
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("attributeValueMap: " + attributeValueMap);
@@ -418,19 +436,6 @@ public final class DbUtils {
         return attributeValueMap;
     }
 
-    private static Tuple<String, AttributeValue> getStringAttributeValueFromMapEntry(final Map.Entry<String, Object> entry) {
-        final AttributeValue.Builder builder = AttributeValue.builder();
-        final Object value = entry.getValue();
-
-        return Tuples.of(entry.getKey(), modelToAttributeValue(value, value.getClass(), list -> {
-            if (CollectionUtils.isEmpty(list)) {
-                return String.class;
-            } else {
-                return list.iterator().next().getClass();
-            }
-        }).call(builder).build());
-    }
-
 
     public static List<Tuple<String, AttributeValueUpdate>> getUpdatedTime(final Map<String, Object> updatedValues,
                                                                            final Func0<Tuple<String, Field>> dateUpdateFieldTupleFunc) {
@@ -448,6 +453,77 @@ public final class DbUtils {
         }
     }
 
+    /**
+     * Estimates the size of an item the way DynamoDB accounts for it (attribute names plus values). The estimate errs on
+     * the high side for numbers.
+     *
+     * @param item Attribute values of the item
+     * @return Estimated size in bytes
+     */
+    public static long estimateItemSize(final Map<String, AttributeValue> item) {
+        long size = 0;
+
+        for (final Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            size += utf8Length(entry.getKey()) + estimateAttributeValueSize(entry.getValue());
+        }
+
+        return size;
+    }
+
+    private static long estimateAttributeValueSize(final AttributeValue attributeValue) {
+        long size = 0;
+
+        if (attributeValue.s() != null) {
+            size = utf8Length(attributeValue.s());
+        } else if (attributeValue.n() != null) {
+            size = attributeValue.n().length() + 1;
+        } else if (attributeValue.b() != null) {
+            size = attributeValue.b().asByteBuffer().remaining();
+        } else if (attributeValue.hasM()) {
+            size = 3 + estimateItemSize(attributeValue.m()) + attributeValue.m().size();
+        } else if (attributeValue.hasL()) {
+            size = 3;
+
+            for (final AttributeValue value : attributeValue.l()) {
+                size += 1 + estimateAttributeValueSize(value);
+            }
+        } else if (attributeValue.hasSs()) {
+            for (final String value : attributeValue.ss()) {
+                size += utf8Length(value);
+            }
+        } else if (attributeValue.hasNs()) {
+            for (final String value : attributeValue.ns()) {
+                size += value.length() + 1;
+            }
+        } else if (attributeValue.hasBs()) {
+            for (final SdkBytes value : attributeValue.bs()) {
+                size += value.asByteBuffer().remaining();
+            }
+        } else {
+            size = 1;
+        }
+
+        return size;
+    }
+
+    private static long utf8Length(final String value) {
+        long length = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
     public static String formatDynamoDbDate(final Date date) {
         return date.toInstant().atZone(SERVER_TIME_ZONE.toZoneId()).format(DATE_TIME_FORMATTER);
     }
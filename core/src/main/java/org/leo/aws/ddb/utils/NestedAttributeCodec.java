@@ -0,0 +1,726 @@
+package org.leo.aws.ddb.utils;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedConstructor;
+import com.fasterxml.jackson.databind.introspect.AnnotatedField;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import org.leo.aws.ddb.exceptions.DbException;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.MessageFormat;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps nested objects, maps, collections and arrays straight to and from {@link AttributeValue} trees. Property names and
+ * types are taken from the Jackson bean introspection of each class (so the stored format matches the one produced by the
+ * JSON based mapping) and compiled once per type. Types Jackson handles with dedicated (de)serializers, like the
+ * {@code java.*} value types, are still converted through the object mapper.
+ */
+@SuppressWarnings({"unchecked", "rawtypes", "unused"})
+public final class NestedAttributeCodec {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ConcurrentHashMap<JavaType, Func1<AttributeValue, Object>> DECODERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, Func1<Object, AttributeValue>> ENCODERS = new ConcurrentHashMap<>();
+
+    private NestedAttributeCodec() {
+    }
+
+    /**
+     * @param attributeValue Attribute value
+     * @param type           Target type
+     * @return Value of the target type, null if the attribute value is null or NULL
+     */
+    public static <T> T decode(final AttributeValue attributeValue, final Class<T> type) {
+        return (T) decode(attributeValue, (Type) type);
+    }
+
+    /**
+     * @param attributeValue Attribute value
+     * @param type           Target type, generic types are resolved (e.g. {@code List<LineItem>})
+     * @return Value of the target type, null if the attribute value is null or NULL
+     */
+    public static Object decode(final AttributeValue attributeValue, final Type type) {
+        return decodeValue(decoderFor(OBJECT_MAPPER.constructType(type)), attributeValue);
+    }
+
+    /**
+     * @param attributeValue Attribute value of type L, SS, NS or BS
+     * @param elementType    Type of the list elements
+     * @return List of decoded elements
+     */
+    public static List<Object> decodeList(final AttributeValue attributeValue, final Type elementType) {
+        return (List<Object>) decodeValue(decoderFor(OBJECT_MAPPER.getTypeFactory()
+                .constructCollectionType(List.class, OBJECT_MAPPER.constructType(elementType))), attributeValue);
+    }
+
+    /**
+     * Resolves the decoder of a type once, so that it can be reused for every value of that type.
+     *
+     * @param type Target type
+     * @return Function converting an attribute value to the target type
+     */
+    public static Func1<AttributeValue, Object> decoder(final Type type) {
+        final Func1<AttributeValue, Object> decoder = decoderFor(OBJECT_MAPPER.constructType(type));
+
+        return attributeValue -> decodeValue(decoder, attributeValue);
+    }
+
+    /**
+     * Resolves the decoder of a list once, like {@link #decoder(Type)}.
+     *
+     * @param elementType Type of the list elements
+     * @return Function converting an attribute value of type L, SS, NS or BS to a list of decoded elements
+     */
+    public static Func1<AttributeValue, Object> listDecoder(final Type elementType) {
+        final Func1<AttributeValue, Object> decoder = decoderFor(OBJECT_MAPPER.getTypeFactory()
+                .constructCollectionType(List.class, OBJECT_MAPPER.constructType(elementType)));
+
+        return attributeValue -> decodeValue(decoder, attributeValue);
+    }
+
+    /**
+     * @param value Value
+     * @return Attribute value representing the value, NULL if the value is null
+     */
+    public static AttributeValue encode(final Object value) {
+        if (value == null) {
+            return AttributeValue.builder().nul(true).build();
+        } else if (value instanceof String) {
+            return AttributeValue.builder().s((String) value).build();
+        } else if (value instanceof Enum) {
+            return AttributeValue.builder().s(((Enum<?>) value).name()).build();
+        } else if (value instanceof Boolean) {
+            return AttributeValue.builder().bool((Boolean) value).build();
+        } else if (value instanceof Number) {
+            return AttributeValue.builder().n(numberToString((Number) value)).build();
+        } else if (value instanceof Date) {
+            return AttributeValue.builder().n(String.valueOf(((Date) value).getTime())).build();
+        } else if (value instanceof Character) {
+            return AttributeValue.builder().s(value.toString()).build();
+        } else if (value instanceof byte[]) {
+            return AttributeValue.builder().b(SdkBytes.fromByteArray((byte[]) value)).build();
+        } else if (value instanceof AttributeValue) {
+            return (AttributeValue) value;
+        } else if (value instanceof Map) {
+            return AttributeValue.builder().m(encodeMap((Map<?, ?>) value)).build();
+        } else if (value instanceof Collection) {
+            return encodeCollection((Collection<?>) value);
+        } else if (value.getClass().isArray()) {
+            final int length = Array.getLength(value);
+            final List<Object> values = new ArrayList<>(length);
+
+            for (int i = 0; i < length; i++) {
+                values.add(Array.get(value, i));
+            }
+
+            return encodeCollection(values);
+        } else {
+            return encoderFor(value.getClass()).call(value);
+        }
+    }
+
+    /**
+     * Resolves the encoder of a type once, like {@link #decoder(Type)}. Values of another runtime class, like subclasses of
+     * the type, are still encoded through {@link #encode(Object)}.
+     *
+     * @param type Declared type of the values
+     * @return Function converting a value to an attribute value, NULL if the value is null
+     */
+    public static Func1<Object, AttributeValue> encoder(final Class<?> type) {
+        if (!isBean(type) || type.isEnum() || type.isArray() || Map.class.isAssignableFrom(type)
+                || Collection.class.isAssignableFrom(type) || AttributeValue.class.isAssignableFrom(type)) {
+            return NestedAttributeCodec::encode;
+        }
+
+        final Func1<Object, AttributeValue> encoder = encoderFor(type);
+
+        return value -> value != null && value.getClass() == type ? encoder.call(value) : encode(value);
+    }
+
+    /**
+     * @param values Map of values
+     * @return Attribute value map of all the non null values
+     */
+    public static Map<String, AttributeValue> encodeMap(final Map<?, ?> values) {
+        final Map<String, AttributeValue> attributeValues = new HashMap<>((int) (values.size() / 0.75f) + 1);
+
+        for (final Map.Entry<?, ?> entry : values.entrySet()) {
+            if (entry.getValue() != null) {
+                final Object key = entry.getKey();
+
+                attributeValues.put(key instanceof Enum ? ((Enum<?>) key).name() : String.valueOf(key), encode(entry.getValue()));
+            }
+        }
+
+        return attributeValues;
+    }
+
+    private static AttributeValue encodeCollection(final Collection<?> values) {
+        boolean strings = !values.isEmpty();
+        boolean numbers = !values.isEmpty();
+
+        for (final Object value : values) {
+            strings &= value instanceof String;
+            numbers &= value instanceof Number;
+        }
+
+        if (strings) {
+            return AttributeValue.builder().ss((Collection<String>) values).build();
+        } else if (numbers) {
+            final List<String> numberValues = new ArrayList<>(values.size());
+
+            for (final Object value : values) {
+                numberValues.add(numberToString((Number) value));
+            }
+
+            return AttributeValue.builder().ns(numberValues).build();
+        } else {
+            final List<AttributeValue> attributeValues = new ArrayList<>(values.size());
+
+            for (final Object value : values) {
+                attributeValues.add(encode(value));
+            }
+
+            return AttributeValue.builder().l(attributeValues).build();
+        }
+    }
+
+    private static String numberToString(final Number value) {
+        return value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+    }
+
+    private static Object decodeValue(final Func1<AttributeValue, Object> decoder, final AttributeValue attributeValue) {
+        if (attributeValue == null || Boolean.TRUE.equals(attributeValue.nul())) {
+            return null;
+        }
+
+        return decoder.call(attributeValue);
+    }
+
+    private static Func1<AttributeValue, Object> decoderFor(final JavaType type) {
+        Func1<AttributeValue, Object> decoder = DECODERS.get(type);
+
+        if (decoder == null) {
+            final Func1<AttributeValue, Object> compiled = compileDecoder(type);
+
+            decoder = DECODERS.putIfAbsent(type, compiled);
+
+            if (decoder == null) {
+                decoder = compiled;
+            }
+        }
+
+        return decoder;
+    }
+
+    private static Func1<Object, AttributeValue> encoderFor(final Class<?> type) {
+        Func1<Object, AttributeValue> encoder = ENCODERS.get(type);
+
+        if (encoder == null) {
+            final Func1<Object, AttributeValue> compiled = compileEncoder(type);
+
+            encoder = ENCODERS.putIfAbsent(type, compiled);
+
+            if (encoder == null) {
+                encoder = compiled;
+            }
+        }
+
+        return encoder;
+    }
+
+    private static Func1<AttributeValue, Object> compileDecoder(final JavaType type) {
+        final Class<?> rawType = type.getRawClass();
+
+        if (rawType == Object.class) {
+            return NestedAttributeCodec::toUntyped;
+        } else if (rawType == String.class) {
+            return a -> a.s() != null ? a.s() : a.n() != null ? a.n() : a.bool() != null ? a.bool().toString() : OBJECT_MAPPER.convertValue(toUntyped(a), String.class);
+        } else if (rawType == Boolean.class || rawType == boolean.class) {
+            return a -> a.bool() != null ? a.bool() : Boolean.valueOf(scalarText(a));
+        } else if (rawType == Integer.class || rawType == int.class) {
+            return a -> parseInt(scalarText(a));
+        } else if (rawType == Long.class || rawType == long.class) {
+            return a -> parseLong(scalarText(a));
+        } else if (rawType == Double.class || rawType == double.class) {
+            return a -> Double.valueOf(scalarText(a));
+        } else if (rawType == Float.class || rawType == float.class) {
+            return a -> Float.valueOf(scalarText(a));
+        } else if (rawType == Short.class || rawType == short.class) {
+            return a -> (short) parseInt(scalarText(a));
+        } else if (rawType == Byte.class || rawType == byte.class) {
+            return a -> (byte) parseInt(scalarText(a));
+        } else if (rawType == BigDecimal.class) {
+            return a -> new BigDecimal(scalarText(a));
+        } else if (rawType == BigInteger.class) {
+            return a -> new BigDecimal(scalarText(a)).toBigInteger();
+        } else if (rawType == Number.class) {
+            return a -> parseUntypedNumber(scalarText(a));
+        } else if (rawType.isEnum()) {
+            final Object[] constants = rawType.getEnumConstants();
+
+            return a -> a.s() != null ? Enum.valueOf((Class<Enum>) rawType, a.s()) : constants[Integer.parseInt(a.n())];
+        } else if (rawType == Date.class) {
+            return a -> a.n() != null ? new Date(parseLong(a.n())) : parseDate(a.s());
+        } else if (rawType == byte[].class) {
+            return a -> a.b() != null ? a.b().asByteArray() : Base64.getDecoder().decode(a.s());
+        } else if (type.isArrayType()) {
+            return compileArrayDecoder(type);
+        } else if (type.isCollectionLikeType()) {
+            return compileCollectionDecoder(type);
+        } else if (type.isMapLikeType()) {
+            return compileMapDecoder(type);
+        } else if (isBean(rawType)) {
+            return compileBeanDecoder(type);
+        } else {
+            return fallbackDecoder(type);
+        }
+    }
+
+    private static Func1<AttributeValue, Object> compileArrayDecoder(final JavaType type) {
+        final JavaType componentType = type.getContentType();
+        final Class<?> componentClass = componentType.getRawClass();
+        final Func1<AttributeValue, Object> listDecoder = compileCollectionDecoder(componentType, ArrayList::new);
+
+        return a -> {
+            final List<Object> values = (List<Object>) listDecoder.call(a);
+            final Object array = Array.newInstance(componentClass, values.size());
+
+            for (int i = 0; i < values.size(); i++) {
+                final Object value = values.get(i);
+
+                if (value != null || !componentClass.isPrimitive()) {
+                    Array.set(array, i, value);
+                }
+            }
+
+            return array;
+        };
+    }
+
+    private static Func1<AttributeValue, Object> compileCollectionDecoder(final JavaType type) {
+        final Func0<Collection<Object>> collectionFunc = collectionFactory(type.getRawClass());
+
+        return collectionFunc != null ? compileCollectionDecoder(type.getContentType(), collectionFunc) : fallbackDecoder(type);
+    }
+
+    private static Func1<AttributeValue, Object> compileCollectionDecoder(final JavaType elementType, final Func0<Collection<Object>> collectionFunc) {
+        final Func1<AttributeValue, Object> elementDecoder = decoderFor(elementType);
+
+        return a -> {
+            final Collection<Object> values = collectionFunc.call();
+
+            if (a.hasL()) {
+                for (final AttributeValue value : a.l()) {
+                    values.add(decodeValue(elementDecoder, value));
+                }
+            } else if (a.hasSs()) {
+                for (final String value : a.ss()) {
+                    values.add(elementDecoder.call(AttributeValue.builder().s(value).build()));
+                }
+            } else if (a.hasNs()) {
+                for (final String value : a.ns()) {
+                    values.add(elementDecoder.call(AttributeValue.builder().n(value).build()));
+                }
+            } else if (a.hasBs()) {
+                for (final SdkBytes value : a.bs()) {
+                    values.add(elementDecoder.call(AttributeValue.builder().b(value).build()));
+                }
+            } else {
+                throw new DbException("UNSUPPORTED_TYPE_COLLECTION");
+            }
+
+            return values;
+        };
+    }
+
+    private static Func0<Collection<Object>> collectionFactory(final Class<?> collectionType) {
+        if (collectionType.isInterface()) {
+            if (SortedSet.class.isAssignableFrom(collectionType)) {
+                return TreeSet::new;
+            } else if (Set.class.isAssignableFrom(collectionType)) {
+                return HashSet::new;
+            } else if (Queue.class.isAssignableFrom(collectionType)) {
+                return ArrayDeque::new;
+            } else {
+                return ArrayList::new;
+            }
+        } else {
+            final MethodHandle constructor = defaultConstructor(collectionType);
+
+            return constructor == null ? null : () -> (Collection<Object>) newInstance(constructor, collectionType);
+        }
+    }
+
+    private static Func1<AttributeValue, Object> compileMapDecoder(final JavaType type) {
+        final Class<?> mapType = type.getRawClass();
+        final Class<?> keyType = type.getKeyType().getRawClass();
+        final Func1<AttributeValue, Object> valueDecoder = decoderFor(type.getContentType());
+        final Func1<String, Object> keyDecoder;
+        final Func0<Map<Object, Object>> mapFunc;
+
+        if (keyType == String.class || keyType == Object.class) {
+            keyDecoder = key -> key;
+        } else {
+            final Func1<AttributeValue, Object> decoder = decoderFor(type.getKeyType());
+
+            keyDecoder = key -> decoder.call(AttributeValue.builder().s(key).build());
+        }
+
+        if (mapType.isInterface()) {
+            if (SortedMap.class.isAssignableFrom(mapType)) {
+                mapFunc = TreeMap::new;
+            } else if (ConcurrentMap.class.isAssignableFrom(mapType)) {
+                mapFunc = ConcurrentHashMap::new;
+            } else {
+                mapFunc = LinkedHashMap::new;
+            }
+        } else {
+            final MethodHandle constructor = defaultConstructor(mapType);
+
+            if (constructor == null) {
+                return fallbackDecoder(type);
+            }
+
+            mapFunc = () -> (Map<Object, Object>) newInstance(constructor, mapType);
+        }
+
+        return a -> {
+            if (!a.hasM()) {
+                throw new DbException("UNKNOWN_TYPE_TO_MAPPED");
+            }
+
+            final Map<Object, Object> values = mapFunc.call();
+
+            for (final Map.Entry<String, AttributeValue> entry : a.m().entrySet()) {
+                values.put(keyDecoder.call(entry.getKey()), decodeValue(valueDecoder, entry.getValue()));
+            }
+
+            return values;
+        };
+    }
+
+    private static Func1<AttributeValue, Object> compileBeanDecoder(final JavaType type) {
+        final BeanDescription description = OBJECT_MAPPER.getDeserializationConfig().introspect(type);
+        final AnnotatedConstructor defaultConstructor = description.findDefaultConstructor();
+        final Map<String, PropertyDecoder> propertyDecoders = new HashMap<>();
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        final MethodHandle constructor;
+
+        if (defaultConstructor == null) {
+            return fallbackDecoder(type);
+        }
+
+        try {
+            constructor = lookup.unreflectConstructor(accessible(defaultConstructor.getAnnotated())).asType(CONSTRUCTOR_TYPE);
+
+            for (final BeanPropertyDefinition property : description.findProperties()) {
+                final AnnotatedMember mutator = property.getMutator();
+                final MethodHandle setter;
+
+                if (mutator instanceof AnnotatedMethod) {
+                    setter = lookup.unreflect(accessible(((AnnotatedMethod) mutator).getAnnotated()));
+                } else if (mutator instanceof AnnotatedField) {
+                    setter = lookup.unreflectSetter(accessible(((AnnotatedField) mutator).getAnnotated()));
+                } else {
+                    continue;
+                }
+
+                propertyDecoders.put(property.getName(), new PropertyDecoder(property.getName(), property.getPrimaryType(),
+                        setter.asType(SETTER_TYPE), property.getPrimaryType().isPrimitive()));
+            }
+        } catch (final IllegalAccessException | RuntimeException e) {
+            return fallbackDecoder(type);
+        }
+
+        return a -> {
+            if (!a.hasM()) {
+                throw new DbException("UNKNOWN_TYPE_TO_MAPPED");
+            }
+
+            final Object bean = newInstance(constructor, type.getRawClass());
+
+            for (final Map.Entry<String, AttributeValue> entry : a.m().entrySet()) {
+                final PropertyDecoder propertyDecoder = propertyDecoders.get(entry.getKey());
+
+                if (propertyDecoder != null) {
+                    propertyDecoder.decode(bean, entry.getValue());
+                }
+            }
+
+            return bean;
+        };
+    }
+
+    private static Func1<Object, AttributeValue> compileEncoder(final Class<?> type) {
+        if (!isBean(type)) {
+            return NestedAttributeCodec::fallbackEncode;
+        }
+
+        final BeanDescription description = OBJECT_MAPPER.getSerializationConfig().introspect(OBJECT_MAPPER.constructType(type));
+        final List<PropertyEncoder> propertyEncoders = new ArrayList<>();
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        if (description.findJsonValueAccessor() != null) {
+            return NestedAttributeCodec::fallbackEncode;
+        }
+
+        try {
+            for (final BeanPropertyDefinition property : description.findProperties()) {
+                final AnnotatedMember accessor = property.getAccessor();
+                final MethodHandle getter;
+
+                if (accessor instanceof AnnotatedMethod) {
+                    getter = lookup.unreflect(accessible(((AnnotatedMethod) accessor).getAnnotated()));
+                } else if (accessor instanceof AnnotatedField) {
+                    getter = lookup.unreflectGetter(accessible(((AnnotatedField) accessor).getAnnotated()));
+                } else {
+                    continue;
+                }
+
+                propertyEncoders.add(new PropertyEncoder(property.getName(), getter.asType(GETTER_TYPE)));
+            }
+        } catch (final IllegalAccessException | RuntimeException e) {
+            return NestedAttributeCodec::fallbackEncode;
+        }
+
+        final PropertyEncoder[] encoders = propertyEncoders.toArray(new PropertyEncoder[0]);
+        final int capacity = (int) (encoders.length / 0.75f) + 1;
+
+        return bean -> {
+            final Map<String, AttributeValue> attributeValues = new HashMap<>(capacity);
+
+            for (final PropertyEncoder encoder : encoders) {
+                final Object value = encoder.get(bean);
+
+                if (value != null) {
+                    attributeValues.put(encoder.name, encode(value));
+                }
+            }
+
+            return AttributeValue.builder().m(attributeValues).build();
+        };
+    }
+
+    private static boolean isBean(final Class<?> type) {
+        final String name = type.getName();
+
+        return !type.isPrimitive() && !type.isInterface() && !Modifier.isAbstract(type.getModifiers())
+                && !name.startsWith("java.") && !name.startsWith("javax.");
+    }
+
+    private static Func1<AttributeValue, Object> fallbackDecoder(final JavaType type) {
+        return a -> OBJECT_MAPPER.convertValue(toUntyped(a), type);
+    }
+
+    private static AttributeValue fallbackEncode(final Object value) {
+        final Object converted = OBJECT_MAPPER.convertValue(value, Object.class);
+
+        if (converted != null && converted.getClass() == value.getClass()) {
+            throw new DbException(MessageFormat.format("Unable to map value of type [{0}]", value.getClass().getName()));
+        }
+
+        return encode(converted);
+    }
+
+    /**
+     * Same representation Jackson produces when reading untyped JSON.
+     */
+    private static Object toUntyped(final AttributeValue attributeValue) {
+        if (attributeValue == null) {
+            return null;
+        } else if (attributeValue.hasM()) {
+            final Map<String, Object> values = new LinkedHashMap<>();
+
+            for (final Map.Entry<String, AttributeValue> entry : attributeValue.m().entrySet()) {
+                values.put(entry.getKey(), toUntyped(entry.getValue()));
+            }
+
+            return values;
+        } else if (attributeValue.hasL()) {
+            final List<Object> values = new ArrayList<>(attributeValue.l().size());
+
+            for (final AttributeValue value : attributeValue.l()) {
+                values.add(toUntyped(value));
+            }
+
+            return values;
+        } else if (attributeValue.s() != null) {
+            return attributeValue.s();
+        } else if (attributeValue.n() != null) {
+            return parseUntypedNumber(attributeValue.n());
+        } else if (attributeValue.bool() != null) {
+            return attributeValue.bool();
+        } else if (attributeValue.b() != null) {
+            return Base64.getEncoder().encodeToString(attributeValue.b().asByteArray());
+        } else if (attributeValue.hasSs()) {
+            return new ArrayList<>(attributeValue.ss());
+        } else if (attributeValue.hasNs()) {
+            final List<Object> values = new ArrayList<>(attributeValue.ns().size());
+
+            for (final String value : attributeValue.ns()) {
+                values.add(parseUntypedNumber(value));
+            }
+
+            return values;
+        } else if (attributeValue.hasBs()) {
+            final List<Object> values = new ArrayList<>(attributeValue.bs().size());
+
+            for (final SdkBytes value : attributeValue.bs()) {
+                values.add(Base64.getEncoder().encodeToString(value.asByteArray()));
+            }
+
+            return values;
+        } else {
+            return null;
+        }
+    }
+
+    private static String scalarText(final AttributeValue attributeValue) {
+        return attributeValue.n() != null ? attributeValue.n() : attributeValue.s();
+    }
+
+    private static Number parseUntypedNumber(final String value) {
+        if (value.indexOf('.') >= 0 || value.indexOf('e') >= 0 || value.indexOf('E') >= 0) {
+            return Double.valueOf(value);
+        }
+
+        final BigInteger bigInteger = new BigInteger(value);
+
+        if (bigInteger.bitLength() < Integer.SIZE) {
+            return bigInteger.intValue();
+        } else if (bigInteger.bitLength() < Long.SIZE) {
+            return bigInteger.longValue();
+        } else {
+            return bigInteger;
+        }
+    }
+
+    private static int parseInt(final String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            return new BigDecimal(value).intValue();
+        }
+    }
+
+    private static long parseLong(final String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            return new BigDecimal(value).longValue();
+        }
+    }
+
+    private static Date parseDate(final String value) {
+        try {
+            return DbUtils.parseDynamoDbDate(value);
+        } catch (final DateTimeParseException e) {
+            return OBJECT_MAPPER.convertValue(value, Date.class);
+        }
+    }
+
+    private static MethodHandle defaultConstructor(final Class<?> type) {
+        try {
+            return MethodHandles.lookup().unreflectConstructor(accessible(type.getDeclaredConstructor())).asType(CONSTRUCTOR_TYPE);
+        } catch (final NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Object newInstance(final MethodHandle constructor, final Class<?> type) {
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new DbException(MessageFormat.format("Unable to instantiate [{0}]", type.getName()), e);
+        }
+    }
+
+    private static <T extends AccessibleObject> T accessible(final T member) {
+        member.setAccessible(true);
+
+        return member;
+    }
+
+    private static final class PropertyDecoder {
+        private final String name;
+        private final JavaType type;
+        private final MethodHandle setter;
+        private final boolean primitive;
+        private volatile Func1<AttributeValue, Object> decoder;
+
+        private PropertyDecoder(final String name, final JavaType type, final MethodHandle setter, final boolean primitive) {
+            this.name = name;
+            this.type = type;
+            this.setter = setter;
+            this.primitive = primitive;
+        }
+
+        private void decode(final Object bean, final AttributeValue attributeValue) {
+            Func1<AttributeValue, Object> valueDecoder = decoder;
+
+            // resolved on first use so that self referencing types do not recurse while compiling
+            if (valueDecoder == null) {
+                valueDecoder = decoderFor(type);
+                decoder = valueDecoder;
+            }
+
+            final Object value = decodeValue(valueDecoder, attributeValue);
+
+            if (value == null && primitive) {
+                return;
+            }
+
+            try {
+                setter.invokeExact(bean, value);
+            } catch (final RuntimeException | Error e) {
+                throw e;
+            } catch (final Throwable e) {
+                throw new DbException(MessageFormat.format("Unable to map property [{0}]", name), e);
+            }
+        }
+    }
+
+    private static final class PropertyEncoder {
+        private final String name;
+        private final MethodHandle getter;
+
+        private PropertyEncoder(final String name, final MethodHandle getter) {
+            this.name = name;
+            this.getter = getter;
+        }
+
+        private Object get(final Object bean) {
+            try {
+                return (Object) getter.invokeExact(bean);
+            } catch (final RuntimeException | Error e) {
+                throw e;
+            } catch (final Throwable e) {
+                throw new DbException(MessageFormat.format("Unable to read property [{0}]", name), e);
+            }
+        }
+    }
+}
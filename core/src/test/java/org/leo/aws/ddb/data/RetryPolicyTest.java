@@ -0,0 +1,57 @@
+package org.leo.aws.ddb.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    @Test
+    void delaysDoubleUpToTheMaximum() {
+        final RetryPolicy policy = RetryPolicy.builder()
+                .baseDelay(Duration.ofMillis(50))
+                .maxDelay(Duration.ofSeconds(1))
+                .jitter(false)
+                .build();
+
+        assertEquals(Duration.ofMillis(50), policy.getDelay(0));
+        assertEquals(Duration.ofMillis(50), policy.getDelay(1));
+        assertEquals(Duration.ofMillis(100), policy.getDelay(2));
+        assertEquals(Duration.ofMillis(800), policy.getDelay(5));
+        assertEquals(Duration.ofSeconds(1), policy.getDelay(6));
+        assertEquals(Duration.ofSeconds(1), policy.getDelay(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void jitteredDelaysStayWithinTheBackoff() {
+        final RetryPolicy policy = RetryPolicy.builder()
+                .baseDelay(Duration.ofMillis(50))
+                .maxDelay(Duration.ofSeconds(1))
+                .build();
+
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            final long bound = Math.min(1000, 50L << (attempt - 1));
+
+            for (int i = 0; i < 100; i++) {
+                final long delay = policy.getDelay(attempt).toMillis();
+
+                assertTrue(delay >= 0 && delay <= bound, "attempt " + attempt + ": " + delay);
+            }
+        }
+    }
+
+    @Test
+    void attemptsIncludeTheFirstOne() {
+        final RetryPolicy policy = RetryPolicy.builder().maxAttempts(3).build();
+
+        assertTrue(policy.canRetry(1));
+        assertTrue(policy.canRetry(2));
+        assertFalse(policy.canRetry(3));
+        assertThrows(IllegalArgumentException.class, () -> RetryPolicy.builder().maxAttempts(0));
+    }
+}
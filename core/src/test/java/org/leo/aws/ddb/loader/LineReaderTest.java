@@ -0,0 +1,72 @@
+package org.leo.aws.ddb.loader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LineReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void crlfAndLfTerminatorsAreStripped() throws Exception {
+        try (LineReader reader = new LineReader(write("a\r\nb\nc"), 0)) {
+            assertEquals("a", reader.readLine());
+            assertEquals(3, reader.getPosition());
+            assertEquals("b", reader.readLine());
+            assertEquals(5, reader.getPosition());
+            assertEquals("c", reader.readLine());
+            assertEquals(6, reader.getPosition());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    void linesSpanningTheBufferAreJoined() throws Exception {
+        final String longLine = "x".repeat(64 * 1024 - 1);
+
+        //the \r ends the first buffer, the \n starts the second one
+        try (LineReader reader = new LineReader(write(longLine + "\r\n" + "y".repeat(70 * 1024) + "\nz"), 0)) {
+            assertEquals(longLine, reader.readLine());
+            assertEquals(64 * 1024 + 1, reader.getPosition());
+            assertEquals("y".repeat(70 * 1024), reader.readLine());
+            assertEquals("z", reader.readLine());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    void readingStartsAtTheOffset() throws Exception {
+        try (LineReader reader = new LineReader(write("a\r\nb\n"), 3)) {
+            assertEquals("b", reader.readLine());
+            assertEquals(5, reader.getPosition());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    void byteOrderMarkIsSkipped() throws Exception {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        content.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+        content.write("id,name\n1,b\n".getBytes(StandardCharsets.UTF_8));
+
+        try (LineReader reader = new LineReader(Files.write(directory.resolve("bom.csv"), content.toByteArray()), 0)) {
+            assertEquals("id,name", reader.readLine());
+            assertEquals(11, reader.getPosition());
+            assertEquals("1,b", reader.readLine());
+        }
+    }
+
+    private Path write(final String content) throws Exception {
+        return Files.write(directory.resolve("lines.txt"), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
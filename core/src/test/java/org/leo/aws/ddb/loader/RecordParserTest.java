@@ -0,0 +1,61 @@
+package org.leo.aws.ddb.loader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.leo.aws.ddb.exceptions.DbException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecordParserTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void quotedFieldsSpanLines() throws Exception {
+        final Path file = Files.write(directory.resolve("records.csv"),
+                "id,name\r\n1,\"first\r\nsecond\"\r\n2,b\r\n".getBytes(StandardCharsets.UTF_8));
+
+        try (LineReader reader = new LineReader(file, 0)) {
+            assertEquals("id,name", RecordParser.readRecord(RecordFormat.CSV, reader));
+            assertEquals("1,\"first\nsecond\"", RecordParser.readRecord(RecordFormat.CSV, reader));
+            assertEquals(List.of("1", "first\nsecond"), RecordParser.parseCsvLine("1,\"first\nsecond\""));
+            assertEquals("2,b", RecordParser.readRecord(RecordFormat.CSV, reader));
+            assertNull(RecordParser.readRecord(RecordFormat.CSV, reader));
+        }
+    }
+
+    @Test
+    void ndjsonRecordsAreLines() throws Exception {
+        final Path file = Files.write(directory.resolve("records.ndjson"), "{\"name\":\"a\nb\"}\n".getBytes(StandardCharsets.UTF_8));
+
+        try (LineReader reader = new LineReader(file, 0)) {
+            assertEquals("{\"name\":\"a", RecordParser.readRecord(RecordFormat.NDJSON, reader));
+        }
+    }
+
+    @Test
+    void escapedQuotesAndEmptyFields() {
+        assertEquals(List.of("a", "b \"c\"", ""), RecordParser.parseCsvLine("a,\"b \"\"c\"\"\","));
+        assertThrows(DbException.class, () -> RecordParser.parseCsvLine("a,\"b"));
+    }
+
+    @Test
+    void columnsAreMappedByHeader() {
+        final RecordParser<Map> parser = new RecordParser<>(RecordFormat.CSV, Map.class, new ObjectMapper(), List.of("id", "name"));
+
+        assertEquals(Map.of("id", "1", "name", "bob"), parser.parse("1,bob", 0));
+        assertEquals(Map.of("id", "2"), parser.parse("2,", 0));
+        assertNull(parser.parse("  ", 0));
+        assertThrows(DbException.class, () -> parser.parse("1,bob,extra", 0));
+    }
+}
@@ -0,0 +1,124 @@
+package org.leo.aws.ddb.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.leo.aws.ddb.annotations.DbAttribute;
+import org.leo.aws.ddb.data.PrimaryKey;
+import org.leo.aws.ddb.data.UpdateExpr;
+import org.leo.aws.ddb.exceptions.DbException;
+import org.leo.aws.ddb.utils.Expr;
+import org.leo.aws.ddb.utils.Tuple;
+import org.leo.aws.ddb.utils.Tuples;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledUpdateTest {
+    private static final PrimaryKey PRIMARY_KEY = PrimaryKey.builder("id", "1").build();
+    private static final Map<String, AttributeValue> KEY = Map.of("id", AttributeValue.builder().s("1").build());
+
+    @Test
+    void actionsAreGroupedByClause() {
+        final UpdateItemRequest request = compile(UpdateExpr.builder()
+                .set("name", "bob")
+                .add("count", 1)
+                .remove("old")
+                .appendToList("tags", List.of("a"))
+                .build(), null);
+
+        assertEquals("SET #u0 = :u0, #u3 = list_append(if_not_exists(#u3, :uempty), :u3) ADD #u1 :u1 REMOVE #u2",
+                request.updateExpression());
+        assertEquals("attribute_exists(#ukey)", request.conditionExpression());
+        assertEquals(Map.of("#u0", "name", "#u1", "count", "#u2", "old", "#u3", "tags", "#ukey", "id"),
+                request.expressionAttributeNames());
+        assertEquals(AttributeValue.builder().s("bob").build(), request.expressionAttributeValues().get(":u0"));
+        assertEquals(AttributeValue.builder().n("1").build(), request.expressionAttributeValues().get(":u1"));
+    }
+
+    @Test
+    void versionIsIncrementedAndChecked() throws Exception {
+        final CompiledUpdate update = CompiledUpdate.of(PRIMARY_KEY, UpdateExpr.builder()
+                .set("name", "bob")
+                .expectedVersion(3)
+                .condition(condition("#s = :s", Map.of("#s", "status"), Map.of(":s", AttributeValue.builder().s("open").build())))
+                .build(), Collections.emptyMap(), versionAttribute(), KEY, "table");
+        final UpdateItemRequest request = update.toUpdateItemRequest("table").build();
+
+        assertTrue(update.isConditional());
+        assertEquals("SET #u0 = :u0, #uver = if_not_exists(#uver, :uzero) + :uone", request.updateExpression());
+        assertEquals("attribute_exists(#ukey) AND #uver = :uexpected AND (#s = :s)", request.conditionExpression());
+        assertEquals("version", request.expressionAttributeNames().get("#uver"));
+        assertEquals("status", request.expressionAttributeNames().get("#s"));
+        assertEquals(AttributeValue.builder().n("3").build(), request.expressionAttributeValues().get(":uexpected"));
+    }
+
+    @Test
+    void updateWithoutConditionIsNotConditional() {
+        assertFalse(CompiledUpdate.of(PRIMARY_KEY, UpdateExpr.builder().set("name", "bob").build(),
+                Collections.emptyMap(), null, KEY, "table").isConditional());
+    }
+
+    @Test
+    void conditionPlaceholdersCannotReplaceTheGeneratedOnes() {
+        assertThrows(DbException.class, () -> compile(UpdateExpr.builder()
+                .set("name", "bob")
+                .condition(condition("#u0 = :s", Map.of("#u0", "status"), Map.of(":s", AttributeValue.builder().s("open").build())))
+                .build(), null));
+        assertThrows(DbException.class, () -> compile(UpdateExpr.builder()
+                .set("name", "bob")
+                .condition(condition("#s = :u0", Map.of("#s", "status"), Map.of(":u0", AttributeValue.builder().s("open").build())))
+                .build(), null));
+    }
+
+    @Test
+    void keyAttributesCannotBeUpdated() {
+        assertThrows(DbException.class, () -> compile(UpdateExpr.builder().set("id", "2").build(), null));
+    }
+
+    private static UpdateItemRequest compile(final UpdateExpr updateExpr, final Tuple<Field, DbAttribute> versionAttribute) {
+        return CompiledUpdate.of(PRIMARY_KEY, updateExpr, Collections.emptyMap(), versionAttribute, KEY, "table")
+                .toUpdateItemRequest("table")
+                .build();
+    }
+
+    private static Tuple<Field, DbAttribute> versionAttribute() throws NoSuchFieldException {
+        final Field field = VersionedEntity.class.getDeclaredField("version");
+
+        return Tuples.of(field, field.getAnnotation(DbAttribute.class));
+    }
+
+    private static Expr condition(final String expression,
+                                  final Map<String, String> attributeNames,
+                                  final Map<String, AttributeValue> attributeValues) {
+
+        return new Expr() {
+            @Override
+            public String expression() {
+                return expression;
+            }
+
+            @Override
+            public Map<String, String> attributeNameMap() {
+                return attributeNames;
+            }
+
+            @Override
+            public Map<String, AttributeValue> attributeValueMap() {
+                return attributeValues;
+            }
+        };
+    }
+
+    private static final class VersionedEntity {
+        @DbAttribute("version")
+        private Long version;
+    }
+}
@@ -0,0 +1,54 @@
+package org.leo.aws.ddb.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.leo.aws.ddb.exceptions.DbException;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageTokensTest {
+
+    @Test
+    void keysRoundTrip() {
+        final Map<String, AttributeValue> lastEvaluatedKey = Map.of(
+                "id", AttributeValue.builder().s("user/1 \u00e9").build(),
+                "version", AttributeValue.builder().n("-12.5").build(),
+                "hash", AttributeValue.builder().b(SdkBytes.fromByteArray(new byte[]{0, -1, 127})).build());
+        final String token = PageTokens.encode(lastEvaluatedKey);
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        assertEquals(lastEvaluatedKey, PageTokens.decode(token));
+    }
+
+    @Test
+    void lastPageHasNoToken() {
+        assertNull(PageTokens.encode(null));
+        assertNull(PageTokens.encode(Collections.emptyMap()));
+    }
+
+    @Test
+    void nonKeyTypesAreRejected() {
+        assertThrows(DbException.class, () -> PageTokens.encode(Map.of("id", AttributeValue.builder().bool(true).build())));
+    }
+
+    @Test
+    void invalidTokensAreRejected() {
+        assertThrows(DbException.class, () -> PageTokens.decode("not a token"));
+        assertThrows(DbException.class, () -> PageTokens.decode(token("{\"id\":{\"BOOL\":\"true\"}}")));
+        assertThrows(DbException.class, () -> PageTokens.decode(token("{\"id\":{\"S\":\"a\",\"N\":\"1\"}}")));
+        assertThrows(DbException.class, () -> PageTokens.decode(token("{\"id\":{\"B\":\"%%\"}}")));
+    }
+
+    private static String token(final String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+package org.leo.aws.ddb.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.leo.aws.ddb.exceptions.BatchWriteException;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PutBatcherTest {
+
+    @Test
+    void onlyTheCallersOfUnprocessedItemsFail() {
+        final PutBatcher putBatcher = new PutBatcher(Duration.ofHours(1), 3, writeRequests -> Mono.error(new BatchWriteException("unprocessed",
+                Map.of("table", List.of(WriteRequest.builder().putRequest(PutRequest.builder().item(item("2")).build()).build())))));
+        final CompletableFuture<Void> first = putBatcher.put(key("1"), item("1"));
+        final CompletableFuture<Void> second = putBatcher.put(key("2"), item("2"));
+        final CompletableFuture<Void> third = putBatcher.put(key("3"), item("3"));
+
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertTrue(third.isDone() && !third.isCompletedExceptionally());
+    }
+
+    @Test
+    void otherErrorsFailTheWholeBatch() {
+        final PutBatcher putBatcher = new PutBatcher(Duration.ofHours(1), 2, writeRequests -> Mono.error(new IllegalStateException("down")));
+        final CompletableFuture<Void> first = putBatcher.put(key("1"), item("1"));
+        final CompletableFuture<Void> second = putBatcher.put(key("2"), item("2"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+    }
+
+    @Test
+    void batchIsWrittenOnceFull() {
+        final PutBatcher putBatcher = new PutBatcher(Duration.ofHours(1), 2, writeRequests -> Mono.empty());
+        final CompletableFuture<Void> first = putBatcher.put(key("1"), item("1"));
+
+        assertFalse(first.isDone());
+
+        putBatcher.put(key("2"), item("2"));
+
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+    }
+
+    private static Map<String, AttributeValue> key(final String id) {
+        return Map.of("id", AttributeValue.builder().s(id).build());
+    }
+
+    private static Map<String, AttributeValue> item(final String id) {
+        return Map.of("id", AttributeValue.builder().s(id).build(), "name", AttributeValue.builder().s("name " + id).build());
+    }
+}
@@ -0,0 +1,104 @@
+package org.leo.aws.ddb.repositories;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RepositoryInstrumentationTest {
+
+    @Test
+    void everyPageWaitsForThePermit() {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        final Flux<QueryResponse> pages = RepositoryInstrumentation.paginate(
+                () -> Mono.fromRunnable(() -> calls.add("permit")),
+                startKey -> {
+                    calls.add("page " + (startKey != null ? startKey.get("id").s() : null));
+                    return Mono.just(page(startKey, 3));
+                },
+                QueryResponse::lastEvaluatedKey);
+
+        StepVerifier.create(pages).expectNextCount(3).verifyComplete();
+
+        assertEquals(List.of("permit", "page null", "permit", "page 1", "permit", "page 2"), calls);
+    }
+
+    @Test
+    void noPageIsRequestedBeforeThePermitCompletes() {
+        final AtomicInteger pageCalls = new AtomicInteger();
+
+        StepVerifier.withVirtualTime(() -> RepositoryInstrumentation.paginate(() -> Mono.delay(Duration.ofSeconds(1)),
+                        countingPages(pageCalls, 2), QueryResponse::lastEvaluatedKey))
+                .expectSubscription()
+                .then(() -> assertEquals(0, pageCalls.get()))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNextCount(1)
+                .then(() -> assertEquals(1, pageCalls.get()))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(2, pageCalls.get());
+    }
+
+    @Test
+    void cancellingStopsThePagination() {
+        final AtomicInteger pageCalls = new AtomicInteger();
+
+        StepVerifier.create(RepositoryInstrumentation.paginate(Mono::empty, countingPages(pageCalls, Integer.MAX_VALUE),
+                        QueryResponse::lastEvaluatedKey).take(1))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, pageCalls.get());
+    }
+
+    @Test
+    void pagesAreNotReadAheadOfTheSubscriber() {
+        final AtomicInteger pageCalls = new AtomicInteger();
+
+        StepVerifier.create(RepositoryInstrumentation.paginate(Mono::empty, countingPages(pageCalls, Integer.MAX_VALUE),
+                        QueryResponse::lastEvaluatedKey), 1)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+
+        assertTrue(pageCalls.get() <= 2, "pages requested: " + pageCalls.get());
+    }
+
+    private static Function<Map<String, AttributeValue>, Mono<QueryResponse>> countingPages(final AtomicInteger pageCalls,
+                                                                                          final int pageCount) {
+
+        return startKey -> Mono.fromSupplier(() -> {
+            pageCalls.incrementAndGet();
+            return page(startKey, pageCount);
+        });
+    }
+
+    /**
+     * @return Page following the start key, the last evaluated key being the number of the page
+     */
+    private static QueryResponse page(final Map<String, AttributeValue> startKey, final int pageCount) {
+        final int number = startKey != null ? Integer.parseInt(startKey.get("id").s()) + 1 : 1;
+        final QueryResponse.Builder builder = QueryResponse.builder().count(1);
+
+        if (number < pageCount) {
+            builder.lastEvaluatedKey(Map.of("id", AttributeValue.builder().s(String.valueOf(number)).build()));
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,50 @@
+package org.leo.aws.ddb.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultLimitTest {
+
+    @Test
+    void withoutFilterPagesHoldTheRemainingRecords() {
+        final ResultLimit resultLimit = new ResultLimit(100, 30);
+
+        assertEquals(30, resultLimit.nextLimit());
+        assertTrue(resultLimit.record(10, 10));
+        assertEquals(20, resultLimit.nextLimit());
+        assertFalse(resultLimit.record(20, 20));
+    }
+
+    @Test
+    void withFilterPagesGrowWithTheSelectivity() {
+        final ResultLimit resultLimit = new ResultLimit(1000, 10);
+
+        assertEquals(10, resultLimit.nextLimit());
+        assertTrue(resultLimit.record(10, 1));
+        assertEquals(90, resultLimit.nextLimit());
+        assertFalse(resultLimit.record(90, 9));
+    }
+
+    @Test
+    void pagesDoubleWhileNothingMatches() {
+        final ResultLimit resultLimit = new ResultLimit(1000, 10);
+
+        assertEquals(10, resultLimit.nextLimit());
+        assertTrue(resultLimit.record(10, 0));
+        assertEquals(20, resultLimit.nextLimit());
+        assertTrue(resultLimit.record(20, 0));
+        assertEquals(40, resultLimit.nextLimit());
+    }
+
+    @Test
+    void pagesNeverExceedThePageSize() {
+        final ResultLimit resultLimit = new ResultLimit(50, 10);
+
+        assertEquals(10, resultLimit.nextLimit());
+        assertTrue(resultLimit.record(10, 1));
+        assertEquals(50, resultLimit.nextLimit());
+    }
+}
@@ -0,0 +1,97 @@
+package org.leo.aws.ddb.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.leo.aws.ddb.utils.Tuple;
+import org.leo.aws.ddb.utils.Tuples;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteRequestChunkerTest {
+    private static final int MB = 1024 * 1024;
+
+    @Test
+    void chunksHoldAtMost25Requests() {
+        final List<Tuple<WriteRequest, Integer>> writeRequests = new ArrayList<>();
+
+        for (int i = 0; i < 51; i++) {
+            writeRequests.add(Tuples.of(put("id", AttributeValue.builder().s(String.valueOf(i)).build()), i % 2 == 0 ? i : null));
+        }
+
+        final List<WriteRequestChunker.Chunk<Integer>> chunks = chunk(writeRequests);
+
+        assertEquals(List.of(25, 25, 1), requestCounts(chunks));
+        assertEquals(13, chunks.get(0).getItems().size());
+        assertEquals(List.of(50), chunks.get(2).getItems());
+    }
+
+    @Test
+    void chunksHoldAtMost16Megabytes() {
+        //"b" + 1 MB - 1 bytes: every item is estimated at exactly 1 MB
+        final AttributeValue value = AttributeValue.builder().b(SdkBytes.fromByteArray(new byte[MB - 1])).build();
+        final List<Tuple<WriteRequest, Integer>> writeRequests = new ArrayList<>();
+
+        for (int i = 0; i < 17; i++) {
+            writeRequests.add(Tuples.of(put("b", value), i));
+        }
+
+        final List<WriteRequestChunker.Chunk<Integer>> chunks = chunk(writeRequests);
+
+        assertEquals(List.of(16, 1), requestCounts(chunks));
+        assertEquals(16L * MB, chunks.get(0).getSize());
+        assertEquals(List.of(16), chunks.get(1).getItems());
+    }
+
+    @Test
+    void itemLargerThanTheLimitIsSentAlone() {
+        final AttributeValue small = AttributeValue.builder().s("a").build();
+        final AttributeValue large = AttributeValue.builder().b(SdkBytes.fromByteArray(new byte[17 * MB])).build();
+        final List<WriteRequestChunker.Chunk<Integer>> chunks = chunk(List.of(Tuples.of(put("b", small), 1),
+                Tuples.of(put("b", large), 2), Tuples.of(put("b", small), 3)));
+
+        assertEquals(List.of(1, 1, 1), requestCounts(chunks));
+    }
+
+    @Test
+    void exhaustedChunkerThrows() {
+        final WriteRequestChunker<Integer> chunker = new WriteRequestChunker<>(new ArrayList<Tuple<WriteRequest, Integer>>().iterator());
+
+        assertFalse(chunker.hasNext());
+        assertThrows(NoSuchElementException.class, chunker::next);
+    }
+
+    private static List<WriteRequestChunker.Chunk<Integer>> chunk(final List<Tuple<WriteRequest, Integer>> writeRequests) {
+        final WriteRequestChunker<Integer> chunker = new WriteRequestChunker<>(writeRequests.iterator());
+        final List<WriteRequestChunker.Chunk<Integer>> chunks = new ArrayList<>();
+
+        while (chunker.hasNext()) {
+            chunks.add(chunker.next());
+        }
+
+        return chunks;
+    }
+
+    private static List<Integer> requestCounts(final List<WriteRequestChunker.Chunk<Integer>> chunks) {
+        final List<Integer> counts = new ArrayList<>();
+
+        for (final WriteRequestChunker.Chunk<Integer> chunk : chunks) {
+            counts.add(chunk.getWriteRequests().size());
+        }
+
+        return counts;
+    }
+
+    private static WriteRequest put(final String attributeName, final AttributeValue value) {
+        return WriteRequest.builder().putRequest(PutRequest.builder().item(Map.of(attributeName, value)).build()).build();
+    }
+}
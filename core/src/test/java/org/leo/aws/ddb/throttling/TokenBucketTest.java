@@ -0,0 +1,48 @@
+package org.leo.aws.ddb.throttling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenBucketTest {
+
+    @Test
+    void concurrentCallsAreSpreadOut() {
+        final TokenBucket bucket = new TokenBucket(10, false, 0);
+
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.reserve(0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), bucket.reserve(0));
+    }
+
+    @Test
+    void consumedCapacitySettlesTheReservation() {
+        final TokenBucket bucket = new TokenBucket(10, false, 0);
+
+        bucket.reserve(0);
+        bucket.consume(5, 0);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), bucket.getDelayNanos(0));
+    }
+
+    @Test
+    void debtIsPaidBackOverTime() {
+        final TokenBucket bucket = new TokenBucket(10, false, 0);
+
+        bucket.reserve(0);
+        bucket.consume(5, 0);
+
+        assertEquals(0, bucket.getDelayNanos(TimeUnit.MILLISECONDS.toNanos(500)));
+    }
+
+    @Test
+    void unlimitedBucketNeverWaits() {
+        final TokenBucket bucket = new TokenBucket(Double.POSITIVE_INFINITY, false, 0);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, bucket.reserve(0));
+        }
+    }
+}
@@ -1,11 +1,28 @@
 package org.leo.aws.ddb.autoconfigure;
 
+import org.leo.aws.ddb.config.RepositorySettings;
+import org.leo.aws.ddb.data.RetryPolicy;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "org.leo.aws.ddb")
 public class DynamoDbProperties {
     private String entityBasePackage;
     private String repositoryBasePackage;
+    private int batchWriteConcurrency = RepositorySettings.DEFAULT_BATCH_WRITE_CONCURRENCY;
+    private int batchGetConcurrency = RepositorySettings.DEFAULT_BATCH_GET_CONCURRENCY;
+    private int updateConcurrency = RepositorySettings.DEFAULT_UPDATE_CONCURRENCY;
+    private boolean coalesceGets;
+    private Duration getBatchWindow = Duration.ZERO;
+    private Duration putBatchWindow = Duration.ZERO;
+    private boolean metricsEnabled = true;
+    private boolean consumedCapacityEnabled;
+    private final Retry retry = new Retry();
+    private final Mapping mapping = new Mapping();
+    private final RateLimit rateLimit = new RateLimit();
 
     public String getEntityBasePackage() {
         return entityBasePackage;
@@ -22,4 +39,233 @@ public class DynamoDbProperties {
     public void setRepositoryBasePackage(final String repositoryBasePackage) {
         this.repositoryBasePackage = repositoryBasePackage;
     }
+
+    public int getBatchWriteConcurrency() {
+        return batchWriteConcurrency;
+    }
+
+    public void setBatchWriteConcurrency(final int batchWriteConcurrency) {
+        this.batchWriteConcurrency = batchWriteConcurrency;
+    }
+
+    public int getBatchGetConcurrency() {
+        return batchGetConcurrency;
+    }
+
+    public void setBatchGetConcurrency(final int batchGetConcurrency) {
+        this.batchGetConcurrency = batchGetConcurrency;
+    }
+
+    public int getUpdateConcurrency() {
+        return updateConcurrency;
+    }
+
+    public void setUpdateConcurrency(final int updateConcurrency) {
+        this.updateConcurrency = updateConcurrency;
+    }
+
+    public boolean isCoalesceGets() {
+        return coalesceGets;
+    }
+
+    public void setCoalesceGets(final boolean coalesceGets) {
+        this.coalesceGets = coalesceGets;
+    }
+
+    public Duration getGetBatchWindow() {
+        return getBatchWindow;
+    }
+
+    public void setGetBatchWindow(final Duration getBatchWindow) {
+        this.getBatchWindow = getBatchWindow;
+    }
+
+    public Duration getPutBatchWindow() {
+        return putBatchWindow;
+    }
+
+    public void setPutBatchWindow(final Duration putBatchWindow) {
+        this.putBatchWindow = putBatchWindow;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(final boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    public boolean isConsumedCapacityEnabled() {
+        return consumedCapacityEnabled;
+    }
+
+    public void setConsumedCapacityEnabled(final boolean consumedCapacityEnabled) {
+        this.consumedCapacityEnabled = consumedCapacityEnabled;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public Mapping getMapping() {
+        return mapping;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * Retry of the unprocessed items of batch operations
+     */
+    public static class Retry {
+        private int maxAttempts = RetryPolicy.DEFAULT_MAX_ATTEMPTS;
+        private Duration baseDelay = RetryPolicy.DEFAULT_BASE_DELAY;
+        private Duration maxDelay = RetryPolicy.DEFAULT_MAX_DELAY;
+        private boolean jitter = true;
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(final int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getBaseDelay() {
+            return baseDelay;
+        }
+
+        public void setBaseDelay(final Duration baseDelay) {
+            this.baseDelay = baseDelay;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(final Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        public boolean isJitter() {
+            return jitter;
+        }
+
+        public void setJitter(final boolean jitter) {
+            this.jitter = jitter;
+        }
+    }
+
+    /**
+     * Threads mapping the single item responses (get, update) to entities
+     */
+    public static class Mapping {
+        private MappingMode mode = MappingMode.POOL;
+        private int poolSize = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = 1000;
+
+        public MappingMode getMode() {
+            return mode;
+        }
+
+        public void setMode(final MappingMode mode) {
+            this.mode = mode;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(final int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(final int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    public enum MappingMode {
+        /**
+         * Map on the SDK thread that completes the response (cheapest, for small entities)
+         */
+        INLINE,
+        /**
+         * Map on a dedicated bounded pool
+         */
+        POOL
+    }
+
+    /**
+     * Client side rate limiting of the calls, per table and index
+     */
+    public static class RateLimit {
+        private boolean enabled;
+        private boolean adaptive = true;
+        private final Map<String, TableThroughput> tables = new HashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(final boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isAdaptive() {
+            return adaptive;
+        }
+
+        public void setAdaptive(final boolean adaptive) {
+            this.adaptive = adaptive;
+        }
+
+        /**
+         * @return Throughput by table name
+         */
+        public Map<String, TableThroughput> getTables() {
+            return tables;
+        }
+    }
+
+    /**
+     * Capacity units per second (0 for no limit)
+     */
+    public static class Throughput {
+        private double read;
+        private double write;
+
+        public double getRead() {
+            return read;
+        }
+
+        public void setRead(final double read) {
+            this.read = read;
+        }
+
+        public double getWrite() {
+            return write;
+        }
+
+        public void setWrite(final double write) {
+            this.write = write;
+        }
+    }
+
+    public static class TableThroughput extends Throughput {
+        private final Map<String, Throughput> indexes = new HashMap<>();
+
+        /**
+         * @return Throughput by index name
+         */
+        public Map<String, Throughput> getIndexes() {
+            return indexes;
+        }
+    }
 }
@@ -0,0 +1,133 @@
+package org.leo.aws.ddb.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.leo.aws.ddb.config.MappingExecutor;
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the repository measurements to Micrometer:
+ * <ul>
+ *     <li>{@code ddb.repository.operation}: timer tagged by table, index, operation, outcome and exception</li>
+ *     <li>{@code ddb.repository.page.items}: items per query/scan page</li>
+ *     <li>{@code ddb.repository.mapping}: time to map one item to an entity</li>
+ *     <li>{@code ddb.repository.retries}: retries of unprocessed batch keys/items</li>
+ *     <li>{@code ddb.repository.conflicts}: updates retried after an optimistic lock conflict, by table</li>
+ *     <li>{@code ddb.repository.consumed.capacity}: capacity units consumed, tagged by table, index, operation and capacity
+ *     type (read/write), when a {@link ConsumedCapacityTracker} is configured</li>
+ * </ul>
+ * The pool of the {@link MappingExecutor}, when there is one, is published under the {@code ddb-mapping} executor name.
+ * Registered as a {@link MeterBinder} so it is bound to every registry of the application.
+ */
+public class MicrometerRepositoryMetrics implements RepositoryMetrics, MeterBinder {
+    private static final String NONE = "none";
+
+    private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+    private final MappingExecutor mappingExecutor;
+
+    public MicrometerRepositoryMetrics(@Nullable final MappingExecutor mappingExecutor) {
+        this.mappingExecutor = mappingExecutor;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry meterRegistry) {
+        registry.add(meterRegistry);
+
+        if (mappingExecutor != null && !mappingExecutor.isInline()) {
+            new ExecutorServiceMetrics(mappingExecutor.getThreadPoolExecutor(), "ddb-mapping", Tags.empty()).bindTo(meterRegistry);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void recordOperation(final RepositoryOperation operation,
+                                final String tableName,
+                                @Nullable final String indexName,
+                                final long durationNanos,
+                                @Nullable final Throwable error) {
+
+        Timer.builder("ddb.repository.operation")
+                .description("DynamoDB calls made by the repositories")
+                .tags(tags(operation, tableName, indexName))
+                .tag("outcome", error == null ? "success" : "error")
+                .tag("exception", error == null ? NONE : error.getClass().getSimpleName())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordPage(final RepositoryOperation operation,
+                           final String tableName,
+                           @Nullable final String indexName,
+                           final int itemCount) {
+
+        DistributionSummary.builder("ddb.repository.page.items")
+                .description("Items per query/scan page")
+                .baseUnit("items")
+                .tags(tags(operation, tableName, indexName))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(itemCount);
+    }
+
+    @Override
+    public void recordMapping(final String tableName, final long durationNanos) {
+        Timer.builder("ddb.repository.mapping")
+                .description("Time to map an item to an entity")
+                .tag("table", tableName)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordRetry(final RepositoryOperation operation, final String tableName, final int attempt) {
+        Counter.builder("ddb.repository.retries")
+                .description("Retries of unprocessed batch keys/items")
+                .tag("table", tableName)
+                .tag("operation", operation.getTagValue())
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    public void recordConflict(final String tableName, final int attempt) {
+        Counter.builder("ddb.repository.conflicts")
+                .description("Updates retried after an optimistic lock conflict")
+                .tag("table", tableName)
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    public void recordConsumedCapacity(final RepositoryOperation operation,
+                                       final String tableName,
+                                       @Nullable final String indexName,
+                                       final double capacityUnits) {
+
+        Counter.builder("ddb.repository.consumed.capacity")
+                .description("Capacity units consumed by the repositories")
+                .baseUnit("capacity.units")
+                .tags(tags(operation, tableName, indexName))
+                .tag("type", operation.isRead() ? "read" : "write")
+                .register(registry)
+                .increment(capacityUnits);
+    }
+
+    private static Tags tags(final RepositoryOperation operation, final String tableName, @Nullable final String indexName) {
+        return Tags.of("table", tableName, "index", indexName != null ? indexName : NONE, "operation", operation.getTagValue());
+    }
+}
@@ -3,6 +3,15 @@ package org.leo.aws.ddb.repositories;
 import org.leo.aws.ddb.autoconfigure.AwsEnvironmentProperties;
 import org.leo.aws.ddb.autoconfigure.DynamoDbProperties;
 import org.leo.aws.ddb.config.EntityValidationConfig;
+import org.leo.aws.ddb.config.MappingExecutor;
+import org.leo.aws.ddb.config.RepositorySettings;
+import org.leo.aws.ddb.data.RetryPolicy;
+import org.leo.aws.ddb.metrics.ConsumedCapacityTracker;
+import org.leo.aws.ddb.metrics.MicrometerRepositoryMetrics;
+import org.leo.aws.ddb.metrics.RepositoryMetrics;
+import org.leo.aws.ddb.throttling.ThroughputLimit;
+import org.leo.aws.ddb.throttling.ThroughputLimiter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -60,4 +69,80 @@ public class DdbAutoConfiguration {
     public DataMapperConfigCleanUp dataMapperConfigCleanUpMain(final DynamoDbProperties dynamoDbProperties, final Map<Class, DataMapper> dataMapperMap, final Environment environment) {
         return new DataMapperConfigCleanUp(dynamoDbProperties.getEntityBasePackage(), dataMapperMap, environment);
     }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public MappingExecutor ddbMappingExecutor(final DynamoDbProperties dynamoDbProperties) {
+        final DynamoDbProperties.Mapping mapping = dynamoDbProperties.getMapping();
+
+        if (mapping.getMode() == DynamoDbProperties.MappingMode.INLINE) {
+            return MappingExecutor.inline();
+        } else {
+            return MappingExecutor.pool("ddb-mapping", mapping.getPoolSize(), mapping.getQueueCapacity());
+        }
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "org.leo.aws.ddb", name = "consumed-capacity-enabled", havingValue = "true")
+    public ConsumedCapacityTracker consumedCapacityTracker() {
+        return new ConsumedCapacityTracker();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "org.leo.aws.ddb.rate-limit", name = "enabled", havingValue = "true")
+    public ThroughputLimiter throughputLimiter(final DynamoDbProperties dynamoDbProperties) {
+        final DynamoDbProperties.RateLimit rateLimit = dynamoDbProperties.getRateLimit();
+        final ThroughputLimiter.Builder builder = ThroughputLimiter.builder().adaptive(rateLimit.isAdaptive());
+
+        rateLimit.getTables().forEach((tableName, table) -> {
+            builder.limit(tableName, ThroughputLimit.of(table.getRead(), table.getWrite()));
+            table.getIndexes().forEach((indexName, index) -> builder.limit(tableName, indexName, ThroughputLimit.of(index.getRead(), index.getWrite())));
+        });
+
+        return builder.build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RepositorySettings repositorySettings(final DynamoDbProperties dynamoDbProperties,
+                                                 final MappingExecutor ddbMappingExecutor,
+                                                 final ObjectProvider<RepositoryMetrics> repositoryMetrics,
+                                                 final ObjectProvider<ConsumedCapacityTracker> consumedCapacityTracker,
+                                                 final ObjectProvider<ThroughputLimiter> throughputLimiter) {
+
+        final DynamoDbProperties.Retry retry = dynamoDbProperties.getRetry();
+
+        return RepositorySettings.builder()
+                .batchWriteConcurrency(dynamoDbProperties.getBatchWriteConcurrency())
+                .batchGetConcurrency(dynamoDbProperties.getBatchGetConcurrency())
+                .updateConcurrency(dynamoDbProperties.getUpdateConcurrency())
+                .coalesceGets(dynamoDbProperties.isCoalesceGets())
+                .getBatchWindow(dynamoDbProperties.getGetBatchWindow())
+                .putBatchWindow(dynamoDbProperties.getPutBatchWindow())
+                .retryPolicy(RetryPolicy.builder()
+                        .maxAttempts(retry.getMaxAttempts())
+                        .baseDelay(retry.getBaseDelay())
+                        .maxDelay(retry.getMaxDelay())
+                        .jitter(retry.isJitter())
+                        .build())
+                .mappingExecutor(ddbMappingExecutor)
+                .metrics(repositoryMetrics.getIfAvailable(() -> RepositoryMetrics.NOOP))
+                .consumedCapacityTracker(consumedCapacityTracker.getIfAvailable())
+                .throughputLimiter(throughputLimiter.getIfAvailable())
+                .build();
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = "org.leo.aws.ddb", name = "metrics-enabled", matchIfMissing = true)
+    static class MetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(RepositoryMetrics.class)
+        public MicrometerRepositoryMetrics ddbRepositoryMetrics(final ObjectProvider<MappingExecutor> ddbMappingExecutor) {
+            return new MicrometerRepositoryMetrics(ddbMappingExecutor.getIfAvailable());
+        }
+    }
 }